@@ -21,6 +21,7 @@ package com.saggitt.omega.allapps
 import android.content.Context
 import com.android.launcher3.model.data.ItemInfo
 import com.android.launcher3.util.ComponentKey
+import com.saggitt.omega.groups.CompiledFilter
 import com.saggitt.omega.groups.category.DrawerTabs
 import com.saggitt.omega.groups.category.FlowerpotTabs
 import com.saggitt.omega.util.prefs
@@ -39,7 +40,7 @@ class AllAppsTabs(private val context: Context) : Iterable<AllAppsTabs.Tab> {
             }
         }
 
-    private val addedApps = ArrayList<ComponentKey>()
+    private val addedApps = HashSet<ComponentKey>()
 
     init {
         reloadTabs()
@@ -74,7 +75,7 @@ class AllAppsTabs(private val context: Context) : Iterable<AllAppsTabs.Tab> {
     }
 
     private fun createMatcher(
-        components: List<ComponentKey>,
+        components: Set<ComponentKey>,
         base: Predicate<ItemInfo>? = null,
     ): Predicate<ItemInfo> {
         return Predicate<ItemInfo> { info ->
@@ -94,8 +95,13 @@ class AllAppsTabs(private val context: Context) : Iterable<AllAppsTabs.Tab> {
 
     open class Tab(
         val name: String,
-        val matcher: Predicate<ItemInfo>,
+        matcher: Predicate<ItemInfo>,
         val isWork: Boolean = false,
         val drawerTab: DrawerTabs.Tab,
-    )
+    ) {
+        /**
+         * Compiled once per tab, switching tabs reuses the matches until the apps change
+         */
+        val matcher = CompiledFilter(matcher)
+    }
 }
@@ -44,6 +44,7 @@ import com.saggitt.omega.util.hasStoragePermission
 import com.saggitt.omega.util.prefs
 import com.saggitt.omega.util.runOnMainThread
 import com.saggitt.omega.util.safeForEach
+import com.saggitt.omega.util.trackBlocking
 import com.saggitt.omega.util.useApplicationContext
 
 class BlurWallpaperProvider(val context: Context) {
@@ -123,7 +124,10 @@ class BlurWallpaperProvider(val context: Context) {
         wallpaperFilter.applyPrefs(prefs)
 
         var wallpaper = try {
-            Utilities.drawableToBitmap(mWallpaperManager.drawable, true) as Bitmap
+            val drawable = trackBlocking("WallpaperManager.getDrawable") {
+                mWallpaperManager.drawable
+            }
+            Utilities.drawableToBitmap(drawable, true) as Bitmap
         } catch (e: Exception) {
             prefs.profileBlurEnable.setValue(false)
             runOnMainThread {
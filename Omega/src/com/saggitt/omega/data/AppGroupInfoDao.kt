@@ -0,0 +1,46 @@
+/*
+ * This file is part of Neo Launcher
+ * Copyright (c) 2023   Neo Launcher Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.saggitt.omega.data
+
+import androidx.room.Dao
+import androidx.room.Insert
+import androidx.room.OnConflictStrategy
+import androidx.room.Query
+import androidx.room.Transaction
+import com.saggitt.omega.data.models.AppGroupInfo
+import kotlinx.coroutines.flow.Flow
+
+@Dao
+interface AppGroupInfoDao {
+
+    @Query("SELECT * FROM AppGroupInfo WHERE category = :category ORDER BY position")
+    fun getGroups(category: String): Flow<List<AppGroupInfo>>
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    fun insert(items: List<AppGroupInfo>)
+
+    @Query("DELETE FROM AppGroupInfo WHERE category = :category AND position >= :count")
+    fun trim(category: String, count: Int)
+
+    @Transaction
+    fun update(category: String, changed: List<AppGroupInfo>, count: Int) {
+        insert(changed)
+        trim(category, count)
+    }
+}
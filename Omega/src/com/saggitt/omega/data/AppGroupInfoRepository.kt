@@ -0,0 +1,71 @@
+/*
+ * This file is part of Neo Launcher
+ * Copyright (c) 2023   Neo Launcher Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.saggitt.omega.data
+
+import android.content.Context
+import com.android.launcher3.util.Executors.MAIN_EXECUTOR
+import com.android.launcher3.util.Executors.UI_HELPER_EXECUTOR
+import com.android.launcher3.util.MainThreadInitializedObject
+import com.saggitt.omega.data.models.AppGroupInfo
+import com.saggitt.omega.util.firstBlocking
+
+class AppGroupInfoRepository(context: Context) {
+    private val dao = NeoLauncherDb.INSTANCE.get(context).appGroupInfoDao()
+
+    /**
+     * Rows of each category including the writes not applied yet, so that reads never miss a
+     * write still queued on the ui helper thread. Guarded by itself.
+     */
+    private val groups = HashMap<String, List<AppGroupInfo>>()
+
+    fun getGroups(category: String): List<AppGroupInfo> {
+        synchronized(groups) {
+            groups[category]?.let { return it }
+        }
+        val rows = dao.getGroups(category).firstBlocking()
+        // A write queued during the query is newer than what the query returned
+        synchronized(groups) {
+            return groups.getOrPut(category) { rows }
+        }
+    }
+
+    /**
+     * Replace the rows of the [category] with [rows], only [changed] are written and the rows past
+     * the end are dropped. Writes are applied in order on the ui helper thread, [onWritten] is
+     * then called on the main thread.
+     */
+    fun update(
+        category: String,
+        rows: List<AppGroupInfo>,
+        changed: List<AppGroupInfo>,
+        onWritten: (() -> Unit)? = null,
+    ) {
+        synchronized(groups) {
+            groups[category] = rows
+        }
+        UI_HELPER_EXECUTOR.execute {
+            dao.update(category, changed, rows.size)
+            onWritten?.let { MAIN_EXECUTOR.execute(it) }
+        }
+    }
+
+    companion object {
+        val INSTANCE = MainThreadInitializedObject(::AppGroupInfoRepository)
+    }
+}
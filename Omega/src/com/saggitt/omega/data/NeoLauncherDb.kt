@@ -18,16 +18,21 @@
 
 package com.saggitt.omega.data
 
+import androidx.annotation.VisibleForTesting
 import androidx.room.AutoMigration
 import androidx.room.Database
 import androidx.room.Room
 import androidx.room.RoomDatabase
 import androidx.room.TypeConverters
+import androidx.room.migration.Migration
+import androidx.sqlite.db.SupportSQLiteDatabase
 import com.android.launcher3.util.MainThreadInitializedObject
+import com.saggitt.omega.data.models.AppGroupInfo
 import com.saggitt.omega.data.models.AppTracker
 import com.saggitt.omega.data.models.GestureItemInfo
 import com.saggitt.omega.data.models.IconOverride
 import com.saggitt.omega.data.models.PeopleInfo
+import com.saggitt.omega.data.models.PeopleInfoFts
 import com.saggitt.omega.data.models.SearchProvider
 
 @Database(
@@ -35,16 +40,22 @@ import com.saggitt.omega.data.models.SearchProvider
         IconOverride::class,
         AppTracker::class,
         PeopleInfo::class,
+        PeopleInfoFts::class,
         GestureItemInfo::class,
         SearchProvider::class,
+        AppGroupInfo::class,
     ],
-    version = 5,
+    version = 7,
     exportSchema = true,
     autoMigrations = [
         AutoMigration(
             from = 4,
             to = 5,
         ),
+        AutoMigration(
+            from = 5,
+            to = 6,
+        ),
     ]
 )
 @TypeConverters(Converters::class)
@@ -55,12 +66,45 @@ abstract class NeoLauncherDb : RoomDatabase() {
     abstract fun peopleDao(): PeopleDao
     abstract fun gestureItemInfoDao(): GestureItemInfoDao
     abstract fun searchProviderDao(): SearchProviderDao
+    abstract fun appGroupInfoDao(): AppGroupInfoDao
 
     companion object {
 
         val INSTANCE = MainThreadInitializedObject { context ->
             Room.databaseBuilder(context, NeoLauncherDb::class.java, "NeoLauncher.db")
+                .addMigrations(MIGRATION_6_7)
                 .build()
         }
+
+        // Adds the full text index of the people names, with the triggers Room uses to keep it
+        // in sync, and indexes the existing rows which an auto migration would leave out
+        @VisibleForTesting
+        val MIGRATION_6_7 = object : Migration(6, 7) {
+            override fun migrate(database: SupportSQLiteDatabase) {
+                database.execSQL(
+                    "CREATE VIRTUAL TABLE IF NOT EXISTS `PeopleInfoFts` USING FTS4("
+                            + "`contactName` TEXT NOT NULL, tokenize=unicode61, "
+                            + "content=`PeopleInfo`)"
+                )
+                listOf("BEFORE UPDATE", "BEFORE DELETE").forEach { event ->
+                    database.execSQL(
+                        "CREATE TRIGGER IF NOT EXISTS "
+                                + "room_fts_content_sync_PeopleInfoFts_${event.replace(' ', '_')} "
+                                + "$event ON `PeopleInfo` BEGIN DELETE FROM `PeopleInfoFts` "
+                                + "WHERE `docid`=OLD.`rowid`; END"
+                    )
+                }
+                listOf("AFTER UPDATE", "AFTER INSERT").forEach { event ->
+                    database.execSQL(
+                        "CREATE TRIGGER IF NOT EXISTS "
+                                + "room_fts_content_sync_PeopleInfoFts_${event.replace(' ', '_')} "
+                                + "$event ON `PeopleInfo` BEGIN INSERT INTO `PeopleInfoFts`("
+                                + "`docid`, `contactName`) VALUES (NEW.`rowid`, "
+                                + "NEW.`contactName`); END"
+                    )
+                }
+                database.execSQL("INSERT INTO `PeopleInfoFts`(`PeopleInfoFts`) VALUES('rebuild')")
+            }
+        }
     }
 }
\ No newline at end of file
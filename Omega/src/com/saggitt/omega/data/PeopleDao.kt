@@ -29,9 +29,26 @@ interface PeopleDao {
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     suspend fun insert(people: PeopleInfo)
 
-    @Query("SELECT * FROM PeopleInfo WHERE contactName LIKE '%' || :query || '%' LIMIT 5")
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    suspend fun insertAll(people: List<PeopleInfo>)
+
+    /**
+     * Finds people through the full text index of their names, [query] must be a valid FTS
+     * match expression.
+     */
+    @Query(
+        "SELECT PeopleInfo.* FROM PeopleInfo JOIN PeopleInfoFts "
+                + "ON PeopleInfo.rowid = PeopleInfoFts.docid "
+                + "WHERE PeopleInfoFts MATCH :query LIMIT 5"
+    )
     fun findPeople(query: String): List<PeopleInfo>
 
+    @Query("SELECT COUNT(*) FROM PeopleInfo")
+    suspend fun count(): Int
+
+    @Query("DELETE FROM PeopleInfo WHERE contactId IN (:contactIds)")
+    suspend fun deleteAll(contactIds: List<String>)
+
     @Query("DELETE FROM peopleinfo")
     suspend fun deleteAll()
-}
\ No newline at end of file
+}
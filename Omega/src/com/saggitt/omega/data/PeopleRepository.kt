@@ -17,31 +17,145 @@
  */
 package com.saggitt.omega.data
 
+import android.content.ContentResolver
 import android.content.Context
+import android.database.ContentObserver
+import android.provider.ContactsContract
+import androidx.annotation.VisibleForTesting
+import androidx.room.withTransaction
 import com.android.launcher3.util.MainThreadInitializedObject
 import com.saggitt.omega.data.models.PeopleInfo
+import com.saggitt.omega.search.PeopleItems
 import kotlinx.coroutines.CoroutineName
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.launch
 import kotlinx.coroutines.plus
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+
+class PeopleRepository @VisibleForTesting constructor(
+    private val db: NeoLauncherDb,
+    private val contentResolver: ContentResolver,
+) {
+    constructor(context: Context) :
+            this(NeoLauncherDb.INSTANCE.get(context), context.contentResolver) {
+        startSync()
+    }
 
-class PeopleRepository(context: Context) {
     private val scope = CoroutineScope(Dispatchers.IO) + CoroutineName("PeopleRepository")
-    private val dao = NeoLauncherDb.INSTANCE.get(context).peopleDao()
+    private val dao = db.peopleDao()
+    private val peopleItems = PeopleItems(contentResolver)
+
+    private val syncLock = Mutex()
+    private var syncJob: Job? = null
+    private var observing = false
+
+    // Time of the start of the last sync, 0 until the first full import
+    private var lastSyncTimestamp = 0L
+
+    private val contactsObserver = object : ContentObserver(null) {
+        override fun onChange(selfChange: Boolean) {
+            scheduleSync(SYNC_DELAY_MS)
+        }
+    }
 
     suspend fun insert(people: PeopleInfo) {
         dao.insert(people)
     }
 
+    /**
+     * Returns the people whose name has a word starting with every word of [query]
+     */
     fun findPeople(query: String): List<PeopleInfo?> {
-        return dao.findPeople(query)
+        val ftsQuery = toFtsQuery(query) ?: return emptyList()
+        return dao.findPeople(ftsQuery)
     }
 
     suspend fun deleteAll() {
         dao.deleteAll()
     }
 
+    /**
+     * Imports the contacts if not done yet, and keeps them in sync while the contacts change
+     */
+    @Synchronized
+    fun startSync() {
+        if (observing) return
+        observing = true
+        contentResolver.registerContentObserver(
+            ContactsContract.Contacts.CONTENT_URI, true, contactsObserver
+        )
+        scheduleSync(0)
+    }
+
+    @Synchronized
+    fun stopSync() {
+        if (!observing) return
+        observing = false
+        contentResolver.unregisterContentObserver(contactsObserver)
+        syncJob?.cancel()
+    }
+
+    @Synchronized
+    private fun scheduleSync(delayMs: Long) {
+        // Changes usually come in bursts, only sync once they settle
+        syncJob?.cancel()
+        syncJob = scope.launch {
+            delay(delayMs)
+            sync()
+        }
+    }
+
+    /**
+     * Imports all the contacts on the first call, then only the contacts changed since the
+     * previous call. Every sync is written in a single transaction.
+     */
+    @VisibleForTesting
+    suspend fun sync() = syncLock.withLock {
+        val syncTimestamp = System.currentTimeMillis()
+        if (lastSyncTimestamp == 0L) {
+            val people = peopleItems.getPeopleInformation() ?: return@withLock
+            db.withTransaction {
+                dao.deleteAll()
+                dao.insertAll(people)
+            }
+        } else {
+            val changes = peopleItems.getChangesSince(lastSyncTimestamp) ?: return@withLock
+            if (changes.updated.isEmpty() && changes.removedIds.isEmpty()) {
+                lastSyncTimestamp = syncTimestamp
+                return@withLock
+            }
+            db.withTransaction {
+                changes.removedIds.chunked(MAX_QUERY_ARGS).forEach { dao.deleteAll(it) }
+                dao.insertAll(changes.updated)
+            }
+        }
+        lastSyncTimestamp = syncTimestamp
+    }
+
     companion object {
-        val INSTANCE = MainThreadInitializedObject(::PeopleRepository)
+        val INSTANCE = MainThreadInitializedObject { PeopleRepository(it) }
+
+        private const val SYNC_DELAY_MS = 2000L
+
+        // Below the SQLite limit of bound arguments per statement
+        private const val MAX_QUERY_ARGS = 500
+
+        private val FTS_SEPARATORS = Regex("[^\\p{L}\\p{N}]+")
+
+        /**
+         * Converts the text typed by the user to an FTS query matching names with a word
+         * starting with every word of the text, or null if the text has no word.
+         */
+        @VisibleForTesting
+        fun toFtsQuery(query: String): String? = query
+            .split(FTS_SEPARATORS)
+            .filter { it.isNotEmpty() }
+            .takeIf { it.isNotEmpty() }
+            // Quoted so that words like OR and NOT are not read as operators
+            ?.joinToString(" ") { "\"$it*\"" }
     }
-}
\ No newline at end of file
+}
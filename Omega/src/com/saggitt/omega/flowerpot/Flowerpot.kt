@@ -18,13 +18,14 @@
 package com.saggitt.omega.flowerpot
 
 import android.content.Context
-import com.saggitt.omega.flowerpot.parser.FlowerpotReader
-import com.saggitt.omega.flowerpot.rules.Rule
+import com.android.launcher3.util.Executors.MAIN_EXECUTOR
+import com.android.launcher3.util.Executors.UI_HELPER_EXECUTOR
 import com.saggitt.omega.util.SingletonHolder
 import com.saggitt.omega.util.ensureOnMainThread
 import com.saggitt.omega.util.toTitleCase
 import com.saggitt.omega.util.useApplicationContext
-import java.io.InputStream
+import java.util.concurrent.Callable
+import java.util.concurrent.Future
 
 /**
  * A ruleset for an app category
@@ -32,7 +33,6 @@ import java.io.InputStream
 class Flowerpot(
     private val context: Context,
     val name: String,
-    private val loader: Flowerpot.() -> Unit
 ) {
 
     val displayName by lazy {
@@ -46,40 +46,9 @@ class Flowerpot(
         else
             beautifyName(name)
     }
-    private var loaded = false
-    val rules: MutableSet<Rule> = mutableSetOf()
-    val size get() = rules.size
-    lateinit var apps: FlowerpotApps
-
-    fun ensureLoaded() {
-        if (!loaded) {
-            load()
-            loaded = true
-        }
-    }
-
-    private fun load() {
-        loader(this)
-        apps = FlowerpotApps(context, this)
-    }
-
-    /**
-     * Load all data from
-     */
-    private fun loadFromInputStream(inputStream: InputStream) {
-        rules.addAll(FlowerpotReader(inputStream).readRules())
-    }
+    val apps = FlowerpotApps()
 
     companion object {
-        /**
-         * Load a flowerpot from an assets file
-         */
-        fun fromAssets(context: Context, path: String, name: String): Flowerpot {
-            return Flowerpot(context, name) {
-                loadFromInputStream(context.assets.open(path))
-            }
-        }
-
         /**
          * The current Flowerpot format version
          */
@@ -119,9 +88,23 @@ class Flowerpot(
     class Manager private constructor(private val context: Context) {
 
         private val pots = mutableMapOf<String, Flowerpot>()
+        private val database: Future<FlowerpotDatabase>
+        private var categorizer: FlowerpotCategorizer? = null
+        private var categorizationStarted = false
+        private val listeners = mutableListOf<Runnable>()
+
+        /**
+         * Whether the apps of the pots have been matched, until then the pots have no apps
+         */
+        var isCategorized = false
+            private set
 
         init {
             loadAssets()
+            val potNames = pots.keys.toList()
+            database = UI_HELPER_EXECUTOR.submit(Callable {
+                FlowerpotDatabase.load(context, potNames)
+            })
         }
 
         /**
@@ -129,23 +112,57 @@ class Flowerpot(
          */
         private fun loadAssets() {
             context.assets.list(ASSETS_PATH)?.forEach {
-                pots.getOrPut(it) {
-                    fromAssets(context, "$ASSETS_PATH/$it", it)
-                }
+                pots.getOrPut(it) { Flowerpot(context, it) }
             }
         }
 
         /**
-         * Get a pot by its name, returns null if no pot with this name has been loaded
+         * Start matching apps against the compiled rules of all pots on the ui helper thread,
+         * listeners are notified once the apps of the pots are known
+         */
+        private fun ensureCategorized() {
+            if (categorizationStarted) return
+            categorizationStarted = true
+            UI_HELPER_EXECUTOR.execute {
+                // The database is loaded by a task queued earlier on the same thread
+                val db = database.get()
+                categorizer = FlowerpotCategorizer(
+                    context,
+                    db,
+                    db.potNames.map { pots[it]!! },
+                    ::onMatchesChanged
+                )
+            }
+        }
+
+        private fun onMatchesChanged() {
+            MAIN_EXECUTOR.execute {
+                isCategorized = true
+                listeners.toList().forEach(Runnable::run)
+            }
+        }
+
+        /**
+         * Adds a listener called on the main thread whenever the apps of the pots change
+         */
+        fun addListener(listener: Runnable) {
+            listeners.add(listener)
+            ensureCategorized()
+        }
+
+        fun removeListener(listener: Runnable) {
+            listeners.remove(listener)
+        }
+
+        /**
+         * Get a pot by its name, returns null if no pot with this name has been loaded. The apps
+         * of the pot are matched in the background, see [isCategorized].
          *
          * @param name (code) name of the flowerpot, usually the filename of a flowerpot file
-         * @param forceLoad Whether or not the pot should be loaded if it hasn't already been
          * @return the pot or null if none exists with this name
          */
-        fun getPot(name: String, forceLoad: Boolean = true) = pots[name]?.apply {
-            if (forceLoad) {
-                ensureLoaded()
-            }
+        fun getPot(name: String) = pots[name]?.apply {
+            ensureCategorized()
         }
 
         fun getAllPots() = pots.values
@@ -17,114 +17,56 @@
 
 package com.saggitt.omega.flowerpot
 
-import android.content.Context
-import android.content.Intent
-import android.content.pm.LauncherApps
 import android.os.UserHandle
-import com.android.launcher3.pm.UserCache
 import com.android.launcher3.util.ComponentKey
 import com.android.launcher3.util.PackageUserKey
-import com.saggitt.omega.flowerpot.rules.CodeRule
-import com.saggitt.omega.flowerpot.rules.Rule
 
-class FlowerpotApps(private val context: Context, private val pot: Flowerpot) :
-    LauncherApps.Callback() {
-
-    private val launcherApps = context.getSystemService(LauncherApps::class.java)
-    private val intentMatches = mutableSetOf<String>()
-    val matches = mutableSetOf<ComponentKey>()
-    val packageMatches = mutableSetOf<PackageUserKey>()
+/**
+ * Apps matched by a pot, kept up to date by the shared [FlowerpotCategorizer] on the ui helper
+ * thread. Readers on other threads only see the immutable snapshots published after each change.
+ */
+class FlowerpotApps {
 
-    init {
-        filterApps()
-        context.getSystemService(LauncherApps::class.java).registerCallback(this)
-    }
+    private val pendingMatches = mutableSetOf<ComponentKey>()
+    private val pendingPackageMatches = mutableSetOf<PackageUserKey>()
+    private var changed = false
 
-    private fun filterApps() {
-        queryIntentMatches()
-        matches.clear()
-        packageMatches.clear()
-        UserCache.INSTANCE.get(context).userProfiles.forEach {
-            addFromPackage(null, it)
-        }
-    }
+    @Volatile
+    var matches: Set<ComponentKey> = emptySet()
+        private set
 
-    private fun addFromPackage(packageName: String?, user: UserHandle) {
-        launcherApps.getActivityList(packageName, user).forEach {
-            if (intentMatches.contains(it.componentName.packageName)
-                || pot.rules.contains(Rule.Package(it.componentName.packageName))
-            ) {
-                matches.add(ComponentKey(it.componentName, it.user))
-                packageMatches.add(PackageUserKey(it.componentName.packageName, it.user))
-            } else {
-                for (rule in pot.rules.filterIsInstance<Rule.CodeRule>()) {
-                    if (CodeRule.get(rule.rule, *rule.args).matches(it.applicationInfo)) {
-                        matches.add(ComponentKey(it.componentName, it.user))
-                        packageMatches.add(PackageUserKey(it.componentName.packageName, it.user))
-                        break
-                    }
-                }
-            }
-        }
-    }
+    @Volatile
+    var packageMatches: Set<PackageUserKey> = emptySet()
+        private set
 
-    private fun queryIntentMatches() {
-        intentMatches.clear()
-        for (rule in pot.rules.filterIsInstance<Rule.IntentCategory>()) {
-            context.packageManager.queryIntentActivities(
-                Intent(Intent.ACTION_MAIN).addCategory(rule.category),
-                0
-            ).forEach {
-                intentMatches.add(it.activityInfo.packageName)
-            }
-        }
-        for (rule in pot.rules.filterIsInstance<Rule.IntentAction>()) {
-            context.packageManager.queryIntentActivities(Intent(rule.action), 0).forEach {
-                intentMatches.add(it.activityInfo.packageName)
-            }
-        }
+    internal fun add(key: ComponentKey, packageKey: PackageUserKey) {
+        changed = pendingMatches.add(key) or changed
+        pendingPackageMatches.add(packageKey)
     }
 
-    override fun onPackageAdded(packageName: String, user: UserHandle) {
-        queryIntentMatches()
-        addFromPackage(packageName, user)
-    }
-
-    override fun onPackageChanged(packageName: String, user: UserHandle) {
-        onPackageAdded(packageName, user)
-    }
-
-    override fun onPackageRemoved(packageName: String, user: UserHandle) {
-        matches.removeAll {
+    internal fun removePackage(packageName: String, user: UserHandle) {
+        if (!pendingPackageMatches.remove(PackageUserKey(packageName, user))) return
+        pendingMatches.removeAll {
             it.componentName.packageName == packageName && it.user == user
         }
-        packageMatches.removeAll {
-            it.mPackageName == packageName && it.mUser == user
-        }
+        changed = true
     }
 
-    override fun onPackagesAvailable(
-        packageNames: Array<out String>,
-        user: UserHandle,
-        replacing: Boolean
-    ) {
-        packageNames.forEach { onPackageAdded(it, user) }
+    internal fun clear() {
+        changed = changed || pendingMatches.isNotEmpty()
+        pendingMatches.clear()
+        pendingPackageMatches.clear()
     }
 
-    override fun onPackagesUnavailable(
-        packageNames: Array<out String>,
-        user: UserHandle,
-        replacing: Boolean
-    ) {
-        packageNames.forEach { onPackageRemoved(it, user) }
-    }
-
-    override fun onPackagesSuspended(packageNames: Array<out String>, user: UserHandle) {
-        packageNames.forEach { onPackageRemoved(it, user) }
-    }
-
-    override fun onPackagesUnsuspended(packageNames: Array<out String>, user: UserHandle) {
-        packageNames.forEach { onPackageAdded(it, user) }
+    /**
+     * Publish the changes made since the last call
+     * @return whether the matches changed
+     */
+    internal fun publish(): Boolean {
+        if (!changed) return false
+        changed = false
+        matches = pendingMatches.toSet()
+        packageMatches = pendingPackageMatches.toSet()
+        return true
     }
 }
-
@@ -0,0 +1,188 @@
+/*
+ * This file is part of Neo Launcher
+ * Copyright (c) 2023   Neo Launcher Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.saggitt.omega.flowerpot
+
+import android.content.Context
+import android.content.Intent
+import android.content.pm.LauncherActivityInfo
+import android.content.pm.LauncherApps
+import android.os.UserHandle
+import com.android.launcher3.pm.UserCache
+import com.android.launcher3.util.Executors.UI_HELPER_EXECUTOR
+import com.android.launcher3.util.ComponentKey
+import com.android.launcher3.util.PackageUserKey
+import com.saggitt.omega.flowerpot.rules.CodeRule
+
+/**
+ * Shared categorizer for all pots. It evaluates apps against the compiled rules of the
+ * [FlowerpotDatabase], so a package change is checked against all pots in a single pass and the
+ * [FlowerpotApps] of each pot are updated incrementally. It runs on the ui helper thread, where
+ * it must be created.
+ *
+ * @param pots the pots in the order of [FlowerpotDatabase.potNames]
+ * @param onChanged called after the apps of any pot changed
+ */
+class FlowerpotCategorizer(
+    private val context: Context,
+    private val database: FlowerpotDatabase,
+    private val pots: List<Flowerpot>,
+    private val onChanged: () -> Unit
+) : LauncherApps.Callback() {
+
+    private val launcherApps = context.getSystemService(LauncherApps::class.java)
+    private val codeRules = database.codeRules.map { (rule, rulePots) ->
+        Pair(CodeRule.get(rule.rule, *rule.args), rulePots)
+    }
+
+    /**
+     * Packages resolved through intent rules, mapped to the bitmask of pots of those rules
+     */
+    private val intentMatches = mutableMapOf<String, Long>()
+
+    init {
+        filterApps()
+        launcherApps.registerCallback(this, UI_HELPER_EXECUTOR.handler)
+    }
+
+    private fun filterApps() {
+        queryIntentMatches(null)
+        pots.forEach { it.apps.clear() }
+        UserCache.INSTANCE.get(context).userProfiles.forEach {
+            addFromPackage(null, it)
+        }
+        // Always notify once, so that listeners know the pots are categorized
+        pots.forEach { it.apps.publish() }
+        onChanged()
+    }
+
+    private fun publish() {
+        var changed = false
+        pots.forEach { changed = it.apps.publish() or changed }
+        if (changed) onChanged()
+    }
+
+    /**
+     * Resolve all intent rules, each distinct category or action is queried only once for all
+     * pots. When [packageName] is set the queries are scoped to that package.
+     */
+    private fun queryIntentMatches(packageName: String?) {
+        if (packageName == null) {
+            intentMatches.clear()
+        } else {
+            intentMatches.remove(packageName)
+        }
+        database.categories.forEach { (category, rulePots) ->
+            queryIntent(Intent(Intent.ACTION_MAIN).addCategory(category), packageName, rulePots)
+        }
+        database.actions.forEach { (action, rulePots) ->
+            queryIntent(Intent(action), packageName, rulePots)
+        }
+    }
+
+    private fun queryIntent(intent: Intent, packageName: String?, rulePots: Long) {
+        if (packageName != null) {
+            // Nothing left to learn if the package already matches every pot of this rule
+            if ((intentMatches[packageName] ?: 0L) and rulePots == rulePots) return
+            intent.setPackage(packageName)
+        }
+        context.packageManager.queryIntentActivities(intent, 0).forEach {
+            val name = it.activityInfo.packageName
+            intentMatches[name] = (intentMatches[name] ?: 0L) or rulePots
+        }
+    }
+
+    private fun addFromPackage(packageName: String?, user: UserHandle) {
+        launcherApps.getActivityList(packageName, user).forEach { info ->
+            var matched = getMatchingPots(info)
+            if (matched != 0L) {
+                val key = ComponentKey(info.componentName, info.user)
+                val packageKey = PackageUserKey(info.componentName.packageName, info.user)
+                while (matched != 0L) {
+                    val index = matched.countTrailingZeroBits()
+                    pots[index].apps.add(key, packageKey)
+                    matched = matched and (matched - 1)
+                }
+            }
+        }
+    }
+
+    private fun getMatchingPots(info: LauncherActivityInfo): Long {
+        val packageName = info.componentName.packageName
+        var matched = database.getPackagePots(packageName) or (intentMatches[packageName] ?: 0L)
+        codeRules.forEach { (rule, rulePots) ->
+            if (matched and rulePots != rulePots && rule.matches(info.applicationInfo)) {
+                matched = matched or rulePots
+            }
+        }
+        return matched
+    }
+
+    private fun addPackage(packageName: String, user: UserHandle) {
+        queryIntentMatches(packageName)
+        addFromPackage(packageName, user)
+    }
+
+    private fun removePackage(packageName: String, user: UserHandle) {
+        pots.forEach { it.apps.removePackage(packageName, user) }
+    }
+
+    override fun onPackageAdded(packageName: String, user: UserHandle) {
+        addPackage(packageName, user)
+        publish()
+    }
+
+    override fun onPackageChanged(packageName: String, user: UserHandle) {
+        removePackage(packageName, user)
+        addPackage(packageName, user)
+        publish()
+    }
+
+    override fun onPackageRemoved(packageName: String, user: UserHandle) {
+        removePackage(packageName, user)
+        publish()
+    }
+
+    override fun onPackagesAvailable(
+        packageNames: Array<out String>,
+        user: UserHandle,
+        replacing: Boolean
+    ) {
+        packageNames.forEach { addPackage(it, user) }
+        publish()
+    }
+
+    override fun onPackagesUnavailable(
+        packageNames: Array<out String>,
+        user: UserHandle,
+        replacing: Boolean
+    ) {
+        packageNames.forEach { removePackage(it, user) }
+        publish()
+    }
+
+    override fun onPackagesSuspended(packageNames: Array<out String>, user: UserHandle) {
+        packageNames.forEach { removePackage(it, user) }
+        publish()
+    }
+
+    override fun onPackagesUnsuspended(packageNames: Array<out String>, user: UserHandle) {
+        packageNames.forEach { addPackage(it, user) }
+        publish()
+    }
+}
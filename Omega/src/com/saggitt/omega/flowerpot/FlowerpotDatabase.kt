@@ -0,0 +1,229 @@
+/*
+ * This file is part of Neo Launcher
+ * Copyright (c) 2023   Neo Launcher Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.saggitt.omega.flowerpot
+
+import android.content.Context
+import android.util.Log
+import com.saggitt.omega.flowerpot.parser.FlowerpotReader
+import com.saggitt.omega.flowerpot.rules.Rule
+import java.io.ByteArrayInputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.IOException
+import java.util.TreeMap
+
+/**
+ * Compiled representation of the rules of all shipped pots. Each package, intent category,
+ * intent action and code rule is stored once together with a bitmask of the pots containing it,
+ * indexed by the position of the pot in [potNames].
+ *
+ * The database is compiled from the text files on the first run after an install or update and
+ * persisted, so later starts load it with a single read instead of parsing every rule again.
+ */
+class FlowerpotDatabase private constructor(
+    val potNames: List<String>,
+    private val packages: Array<String>,
+    private val packagePots: LongArray,
+    val categories: Map<String, Long>,
+    val actions: Map<String, Long>,
+    val codeRules: List<Pair<Rule.CodeRule, Long>>
+) {
+
+    /**
+     * @return the bitmask of all pots listing [packageName], 0 if there are none
+     */
+    fun getPackagePots(packageName: String): Long {
+        val index = packages.binarySearch(packageName)
+        return if (index >= 0) packagePots[index] else 0L
+    }
+
+    private fun writeTo(out: DataOutputStream, stamp: Long) {
+        out.writeInt(FORMAT_VERSION)
+        out.writeLong(stamp)
+        out.writeInt(potNames.size)
+        potNames.forEach { out.writeUTF(it) }
+        out.writeInt(packages.size)
+        packages.forEachIndexed { i, packageName ->
+            out.writeUTF(packageName)
+            out.writeLong(packagePots[i])
+        }
+        writeMap(out, categories)
+        writeMap(out, actions)
+        out.writeInt(codeRules.size)
+        codeRules.forEach { (rule, pots) ->
+            out.writeUTF(rule.rule)
+            out.writeInt(rule.args.size)
+            rule.args.forEach { out.writeUTF(it) }
+            out.writeLong(pots)
+        }
+    }
+
+    companion object {
+        private const val TAG = "FlowerpotDatabase"
+
+        private const val FILE_NAME = "flowerpot.bin"
+
+        /**
+         * Bump when the binary layout changes
+         */
+        private const val FORMAT_VERSION = 1
+
+        /**
+         * Pots are addressed by a bit of a [Long] mask
+         */
+        const val MAX_POTS = Long.SIZE_BITS
+
+        /**
+         * Load the compiled database, compiling and persisting it first if it is missing or was
+         * created for a different set of pots or a different build. Must not be called on the
+         * main thread.
+         */
+        fun load(context: Context, potNames: List<String>): FlowerpotDatabase {
+            val file = File(context.noBackupFilesDir, FILE_NAME)
+            val stamp = getStamp(context)
+            try {
+                if (file.exists()) {
+                    readFrom(file.readBytes(), stamp)
+                        ?.takeIf { it.potNames == potNames }
+                        ?.let { return it }
+                }
+            } catch (e: IOException) {
+                Log.w(TAG, "Failed to read compiled flowerpot rules", e)
+            }
+
+            val database = compile(context, potNames)
+            try {
+                DataOutputStream(file.outputStream().buffered()).use {
+                    database.writeTo(it, stamp)
+                }
+            } catch (e: IOException) {
+                Log.w(TAG, "Failed to write compiled flowerpot rules", e)
+            }
+            return database
+        }
+
+        /**
+         * Parse the text files of all pots into a new database
+         */
+        private fun compile(context: Context, potNames: List<String>): FlowerpotDatabase {
+            if (potNames.size > MAX_POTS) {
+                throw FlowerpotFormatException("At most $MAX_POTS pots are supported")
+            }
+            val packages = TreeMap<String, Long>()
+            val categories = mutableMapOf<String, Long>()
+            val actions = mutableMapOf<String, Long>()
+            val codeRules = mutableMapOf<Pair<String, List<String>>, Long>()
+            potNames.forEachIndexed { i, name ->
+                val bit = 1L shl i
+                val rules = context.assets.open("${Flowerpot.ASSETS_PATH}/$name").use {
+                    FlowerpotReader(it).readRules()
+                }
+                rules.forEach { rule ->
+                    when (rule) {
+                        is Rule.Package -> packages.addBit(rule.filter, bit)
+                        is Rule.IntentCategory -> categories.addBit(rule.category, bit)
+                        is Rule.IntentAction -> actions.addBit(rule.action, bit)
+                        is Rule.CodeRule -> codeRules.addBit(Pair(rule.rule, rule.args.toList()), bit)
+                        else -> Unit
+                    }
+                }
+            }
+            return FlowerpotDatabase(
+                potNames,
+                packages.keys.toTypedArray(),
+                packages.values.toLongArray(),
+                categories,
+                actions,
+                codeRules.map { (rule, pots) ->
+                    Pair(Rule.CodeRule(rule.first, rule.second.toTypedArray()), pots)
+                }
+            )
+        }
+
+        private fun readFrom(bytes: ByteArray, stamp: Long): FlowerpotDatabase? {
+            val input = DataInputStream(ByteArrayInputStream(bytes))
+            if (input.readInt() != FORMAT_VERSION || input.readLong() != stamp) {
+                return null
+            }
+            val potNames = List(readCount(input)) { input.readUTF() }
+            val packageCount = readCount(input)
+            val packages = arrayOfNulls<String>(packageCount)
+            val packagePots = LongArray(packageCount)
+            for (i in 0 until packageCount) {
+                packages[i] = input.readUTF()
+                packagePots[i] = input.readLong()
+            }
+            val categories = readMap(input)
+            val actions = readMap(input)
+            val codeRules = List(readCount(input)) {
+                val rule = input.readUTF()
+                val args = Array(readCount(input)) { input.readUTF() }
+                Pair(Rule.CodeRule(rule, args), input.readLong())
+            }
+            @Suppress("UNCHECKED_CAST")
+            return FlowerpotDatabase(
+                potNames,
+                packages as Array<String>,
+                packagePots,
+                categories,
+                actions,
+                codeRules
+            )
+        }
+
+        /**
+         * Read the size of a list, every entry takes at least two bytes so a size larger than
+         * the bytes left can only come from a corrupt file
+         */
+        private fun readCount(input: DataInputStream): Int {
+            val count = input.readInt()
+            if (count < 0 || count > input.available()) {
+                throw IOException("Invalid count $count")
+            }
+            return count
+        }
+
+        private fun writeMap(out: DataOutputStream, map: Map<String, Long>) {
+            out.writeInt(map.size)
+            map.forEach { (key, pots) ->
+                out.writeUTF(key)
+                out.writeLong(pots)
+            }
+        }
+
+        private fun readMap(input: DataInputStream): Map<String, Long> {
+            val map = HashMap<String, Long>()
+            repeat(readCount(input)) {
+                map[input.readUTF()] = input.readLong()
+            }
+            return map
+        }
+
+        private fun <K> MutableMap<K, Long>.addBit(key: K, bit: Long) {
+            this[key] = (this[key] ?: 0L) or bit
+        }
+
+        /**
+         * The shipped rules only change with the app, so its last update time identifies them
+         */
+        private fun getStamp(context: Context): Long =
+            context.packageManager.getPackageInfo(context.packageName, 0).lastUpdateTime
+    }
+}
@@ -22,6 +22,7 @@ import android.graphics.PointF
 import android.util.Log
 import android.view.GestureDetector
 import android.view.MotionEvent
+import androidx.lifecycle.lifecycleScope
 import com.android.launcher3.util.TouchController
 import com.saggitt.omega.NeoLauncher
 import com.saggitt.omega.gestures.gestures.DoubleTapGesture
@@ -39,6 +40,9 @@ import com.saggitt.omega.gestures.handlers.OpenWidgetsGestureHandler
 import com.saggitt.omega.gestures.handlers.PressBackGestureHandler
 import com.saggitt.omega.gestures.handlers.SleepGestureHandler
 import com.saggitt.omega.gestures.handlers.StartGlobalSearchGestureHandler
+import com.saggitt.omega.preferences.GesturePref
+import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlinx.coroutines.launch
 import org.json.JSONException
 import org.json.JSONObject
 
@@ -99,6 +103,31 @@ class GestureController(val launcher: NeoLauncher) : TouchController {
     fun createGestureHandler(jsonString: String) =
         createGestureHandler(launcher, jsonString, blankGestureHandler)
 
+    fun createHandlerSlot(pref: GesturePref) = HandlerSlot(pref)
+
+    /**
+     * The handler of a gesture slot, created once from its pref and again only when the pref
+     * changes. Triggering the gesture then doesn't read prefs, parse json or use reflection.
+     */
+    inner class HandlerSlot(pref: GesturePref) {
+
+        private var value = pref.getValue()
+
+        var handler = createGestureHandler(value)
+            private set
+
+        init {
+            launcher.lifecycleScope.launch {
+                pref.get().distinctUntilChanged().collect {
+                    if (it != value) {
+                        value = it
+                        handler = createGestureHandler(it)
+                    }
+                }
+            }
+        }
+    }
+
     companion object {
         private const val TAG = "GestureController"
         private val LEGACY_SLEEP_HANDLERS = listOf(
@@ -21,11 +21,11 @@ import com.saggitt.omega.gestures.GestureController
 
 class PressHomeGesture(controller: GestureController) : Gesture(controller) {
 
-    private val handler by controller.launcher.prefs.gestureHomePress
+    private val handler = controller.createHandlerSlot(controller.launcher.prefs.gestureHomePress)
     override val isEnabled = true
 
     override fun onEvent(): Boolean {
-        controller.createGestureHandler(handler).onGestureTrigger(controller)
+        handler.handler.onGestureTrigger(controller)
         return true
     }
 }
\ No newline at end of file
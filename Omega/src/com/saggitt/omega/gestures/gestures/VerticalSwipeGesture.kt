@@ -29,27 +29,30 @@ class VerticalSwipeGesture(controller: GestureController) : Gesture(controller)
 
     override val isEnabled = true
 
-    private val swipeUpHandler by controller.launcher.prefs.gestureSwipeUp
-    private val dockSwipeUpHandler by controller.launcher.prefs.gestureDockSwipeUp
-    private val swipeDownHandler by controller.launcher.prefs.gestureSwipeDown
+    private val swipeUpHandler =
+        controller.createHandlerSlot(controller.launcher.prefs.gestureSwipeUp)
+    private val dockSwipeUpHandler =
+        controller.createHandlerSlot(controller.launcher.prefs.gestureDockSwipeUp)
+    private val swipeDownHandler =
+        controller.createHandlerSlot(controller.launcher.prefs.gestureSwipeDown)
 
-    val customSwipeUp get() = controller.createGestureHandler(swipeUpHandler) !is VerticalSwipeGestureHandler
-    val customDockSwipeUp get() = controller.createGestureHandler(dockSwipeUpHandler) !is VerticalSwipeGestureHandler
-    val customSwipeDown get() = controller.createGestureHandler(swipeDownHandler) !is NotificationsOpenGestureHandler
+    val customSwipeUp get() = swipeUpHandler.handler !is VerticalSwipeGestureHandler
+    val customDockSwipeUp get() = dockSwipeUpHandler.handler !is VerticalSwipeGestureHandler
+    val customSwipeDown get() = swipeDownHandler.handler !is NotificationsOpenGestureHandler
 
-    val swipeUpAppsSearch get() = controller.createGestureHandler(swipeUpHandler) is StartGlobalSearchGestureHandler
-    val dockSwipeUpAppsSearch get() = controller.createGestureHandler(dockSwipeUpHandler) is StartGlobalSearchGestureHandler
+    val swipeUpAppsSearch get() = swipeUpHandler.handler is StartGlobalSearchGestureHandler
+    val dockSwipeUpAppsSearch get() = dockSwipeUpHandler.handler is StartGlobalSearchGestureHandler
 
     fun onSwipeUp() {
-        controller.createGestureHandler(swipeUpHandler).onGestureTrigger(controller)
+        swipeUpHandler.handler.onGestureTrigger(controller)
     }
 
     fun onDockSwipeUp() {
-        controller.createGestureHandler(dockSwipeUpHandler).onGestureTrigger(controller)
+        dockSwipeUpHandler.handler.onGestureTrigger(controller)
     }
 
     fun onSwipeDown() {
-        controller.createGestureHandler(swipeDownHandler).onGestureTrigger(controller)
+        swipeDownHandler.handler.onGestureTrigger(controller)
     }
 
     fun onSwipeUpAllAppsComplete(fromDock: Boolean) {
@@ -60,9 +63,9 @@ class VerticalSwipeGesture(controller: GestureController) : Gesture(controller)
 
     fun getTargetState(fromDock: Boolean): LauncherState {
         return if (fromDock) {
-            (dockSwipeUpHandler as? StateChangeGestureHandler)?.getTargetState() ?: ALL_APPS
+            (dockSwipeUpHandler.handler as? StateChangeGestureHandler)?.getTargetState() ?: ALL_APPS
         } else {
-            (swipeUpHandler as? StateChangeGestureHandler)?.getTargetState() ?: ALL_APPS
+            (swipeUpHandler.handler as? StateChangeGestureHandler)?.getTargetState() ?: ALL_APPS
         }
     }
 }
@@ -22,6 +22,8 @@ import android.content.Context
 import androidx.datastore.preferences.core.stringPreferencesKey
 import com.android.launcher3.Utilities
 import com.android.launcher3.util.ComponentKey
+import com.saggitt.omega.data.AppGroupInfoRepository
+import com.saggitt.omega.data.models.AppGroupInfo
 import com.saggitt.omega.preferences.PreferencesChangeCallback
 import com.saggitt.omega.preferences.StringPref
 import com.saggitt.omega.util.asMap
@@ -37,17 +39,21 @@ abstract class AppGroups<T : AppGroups.Group>(
     val context = prefs.context
     var groups = ArrayList<T>()
 
-    private var groupsDataJson = StringPref(
+    private val repository = AppGroupInfoRepository.INSTANCE.get(context)
+
+    /**
+     * Rows as last written to the database, used to only write the groups that changed
+     */
+    private var savedGroups = emptyList<AppGroupInfo>()
+
+    /**
+     * Legacy storage of all groups as one JSON string, only read to import it into the database
+     */
+    private val groupsDataJson = StringPref(
         titleId = -1,
         key = stringPreferencesKey(category.key),
         dataStore = manager.dataStore,
         defaultValue = "{}",
-        onChange = {
-            prefs.legacyPrefs.savePreference(key = category.key, value = it)
-            prefs.withChangeCallback { callback ->
-                onGroupsChanged(callback)
-            }
-        }
     )
 
     var isEnabled =
@@ -72,18 +78,31 @@ abstract class AppGroups<T : AppGroups.Group>(
 
     abstract fun onGroupsChanged(changeCallback: PreferencesChangeCallback)
 
+    /**
+     * Reload the views showing the groups, if the launcher is running
+     */
+    protected fun notifyGroupsChanged() {
+        CompiledFilter.invalidateAll()
+        prefs.getOnChangeCallback()?.let { onGroupsChanged(it) }
+    }
+
     fun saveToJson() {
-        val arr = JSONArray()
-        groups.forEach { group ->
-            arr.put(JSONObject(group.saveCustomizationsInternal(context)))
-        }
+        val rows = groups.mapIndexed { position, group -> group.toGroupInfo(position) }
+        val changed = rows.filterIndexed { position, row -> savedGroups.getOrNull(position) != row }
+        if (changed.isEmpty() && rows.size == savedGroups.size) return
 
-        val obj = JSONObject()
-        obj.put(KEY_VERSION, currentVersion)
-        obj.put(KEY_GROUPS, arr)
-        groupsDataJson.setValue(obj.toString())
+        CompiledFilter.invalidateAll()
+        repository.update(category.key, rows, changed, ::notifyGroupsChanged)
+        savedGroups = rows
     }
 
+    private fun Group.toGroupInfo(position: Int) = AppGroupInfo(
+        category = category.key,
+        position = position,
+        type = type,
+        customizations = JSONObject(saveCustomizationsInternal(context)).toString()
+    )
+
     fun getGroups(): List<T> {
         if (!isEnabled) {
             return defaultGroups
@@ -146,18 +165,40 @@ abstract class AppGroups<T : AppGroups.Group>(
         return JSONArray()
     }
 
+    /**
+     * Move the groups stored in the legacy JSON preference into the database, this only happens
+     * once as the preference is cleared once the rows are written.
+     */
+    private fun importLegacyGroups(): List<AppGroupInfo> {
+        val arr = loadGroupsArray()
+        val rows = (0 until arr.length()).map { position ->
+            val group = arr.getJSONObject(position)
+            AppGroupInfo(
+                category = category.key,
+                position = position,
+                type = if (group.has(KEY_TYPE)) group.getString(KEY_TYPE) else TYPE_UNDEFINED,
+                customizations = group.toString()
+            )
+        }
+        if (rows.isNotEmpty()) {
+            repository.update(category.key, rows, rows) {
+                groupsDataJson.setValue(groupsDataJson.defaultValue)
+            }
+        }
+        return rows
+    }
+
     protected fun loadGroups() {
         groups.clear()
-        val arr = loadGroupsArray()
+        savedGroups = repository.getGroups(category.key).ifEmpty { importLegacyGroups() }
         val used = mutableSetOf<GroupCreator<T>>()
-        (0 until arr.length())
-            .map { arr.getJSONObject(it) }
-            .mapNotNullTo(groups) { group ->
-                val type = if (group.has(KEY_TYPE)) group.getString(KEY_TYPE) else TYPE_UNDEFINED
-                val creator = getGroupCreator(type)
-                used.add(creator)
-                creator.createGroup(context)!!.apply { loadCustomizations(context, group.asMap()) }
+        savedGroups.mapNotNullTo(groups) { row ->
+            val creator = getGroupCreator(row.type)
+            used.add(creator)
+            creator.createGroup(context)!!.apply {
+                loadCustomizations(context, JSONObject(row.customizations).asMap())
             }
+        }
         getDefaultCreators().asReversed().forEach { creator ->
             if (creator !in used) {
                 creator.createGroup(context)?.let { groups.add(0, it) }
@@ -212,7 +253,7 @@ abstract class AppGroups<T : AppGroups.Group>(
 
     abstract class Customization<T : Any, S : Any>(val key: String, protected val default: T) {
 
-        var value: T? = null
+        open var value: T? = null
 
         fun value() = value ?: default
 
@@ -310,13 +351,38 @@ abstract class AppGroups<T : AppGroups.Group>(
     open class ComponentsCustomization(key: String, default: MutableSet<ComponentKey>) :
         SetCustomization<ComponentKey, String>(key, default) {
 
+        /**
+         * Stored components that have not been parsed yet, they are only unflattened once the
+         * value is accessed so loading many large groups stays cheap.
+         */
+        private var pending: Pair<Context, JSONArray>? = null
+
+        override var value: MutableSet<ComponentKey>? = null
+            get() {
+                pending?.let { (context, obj) ->
+                    pending = null
+                    super.loadFromJson(context, obj)
+                }
+                return field
+            }
+            set(value) {
+                pending = null
+                field = value
+            }
+
         override fun loadFromJson(context: Context, obj: JSONArray?) {
-            super.loadFromJson(context, obj)
-            if (value == null) {
+            if (obj == null) {
                 value = HashSet(default)
+            } else {
+                value = null
+                pending = Pair(context, obj)
             }
         }
 
+        override fun saveToJson(context: Context): JSONArray? {
+            return pending?.second ?: super.saveToJson(context)
+        }
+
         override fun unflatten(context: Context, value: String): ComponentKey {
             return Utilities.makeComponentKey(context, value)
         }
@@ -19,8 +19,11 @@
 package com.saggitt.omega.groups
 
 import android.content.Context
+import com.android.launcher3.model.data.AppInfo
 import com.android.launcher3.model.data.ItemInfo
 import com.android.launcher3.util.ComponentKey
+import java.util.BitSet
+import java.util.concurrent.atomic.AtomicInteger
 import java.util.function.Predicate
 
 abstract class Filter<T>(val context: Context) {
@@ -44,4 +47,75 @@ class CustomFilter(context: Context, override val matches: Set<ComponentKey>) :
                 )
             )
         }
-}
\ No newline at end of file
+}
+
+/**
+ * A predicate compiled into a bitset over an apps array. The predicate is only evaluated once
+ * per app and is evaluated again when a new array is passed in, which happens whenever the app
+ * set changes, or after [invalidateAll] when the groups or their matches changed. Filtering the
+ * same apps again just walks the set bits.
+ */
+class CompiledFilter(private val predicate: Predicate<ItemInfo>) : Predicate<ItemInfo> {
+
+    private var compiledApps: Array<AppInfo>? = null
+    private var compiledVersion = -1
+    private var matches = BitSet()
+
+    /**
+     * Returns the matches of the apps, the returned bitset is never modified afterwards
+     */
+    @Synchronized
+    private fun compile(apps: Array<AppInfo>): BitSet {
+        val currentVersion = version.get()
+        if (apps !== compiledApps || currentVersion != compiledVersion) {
+            matches = BitSet(apps.size).apply {
+                apps.forEachIndexed { index, app ->
+                    if (predicate.test(app)) set(index)
+                }
+            }
+            compiledApps = apps
+            compiledVersion = currentVersion
+        }
+        return matches
+    }
+
+    /**
+     * Returns a new list of the apps matching this filter and [other], if any, in the order of
+     * [apps]
+     */
+    @JvmOverloads
+    fun filter(apps: Array<AppInfo>, other: CompiledFilter? = null): MutableList<AppInfo> {
+        var bits = compile(apps)
+        if (other != null) {
+            bits = (bits.clone() as BitSet).apply { and(other.compile(apps)) }
+        }
+        val result = ArrayList<AppInfo>(bits.cardinality())
+        var index = bits.nextSetBit(0)
+        while (index >= 0) {
+            result.add(apps[index])
+            index = bits.nextSetBit(index + 1)
+        }
+        return result
+    }
+
+    override fun test(info: ItemInfo) = predicate.test(info)
+
+    companion object {
+        private val version = AtomicInteger()
+
+        /**
+         * Recompile all filters on their next use, as the groups or the apps they match changed
+         */
+        @JvmStatic
+        fun invalidateAll() {
+            version.incrementAndGet()
+        }
+
+        @JvmStatic
+        fun of(predicate: Predicate<ItemInfo>?) = when (predicate) {
+            null -> null
+            is CompiledFilter -> predicate
+            else -> CompiledFilter(predicate)
+        }
+    }
+}
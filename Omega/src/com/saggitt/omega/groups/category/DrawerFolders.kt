@@ -20,18 +20,19 @@ package com.saggitt.omega.groups.category
 
 import android.content.Context
 import com.android.launcher3.R
-import com.android.launcher3.allapps.AlphabeticalAppsList
 import com.android.launcher3.model.ModelWriter
 import com.android.launcher3.model.data.AppInfo
 import com.android.launcher3.util.ComponentKey
 import com.saggitt.omega.groups.AppGroups
 import com.saggitt.omega.groups.AppGroupsManager
+import com.saggitt.omega.groups.CompiledFilter
 import com.saggitt.omega.groups.CustomFilter
 import com.saggitt.omega.groups.Filter
 import com.saggitt.omega.groups.GroupCreator
 import com.saggitt.omega.groups.ShortcutInfoComparator
 import com.saggitt.omega.preferences.PreferencesChangeCallback
 import com.saggitt.omega.util.random
+import java.util.function.Predicate
 
 class DrawerFolders(val manager: AppGroupsManager) :
     AppGroups<DrawerFolders.Folder>(manager, AppGroupsManager.Category.FOLDER) {
@@ -64,20 +65,16 @@ class DrawerFolders(val manager: AppGroupsManager) :
         return emptyList()
     }
 
-    fun getFolderInfos(apps: AlphabeticalAppsList<*>, modelWriter: ModelWriter) =
-        getFolderInfos(buildAppsMap(apps)::get, modelWriter)
-
-    fun buildAppsMap(apps: AlphabeticalAppsList<*>): Map<ComponentKey, AppInfo> {
-        // Copy the list before accessing it to prevent concurrent list access
-        return apps.apps.toList().associateBy { it.toComponentKey() }
-    }
-
-    private fun getFolderInfos(
-        getAppInfo: (ComponentKey) -> AppInfo?, modelWriter: ModelWriter,
+    /**
+     * Returns the folders with their contents taken from [apps], limited to the apps matching
+     * [appFilter] when it is set
+     */
+    fun getFolderInfos(
+        apps: Array<AppInfo>, appFilter: CompiledFilter?, modelWriter: ModelWriter,
     ): List<DrawerFolderInfo> = getGroups()
         .asSequence()
         .filter { !it.isEmpty }
-        .map { it.toFolderInfo(getAppInfo, modelWriter) }
+        .map { it.toFolderInfo(apps, appFilter, modelWriter) }
         .toList()
 
     fun getHiddenComponents() = getGroups()
@@ -96,7 +93,9 @@ class DrawerFolders(val manager: AppGroupsManager) :
             addCustomization(id)
         }
 
-        open fun toFolderInfo(getAppInfo: (ComponentKey) -> AppInfo?, modelWriter: ModelWriter) =
+        open fun toFolderInfo(
+            apps: Array<AppInfo>, appFilter: CompiledFilter?, modelWriter: ModelWriter,
+        ) =
             DrawerFolderInfo(
                 this
             ).apply {
@@ -114,6 +113,14 @@ class DrawerFolders(val manager: AppGroupsManager) :
 
         val comparator = ShortcutInfoComparator(context)
 
+        /**
+         * Matches the contents of the folder, compiled once per apps array. The contents are
+         * read on every compilation, saving the groups recompiles it.
+         */
+        private val compiledFilter = CompiledFilter(Predicate { info ->
+            contents.value().contains(ComponentKey(info.targetComponent, info.user))
+        })
+
         init {
             addCustomization(hideFromAllApps)
             addCustomization(contents)
@@ -123,20 +130,21 @@ class DrawerFolders(val manager: AppGroupsManager) :
 
         override val summary: String
             get() {
-                val size = getFilter(context).size
+                val size = contents.value().size
                 return context.resources.getQuantityString(R.plurals.tab_apps_count, size, size)
             }
 
         fun getFilter(context: Context): Filter<*> = CustomFilter(context, contents.value())
 
         override fun toFolderInfo(
-            getAppInfo: (ComponentKey) -> AppInfo?,
+            apps: Array<AppInfo>,
+            appFilter: CompiledFilter?,
             modelWriter: ModelWriter,
         ) = super
-            .toFolderInfo(getAppInfo, modelWriter).apply {
-                this@CustomFolder.contents.value?.mapNotNullTo(contents) { key ->
-                    getAppInfo(key)?.makeWorkspaceItem()
-                }?.sortWith(comparator)
+            .toFolderInfo(apps, appFilter, modelWriter).apply {
+                compiledFilter.filter(apps, appFilter)
+                    .mapTo(contents) { it.makeWorkspaceItem() }
+                    .sortWith(comparator)
             }
     }
 
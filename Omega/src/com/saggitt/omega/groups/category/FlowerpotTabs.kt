@@ -50,6 +50,8 @@ class FlowerpotTabs(manager: AppGroupsManager) :
         })
         setGroups(existingGroups)
         saveToJson()
+        // The apps of the pots are matched in the background, the tabs are empty until then
+        flowerpotManager.addListener(::notifyGroupsChanged)
     }
 
     override fun getGroupCreator(type: String): GroupCreator<Tab> {
@@ -73,7 +75,7 @@ class FlowerpotTabs(manager: AppGroupsManager) :
             customizations.entries.first { it is StringCustomization } as StringCustomization)
 
         private val pot
-            get() = Flowerpot.Manager.getInstance(context).getPot(potName.value ?: DEFAULT, true)!!
+            get() = Flowerpot.Manager.getInstance(context).getPot(potName.value ?: DEFAULT)!!
 
         init {
             addCustomization(potName)
@@ -85,10 +87,7 @@ class FlowerpotTabs(manager: AppGroupsManager) :
                 return context.resources.getQuantityString(R.plurals.tab_apps_count, size, size)
             }
 
-        fun getMatches(): Set<ComponentKey> {
-            pot.ensureLoaded()
-            return pot.apps.matches
-        }
+        fun getMatches(): Set<ComponentKey> = pot.apps.matches
 
         fun getFilter(context: Context): Filter<*> {
             return CustomFilter(context, getMatches())
@@ -14,6 +14,7 @@ abstract class IconPack(
     protected val context: Context,
     val packPackageName: String,
 ) {
+    @Volatile
     private var waiter: Semaphore? = Semaphore(0)
     private lateinit var deferredLoad: Deferred<Unit>
 
@@ -33,6 +34,18 @@ abstract class IconPack(
         return deferredLoad.await()
     }
 
+    /**
+     * Whether the appfilter has been parsed, icons can be resolved without blocking once true
+     */
+    val isLoaded get() = waiter == null
+
+    /**
+     * Run [callback] once the pack has been loaded, right away if it already is
+     */
+    fun doOnLoaded(callback: Runnable) {
+        deferredLoad.invokeOnCompletion { callback.run() }
+    }
+
     fun loadBlocking() {
         waiter?.run {
             acquireUninterruptibly()
@@ -15,6 +15,7 @@ import com.android.launcher3.R
 import com.android.launcher3.Utilities
 import com.android.launcher3.icons.ClockDrawableWrapper
 import com.android.launcher3.icons.ThemedIconDrawable
+import com.android.launcher3.util.Executors.THREAD_POOL_EXECUTOR
 import com.android.launcher3.util.MainThreadInitializedObject
 import com.saggitt.omega.NeoApp
 import com.saggitt.omega.NeoApp.Companion.minSDK
@@ -41,15 +42,25 @@ class IconPackProvider(private val context: Context) {
         if (packageName.isEmpty()) {
             return null
         }
-        return iconPacks.getOrPut(packageName) {
-            try {
-                CustomIconPack(context, packageName)
-            } catch (_: PackageManager.NameNotFoundException) {
-                null
+        return synchronized(iconPacks) {
+            iconPacks.getOrPut(packageName) {
+                try {
+                    CustomIconPack(context, packageName)
+                } catch (_: PackageManager.NameNotFoundException) {
+                    null
+                }
             }
         }
     }
 
+    /**
+     * Create the pack and start parsing its appfilter in the background, so it is ready by the
+     * time the first icons are requested
+     */
+    fun prewarm(packageName: () -> String) {
+        THREAD_POOL_EXECUTOR.execute { getIconPack(packageName()) }
+    }
+
     fun getIconPackList(): List<IconPackInfo> {
         val pm = context.packageManager
 
@@ -102,7 +113,12 @@ class IconPackProvider(private val context: Context) {
         return iconPack.getClock(iconEntry)
     }
 
-    fun getDrawable(iconEntry: IconEntry, iconDpi: Int, user: UserHandle): Drawable? {
+    fun getDrawable(
+        iconEntry: IconEntry,
+        iconDpi: Int,
+        user: UserHandle,
+        themedColors: IntArray? = null,
+    ): Drawable? {
         val iconPack = getIconPackOrSystem(iconEntry.packPackageName) ?: return null
         iconPack.loadBlocking()
         val packageManager = context.packageManager
@@ -119,7 +135,8 @@ class IconPackProvider(private val context: Context) {
                     wrapThemedData(
                         packageManager,
                         iconEntry,
-                        drawable
+                        drawable,
+                        themedColors
                     ) ?: drawable
                 }
             if (clockDrawable != null) {
@@ -131,7 +148,7 @@ class IconPackProvider(private val context: Context) {
         }
 
         if (isThemedIconsEnabled) {
-            return wrapThemedData(packageManager, iconEntry, drawable)
+            return wrapThemedData(packageManager, iconEntry, drawable, themedColors)
         }
         return drawable
     }
@@ -140,8 +157,9 @@ class IconPackProvider(private val context: Context) {
         packageManager: PackageManager,
         iconEntry: IconEntry,
         drawable: Drawable,
+        colors: IntArray?,
     ): Drawable? {
-        val themedColors: IntArray = ThemedIconDrawable.getThemedColors(context)
+        val themedColors: IntArray = colors ?: ThemedIconDrawable.getThemedColors(context)
         val res = packageManager.getResourcesForApplication(iconEntry.packPackageName)
 
         @SuppressLint("DiscouragedApi")
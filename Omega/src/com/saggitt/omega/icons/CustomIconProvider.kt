@@ -19,6 +19,7 @@
 package com.saggitt.omega.icons
 
 import android.content.BroadcastReceiver
+import android.content.ComponentCallbacks
 import android.content.ComponentName
 import android.content.Context
 import android.content.Intent
@@ -26,6 +27,7 @@ import android.content.Intent.*
 import android.content.IntentFilter
 import android.content.pm.ActivityInfo
 import android.content.pm.LauncherActivityInfo
+import android.content.res.Configuration
 import android.content.res.Resources
 import android.graphics.drawable.AdaptiveIconDrawable
 import android.graphics.drawable.ColorDrawable
@@ -36,13 +38,17 @@ import android.os.UserHandle
 import android.os.UserManager
 import android.util.ArrayMap
 import android.util.Log
+import androidx.annotation.GuardedBy
 import androidx.core.content.getSystemService
 import com.android.launcher3.BuildConfig
 import com.android.launcher3.R
 import com.android.launcher3.Utilities
+import com.android.launcher3.icons.ClockTicker
 import com.android.launcher3.icons.IconProvider
 import com.android.launcher3.icons.ThemedIconDrawable
 import com.android.launcher3.util.ComponentKey
+import com.android.launcher3.util.MainThreadInitializedObject
+import com.android.launcher3.util.PackageUserKey
 import com.android.launcher3.util.SafeCloseable
 import com.saggitt.omega.NeoApp
 import com.saggitt.omega.data.IconOverrideRepository
@@ -55,7 +61,16 @@ import com.saggitt.omega.util.MultiSafeCloseable
 import com.saggitt.omega.util.getPackageVersionCode
 import com.saggitt.omega.util.isPackageInstalled
 import com.saulhdev.neolauncher.icons.CustomAdaptiveIconDrawable
+import kotlinx.coroutines.CoroutineName
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.flow.combine
+import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.plus
 import org.xmlpull.v1.XmlPullParser
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicInteger
 import java.util.function.Supplier
 
 class CustomIconProvider @JvmOverloads constructor(
@@ -67,34 +82,90 @@ class CustomIconProvider @JvmOverloads constructor(
     private val iconPackPref = prefs.profileIconPack
     private val iconPackProvider = IconPackProvider.INSTANCE.get(context)
     private val overrideRepo = IconOverrideRepository.INSTANCE.get(context)
-    private val iconPack get() = iconPackProvider.getIconPackOrSystem(iconPackPref.getValue())
+    private val settings = SharedIconSettings.INSTANCE.get(context)
     private var isOlderLawnIconsInstalled =
         context.packageManager.getPackageVersionCode(LAWNICONS_PACKAGE_NAME) in 1..3
+
+    @Volatile
     private var iconPackVersion = 0L
+
+    // The theme map is read by the icon worker, the model and the UI thread
+    @Volatile
+    @GuardedBy("this")
     private var _themeMapName: String = ""
+
+    @Volatile
+    @GuardedBy("this")
     private var _themeMap: Map<ComponentName, ThemedIconDrawable.ThemeData>? = null
-    private val themeMap: Map<ComponentName, ThemedIconDrawable.ThemeData>
+
+    @Volatile
+    private var _resolutionContext: IconResolutionContext? = null
+    private val resolutionContext: IconResolutionContext
         get() {
-            if (_themeMap == null) {
-                _themeMap = createThemedIconMap()
+            val version = settings.version
+            val current = _resolutionContext
+            if (current != null && current.settingsVersion == version) return current
+            return synchronized(this) {
+                _resolutionContext?.takeIf { it.settingsVersion == version }
+                    ?: createResolutionContext(version).also { _resolutionContext = it }
             }
-            if (iconPack != null && _themeMapName != iconPack!!.packPackageName) {
-                _themeMapName = iconPack!!.packPackageName
-                _themeMap = createThemedIconMap()
-            }
-            return _themeMap!!
         }
-    private val supportsIconTheme get() = themeMap != DISABLED_MAP
+
+    /**
+     * Packages that got their default icon because the icon pack was still loading
+     */
+    private val pendingIcons: MutableSet<PackageUserKey> = ConcurrentHashMap.newKeySet()
 
     init {
         setIconThemeSupported(supportsIconTheme)
     }
 
     override fun setIconThemeSupported(isSupported: Boolean) {
-        _themeMap = if (isSupported && isOlderLawnIconsInstalled) null else DISABLED_MAP
+        synchronized(this) {
+            _themeMap = if (isSupported && isOlderLawnIconsInstalled) null else DISABLED_MAP
+            _resolutionContext = null
+        }
+    }
+
+    @GuardedBy("this")
+    private fun createResolutionContext(settingsVersion: Int): IconResolutionContext {
+        val values = settings.values
+        val iconPack = iconPackProvider.getIconPackOrSystem(values.iconPackName)
+        return IconResolutionContext(
+            settingsVersion = settingsVersion,
+            iconPackName = values.iconPackName,
+            iconPack = iconPack,
+            themeMap = getThemeMap(iconPack),
+            themedColors = ThemedIconDrawable.getThemedColors(context),
+            themedIcons = values.themedIcons,
+            transparentBgIcons = values.transparentBgIcons
+        )
+    }
+
+    @GuardedBy("this")
+    private fun getThemeMap(iconPack: IconPack?): Map<ComponentName, ThemedIconDrawable.ThemeData> {
+        if (_themeMap == null) {
+            _themeMap = createThemedIconMap()
+        }
+        if (iconPack != null && _themeMapName != iconPack.packPackageName) {
+            _themeMapName = iconPack.packPackageName
+            _themeMap = createThemedIconMap()
+        }
+        return _themeMap!!
+    }
+
+    /**
+     * Start loading the selected icon pack in parallel with the workspace
+     */
+    fun prewarmIconPack() {
+        iconPackProvider.prewarm { iconPackPref.getValue() }
     }
 
-    private fun resolveIconEntry(componentName: ComponentName, user: UserHandle): IconEntry? {
+    private fun resolveIconEntry(
+        iconPack: IconPack?,
+        componentName: ComponentName,
+        user: UserHandle,
+    ): IconEntry? {
         val componentKey = ComponentKey(componentName, user)
         // first look for user-overridden icon
         val overrideItem = overrideRepo.overridesMap[componentKey]
@@ -102,7 +173,7 @@ class CustomIconProvider @JvmOverloads constructor(
             return overrideItem.toIconEntry()
         }
 
-        val iconPack = this.iconPack ?: return null
+        if (iconPack == null) return null
         // then look for dynamic calendar
         val calendarEntry = iconPack.getCalendar(componentName)
         if (calendarEntry != null) {
@@ -119,8 +190,18 @@ class CustomIconProvider @JvmOverloads constructor(
         iconDpi: Int,
         fallback: Supplier<Drawable>,
     ): Drawable {
+        val resolution = resolutionContext
+        val pack = resolution.iconPack
+        if (pack != null && !pack.isLoaded) {
+            // Don't stall the icon worker behind the appfilter, the icon is refreshed once the
+            // pack is ready
+            pendingIcons.add(PackageUserKey(packageName, user))
+            if (!pack.isLoaded) {
+                return super.getIconWithOverrides(packageName, component, user, iconDpi, fallback)
+            }
+        }
         val componentName = ComponentName(packageName, component)
-        val iconEntry = resolveIconEntry(componentName, user)
+        val iconEntry = resolveIconEntry(pack, componentName, user)
         var resolvedEntry = iconEntry
         var iconType = ICON_TYPE_DEFAULT
         var themeData: ThemedIconDrawable.ThemeData? = null
@@ -133,7 +214,7 @@ class CustomIconProvider @JvmOverloads constructor(
                     iconType = ICON_TYPE_CALENDAR
                 }
 
-                !supportsIconTheme -> {
+                !resolution.supportsIconTheme -> {
                     // theming is disabled, don't populate theme data
                 }
 
@@ -160,22 +241,24 @@ class CustomIconProvider @JvmOverloads constructor(
 
                 else -> {
                     // regular icon
-                    themeData = getThemeData(componentName)
+                    themeData = getThemeData(resolution.themeMap, componentName)
                 }
             }
         }
-        val icon = resolvedEntry?.let { iconPackProvider.getDrawable(it, iconDpi, user) }
+        val icon = resolvedEntry?.let {
+            iconPackProvider.getDrawable(it, iconDpi, user, resolution.themedColors)
+        }
         val td = themeData
         if (icon != null) return if (td != null) td.wrapDrawable(icon, iconType) else icon
         var defaultIcon =
             super.getIconWithOverrides(packageName, component, user, iconDpi, fallback)
-        if (prefs.profileThemedIcons.getValue() && defaultIcon is AdaptiveIconDrawable &&
+        if (resolution.themedIcons && defaultIcon is AdaptiveIconDrawable &&
             NeoApp.minSDK(Build.VERSION_CODES.TIRAMISU) && defaultIcon.monochrome != null
         ) {
             defaultIcon = defaultIcon.monochrome
             return if (td != null) td.wrapDrawable(defaultIcon, iconType) else {
-                val themedColors = ThemedIconDrawable.getThemedColors(context)
-                if (prefs.profileTransparentBgIcons.getValue()) {
+                val themedColors = resolution.themedColors
+                if (resolution.transparentBgIcons) {
                     return defaultIcon.apply { setTint(themedColors[1]) }
                 }
                 CustomAdaptiveIconDrawable(
@@ -191,6 +274,13 @@ class CustomIconProvider @JvmOverloads constructor(
     }
 
     override fun getThemeData(componentName: ComponentName): ThemedIconDrawable.ThemeData? {
+        return getThemeData(resolutionContext.themeMap, componentName)
+    }
+
+    private fun getThemeData(
+        themeMap: Map<ComponentName, ThemedIconDrawable.ThemeData>,
+        componentName: ComponentName,
+    ): ThemedIconDrawable.ThemeData? {
         val td = getDynamicIconsFromMap(context, themeMap, componentName)
         if (td != null) {
             return td
@@ -215,7 +305,8 @@ class CustomIconProvider @JvmOverloads constructor(
     }
 
     override fun getSystemIconState(): String {
-        return super.getSystemIconState() + ",pack:${iconPackPref.getValue()},ver:${iconPackVersion}"
+        val iconPackName = resolutionContext.iconPackName
+        return super.getSystemIconState() + ",pack:${iconPackName},ver:${iconPackVersion}"
     }
 
     override fun registerIconChangeListener(
@@ -266,6 +357,16 @@ class CustomIconProvider @JvmOverloads constructor(
             } else {
                 null
             }
+            iconPack?.doOnLoaded { handler.post(::refreshPendingIcons) }
+        }
+
+        private fun refreshPendingIcons() {
+            val iterator = pendingIcons.iterator()
+            while (iterator.hasNext()) {
+                val key = iterator.next()
+                iterator.remove()
+                callback.onAppIconChanged(key.mPackageName, key.mUser)
+            }
         }
 
         override fun close() {
@@ -274,23 +375,30 @@ class CustomIconProvider @JvmOverloads constructor(
         }
     }
 
+    /**
+     * Reloads the icon pack's clocks when the time zone or time is changed, which is baked into
+     * their drawables. Minute ticks are handled by the clock drawables themselves and day changes
+     * for calendars come from the shared [ClockTicker], so neither reloads packages.
+     */
     private class CalendarAndClockChangeReceiver(
-        private val context: Context, handler: Handler,
+        private val context: Context,
+        private val handler: Handler,
         private val iconPack: IconPack,
         private val callback: IconChangeListener,
     ) : BroadcastReceiver(), SafeCloseable {
 
+        private val dayChangeSubscription = ClockTicker.getInstance()
+            .addDayChangeListener { handler.post(::onDayChanged) }
+
         init {
             val filter = IntentFilter(ACTION_TIMEZONE_CHANGED)
-            filter.addAction(ACTION_TIME_TICK)
             filter.addAction(ACTION_TIME_CHANGED)
-            filter.addAction(ACTION_DATE_CHANGED)
             context.registerReceiver(this, filter, null, handler)
         }
 
         override fun onReceive(context: Context, intent: Intent) {
             when (intent.action) {
-                ACTION_TIMEZONE_CHANGED, ACTION_TIME_CHANGED, ACTION_TIME_TICK -> {
+                ACTION_TIMEZONE_CHANGED, ACTION_TIME_CHANGED -> {
                     context.getSystemService<UserManager>()?.userProfiles?.forEach { user ->
                         iconPack.getClocks().forEach { componentName ->
                             callback.onAppIconChanged(
@@ -299,19 +407,22 @@ class CustomIconProvider @JvmOverloads constructor(
                             )
                         }
                     }
+                    // The ticker reports a day change if the new time is on another date
+                    ClockTicker.getInstance().onTimeChanged()
                 }
+            }
+        }
 
-                ACTION_DATE_CHANGED                                            -> {
-                    context.getSystemService<UserManager>()?.userProfiles?.forEach { user ->
-                        iconPack.getCalendars().forEach { componentName ->
-                            callback.onAppIconChanged(componentName.packageName, user)
-                        }
-                    }
+        private fun onDayChanged() {
+            context.getSystemService<UserManager>()?.userProfiles?.forEach { user ->
+                iconPack.getCalendars().forEach { componentName ->
+                    callback.onAppIconChanged(componentName.packageName, user)
                 }
             }
         }
 
         override fun close() {
+            dayChangeSubscription.close()
             context.unregisterReceiver(this)
         }
     }
@@ -326,7 +437,9 @@ class CustomIconProvider @JvmOverloads constructor(
             filter.addAction(ACTION_PACKAGE_CHANGED)
             filter.addAction(ACTION_PACKAGE_REMOVED)
             filter.addDataScheme("package")
-            filter.addDataSchemeSpecificPart(_themeMapName, 0)
+            filter.addDataSchemeSpecificPart(synchronized(this@CustomIconProvider) {
+                _themeMapName
+            }, 0)
             context.registerReceiver(this, filter, null, handler)
         }
 
@@ -342,6 +455,7 @@ class CustomIconProvider @JvmOverloads constructor(
         }
     }
 
+    @GuardedBy("this")
     private fun createThemedIconMap(): MutableMap<ComponentName, ThemedIconDrawable.ThemeData> {
         val map = ArrayMap<ComponentName, ThemedIconDrawable.ThemeData>()
 
@@ -392,6 +506,81 @@ class CustomIconProvider @JvmOverloads constructor(
         return map
     }
 
+    /**
+     * Snapshot of everything needed to resolve icons. It is built once per icon state change, so
+     * bulk icon loads don't read preferences or rebuild the theme map for every icon.
+     */
+    private class IconResolutionContext(
+        val settingsVersion: Int,
+        val iconPackName: String,
+        val iconPack: IconPack?,
+        val themeMap: Map<ComponentName, ThemedIconDrawable.ThemeData>,
+        val themedColors: IntArray,
+        val themedIcons: Boolean,
+        val transparentBgIcons: Boolean,
+    ) {
+        val supportsIconTheme get() = themeMap != DISABLED_MAP
+    }
+
+    private data class IconSettings(
+        val iconPackName: String,
+        val themedIcons: Boolean,
+        val transparentBgIcons: Boolean,
+    )
+
+    /**
+     * Icon settings shared by all providers of the app. A single collector keeps them current, so
+     * the providers created for preview caches don't each observe the preferences.
+     */
+    private class SharedIconSettings(context: Context) : ComponentCallbacks {
+
+        private val prefs = Utilities.getOmegaPrefs(context)
+        private val scope = CoroutineScope(Dispatchers.IO) + CoroutineName("SharedIconSettings")
+        private val versionCounter = AtomicInteger()
+
+        @Volatile
+        private var current: IconSettings? = null
+
+        /**
+         * Changes whenever the settings or the configuration, which the themed colors depend on,
+         * change
+         */
+        val version get() = versionCounter.get()
+
+        val values: IconSettings
+            get() = current ?: IconSettings(
+                prefs.profileIconPack.getValue(),
+                prefs.profileThemedIcons.getValue(),
+                prefs.profileTransparentBgIcons.getValue()
+            )
+
+        init {
+            context.registerComponentCallbacks(this)
+            scope.launch {
+                combine(
+                    prefs.profileIconPack.get(),
+                    prefs.profileThemedIcons.get(),
+                    prefs.profileTransparentBgIcons.get()
+                ) { pack, themed, transparentBg -> IconSettings(pack, themed, transparentBg) }
+                    .distinctUntilChanged()
+                    .collect {
+                        current = it
+                        versionCounter.incrementAndGet()
+                    }
+            }
+        }
+
+        override fun onConfigurationChanged(newConfig: Configuration) {
+            versionCounter.incrementAndGet()
+        }
+
+        override fun onLowMemory() {}
+
+        companion object {
+            val INSTANCE = MainThreadInitializedObject(::SharedIconSettings)
+        }
+    }
+
     companion object {
         const val TAG = "CustomIconProvider"
 
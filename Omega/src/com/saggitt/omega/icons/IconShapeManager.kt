@@ -19,14 +19,20 @@
 package com.saggitt.omega.icons
 
 import android.content.Context
+import android.graphics.Bitmap
+import android.graphics.Canvas
+import android.graphics.Color
+import android.graphics.Matrix
+import android.graphics.Paint
 import android.graphics.Path
-import android.graphics.Region
+import android.graphics.RectF
 import android.graphics.drawable.AdaptiveIconDrawable
 import android.text.TextUtils
 import com.android.launcher3.Utilities
-import com.android.launcher3.icons.GraphicsUtils
 import com.android.launcher3.icons.IconProvider
 import com.android.launcher3.util.MainThreadInitializedObject
+import java.nio.ByteBuffer
+import kotlin.math.abs
 
 class IconShapeManager(private val context: Context) {
     val systemIconShape = getSystemShape()
@@ -57,7 +63,7 @@ class IconShapeManager(private val context: Context) {
 
     private fun getSystemShape(): IconShape {
         val iconMask = AdaptiveIconDrawable(null, null).iconMask
-        val systemShape = findNearestShape(iconMask)
+        val systemShape = getNearestShape(iconMask)
         return object : IconShape(systemShape) {
 
             override fun getMaskPath(): Path {
@@ -76,15 +82,81 @@ class IconShapeManager(private val context: Context) {
         }
     }
 
-    private fun findNearestShape(comparePath: Path): IconShape {
-        val size = 200
-        val clip = Region(0, 0, size, size)
-        val iconR = Region().apply {
-            setPath(comparePath, clip)
+    /**
+     * Returns the nearest shape for the mask, detection only runs when the mask changed since
+     * the last time the result was stored.
+     */
+    private fun getNearestShape(iconMask: Path): IconShape {
+        val maskHash = getMaskHash(iconMask)
+        val prefs = Utilities.getDevicePrefs(context)
+        val cached = prefs.getString(KEY_NEAREST_SHAPE, null)?.split(':', limit = 2)
+        if (cached != null && cached.size == 2 && cached[0] == maskHash) {
+            CANDIDATE_SHAPES.firstOrNull { it.toString() == cached[1] }?.let { return it }
+        }
+        val shape = findNearestShape(iconMask)
+        prefs.edit().putString(KEY_NEAREST_SHAPE, "$maskHash:$shape").apply()
+        return shape
+    }
+
+    private fun getMaskHash(iconMask: Path): String {
+        val resId = IconProvider.CONFIG_ICON_MASK_RES_ID
+        if (resId != 0) {
+            return "res${context.getString(resId).hashCode()}"
         }
+        return "path${iconMask.approximate(0.5f).contentHashCode()}"
+    }
+
+    /**
+     * Rasterizes the mask and every candidate into a small anti-aliased alpha bitmap and picks
+     * the candidate with the lowest per pixel difference.
+     */
+    private fun findNearestShape(comparePath: Path): IconShape {
+        val size = COMPARE_SIZE
+        val bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ALPHA_8)
+        val canvas = Canvas(bitmap)
+        val paint = Paint(Paint.ANTI_ALIAS_FLAG)
+
+        // Fit the mask to the same box as the candidates, whatever units it is defined in
+        val bounds = RectF()
+        comparePath.computeBounds(bounds, true)
+        val maskPath = Path(comparePath)
+        maskPath.transform(Matrix().apply {
+            setRectToRect(bounds, RectF(0f, 0f, size.toFloat(), size.toFloat()),
+                Matrix.ScaleToFit.FILL)
+        })
+        val maskPixels = ByteArray(size * size)
+        rasterize(bitmap, canvas, paint, maskPath, maskPixels)
+
         val shapePath = Path()
-        val shapeR = Region()
-        return listOf(
+        val shapePixels = ByteArray(size * size)
+        return CANDIDATE_SHAPES.minByOrNull {
+            shapePath.reset()
+            it.addShape(shapePath, 0f, 0f, size / 2f)
+            rasterize(bitmap, canvas, paint, shapePath, shapePixels)
+
+            var diff = 0
+            for (i in maskPixels.indices) {
+                diff += abs((maskPixels[i].toInt() and 0xFF) - (shapePixels[i].toInt() and 0xFF))
+            }
+            diff
+        }!!
+    }
+
+    private fun rasterize(bitmap: Bitmap, canvas: Canvas, paint: Paint, path: Path,
+                          out: ByteArray) {
+        bitmap.eraseColor(Color.TRANSPARENT)
+        canvas.drawPath(path, paint)
+        bitmap.copyPixelsToBuffer(ByteBuffer.wrap(out))
+    }
+
+    companion object {
+
+        private const val KEY_LEGACY_PREFERENCE = "pref_override_icon_shape"
+        private const val KEY_NEAREST_SHAPE = "pref_system_icon_shape_nearest"
+
+        private const val COMPARE_SIZE = 64
+
+        private val CANDIDATE_SHAPES = listOf(
             IconShape.Circle,
             IconShape.Square,
             IconShape.RoundedSquare,
@@ -93,19 +165,6 @@ class IconShapeManager(private val context: Context) {
             IconShape.Teardrop,
             IconShape.Cylinder
         )
-            .minByOrNull {
-                shapePath.reset()
-                it.addShape(shapePath, 0f, 0f, size / 2f)
-                shapeR.setPath(shapePath, clip)
-                shapeR.op(iconR, Region.Op.XOR)
-
-                GraphicsUtils.getArea(shapeR)
-            }!!
-    }
-
-    companion object {
-
-        private const val KEY_LEGACY_PREFERENCE = "pref_override_icon_shape"
 
         @JvmField
         val INSTANCE = MainThreadInitializedObject(::IconShapeManager)
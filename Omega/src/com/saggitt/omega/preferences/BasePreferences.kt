@@ -26,6 +26,7 @@ import androidx.datastore.preferences.core.Preferences
 import androidx.datastore.preferences.core.edit
 import com.android.launcher3.InvariantDeviceProfile
 import com.saggitt.omega.theme.AccentColorOption
+import com.saggitt.omega.util.trackBlocking
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.firstOrNull
@@ -195,9 +196,7 @@ open class ColorIntPref(
     }
 
     fun getColor(): Int {
-        return runBlocking(Dispatchers.IO) {
-            AccentColorOption.fromString(getValue()).accentColor
-        }
+        return AccentColorOption.fromString(getValue()).accentColor
     }
 }
 
@@ -317,9 +316,7 @@ open class StringMultiSelectionPref(
     private val valueList = arrayListOf<String>()
 
     init {
-        runBlocking(Dispatchers.IO) {
-            valueList.addAll(get().firstOrNull() ?: defaultValue)
-        }
+        valueList.addAll(getValue())
     }
 
     override fun get(): Flow<Set<String>> {
@@ -335,8 +332,10 @@ open class StringMultiSelectionPref(
     fun setAll(value: List<String>) {
         valueList.clear()
         valueList.addAll(value)
-        return runBlocking(Dispatchers.IO) {
-            saveChanges()
+        return trackBlocking("StringMultiSelectionPref.setAll") {
+            runBlocking(Dispatchers.IO) {
+                saveChanges()
+            }
         }
     }
 
@@ -461,14 +460,14 @@ abstract class PrefDelegate<T : Any>(
     private val key: Preferences.Key<T>,
     private val defaultValue: T
 ) {
-    fun getValue(): T {
-        return runBlocking(Dispatchers.IO) {
+    fun getValue(): T = trackBlocking("PrefDelegate.getValue") {
+        runBlocking(Dispatchers.IO) {
             get().firstOrNull() ?: defaultValue
         }
     }
 
-    fun setValue(value: T) {
-        return runBlocking(Dispatchers.IO) {
+    fun setValue(value: T) = trackBlocking("PrefDelegate.setValue") {
+        runBlocking(Dispatchers.IO) {
             set(value)
         }
     }
@@ -17,53 +17,101 @@
  */
 package com.saggitt.omega.search
 
-import android.annotation.SuppressLint
-import android.content.Context
+import android.content.ContentResolver
 import android.database.Cursor
-import android.provider.ContactsContract
+import android.net.Uri
+import android.provider.ContactsContract.CommonDataKinds.Phone
+import android.provider.ContactsContract.Contacts
+import android.provider.ContactsContract.DeletedContacts
+import android.util.Log
 import com.saggitt.omega.data.models.PeopleInfo
 
-class PeopleItems(val context: Context) {
+/**
+ * Reads the contacts with a phone number from the contacts provider, through a single query of
+ * the phone numbers joined with their contact.
+ */
+class PeopleItems(private val contentResolver: ContentResolver) {
+
+    /**
+     * Returns all the contacts with a phone number, or null if the contacts can't be read
+     */
+    fun getPeopleInformation(): List<PeopleInfo>? = queryPeople(null, null)
 
-    @SuppressLint("Range")
-    fun getPeopleInformation(): ArrayList<PeopleInfo> {
-        val contacts = ArrayList<PeopleInfo>()
-        val contentResolver = context.contentResolver
-        val cursor: Cursor? = contentResolver?.query(
-            ContactsContract.Contacts.CONTENT_URI,
-            null,
-            null,
-            null,
-            ContactsContract.CommonDataKinds.Phone.DISPLAY_NAME + " ASC"
+    /**
+     * Returns the contacts changed or deleted after [timestamp], or null if the contacts can't
+     * be read. Changed contacts are listed as removed too, so that contacts which lost their
+     * phone numbers are dropped.
+     */
+    fun getChangesSince(timestamp: Long): Changes? {
+        val args = arrayOf(timestamp.toString())
+        val updated = queryPeople("${Phone.CONTACT_LAST_UPDATED_TIMESTAMP} > ?", args)
+            ?: return null
+        val removedIds = HashSet<String>()
+        val readIds = queryIds(
+            Contacts.CONTENT_URI, Contacts._ID,
+            "${Contacts.CONTACT_LAST_UPDATED_TIMESTAMP} > ?", args, removedIds
+        ) && queryIds(
+            DeletedContacts.CONTENT_URI, DeletedContacts.CONTACT_ID,
+            "${DeletedContacts.CONTACT_DELETED_TIMESTAMP} > ?", args, removedIds
         )
+        return if (readIds) Changes(updated, removedIds) else null
+    }
+
+    private fun queryPeople(selection: String?, selectionArgs: Array<String>?): List<PeopleInfo>? {
+        // Primary numbers first, so that they are the ones kept for every contact
+        val cursor = query(
+            Phone.CONTENT_URI, PHONE_PROJECTION, selection, selectionArgs,
+            "${Phone.CONTACT_ID} ASC, ${Phone.IS_SUPER_PRIMARY} DESC, ${Phone.IS_PRIMARY} DESC"
+        ) ?: return null
+        return cursor.use { c ->
+            val people = ArrayList<PeopleInfo>(c.count)
+            var lastId: String? = null
+            while (c.moveToNext()) {
+                val id = c.getString(COLUMN_CONTACT_ID) ?: continue
+                val number = c.getString(COLUMN_NUMBER) ?: continue
+                if (id == lastId) continue
+                lastId = id
+                people.add(PeopleInfo(id, c.getString(COLUMN_DISPLAY_NAME) ?: number, number))
+            }
+            people
+        }
+    }
 
-        if ((cursor?.count ?: 0) > 0) {
-            while (cursor?.moveToNext() == true) {
-                val id = cursor.getString(cursor.getColumnIndex(ContactsContract.Contacts._ID))
-                val name =
-                    cursor.getString(cursor.getColumnIndex(ContactsContract.Contacts.DISPLAY_NAME))
-                val hasPhone =
-                    cursor.getInt(cursor.getColumnIndex(ContactsContract.Contacts.HAS_PHONE_NUMBER))
-                val icon =
-                    cursor.getString(cursor.getColumnIndex(ContactsContract.Contacts.PHOTO_URI))
-                if (hasPhone > 0) {
-                    val pCur = contentResolver.query(
-                        ContactsContract.CommonDataKinds.Phone.CONTENT_URI,
-                        null,
-                        ContactsContract.CommonDataKinds.Phone.CONTACT_ID + " = ?",
-                        arrayOf(id),
-                        null
-                    )
-                    while (pCur?.moveToNext() == true) {
-                        val phoneNo =
-                            pCur.getString(pCur.getColumnIndex(ContactsContract.CommonDataKinds.Phone.NUMBER))
-                        contacts.add(PeopleInfo(id, name, phoneNo!!))
-                    }
-                    pCur?.close()
-                }
+    private fun queryIds(
+        uri: Uri, idColumn: String, selection: String,
+        selectionArgs: Array<String>, out: MutableSet<String>
+    ): Boolean {
+        val cursor = query(uri, arrayOf(idColumn), selection, selectionArgs, null) ?: return false
+        cursor.use { c ->
+            while (c.moveToNext()) {
+                c.getString(0)?.let { out.add(it) }
             }
         }
-        cursor?.close()
-        return contacts
+        return true
+    }
+
+    private fun query(
+        uri: Uri, projection: Array<String>, selection: String?,
+        selectionArgs: Array<String>?, sortOrder: String?
+    ): Cursor? = try {
+        contentResolver.query(uri, projection, selection, selectionArgs, sortOrder)
+    } catch (e: SecurityException) {
+        Log.w(TAG, "Unable to read contacts", e)
+        null
+    }
+
+    data class Changes(val updated: List<PeopleInfo>, val removedIds: Set<String>)
+
+    companion object {
+        private const val TAG = "PeopleItems"
+
+        private val PHONE_PROJECTION = arrayOf(
+            Phone.CONTACT_ID,
+            Phone.DISPLAY_NAME_PRIMARY,
+            Phone.NUMBER,
+        )
+        private const val COLUMN_CONTACT_ID = 0
+        private const val COLUMN_DISPLAY_NAME = 1
+        private const val COLUMN_NUMBER = 2
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,52 @@
+/*
+ * This file is part of Neo Launcher
+ * Copyright (c) 2023   Neo Launcher Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.saggitt.omega.search
+
+import android.content.Context
+import android.content.Intent
+import android.net.Uri
+import android.provider.ContactsContract.Contacts
+import com.android.launcher3.R
+import com.android.launcher3.allapps.BaseAllAppsAdapter.AdapterItem
+import com.android.launcher3.allapps.search.SearchResultAdapterItem
+import com.android.launcher3.search.BackgroundSearchAlgorithm
+import com.saggitt.omega.data.PeopleRepository
+import com.saggitt.omega.preferences.NeoPrefs
+
+/**
+ * Searches the contacts imported by [PeopleRepository], when contacts search is enabled
+ */
+class PeopleSearchAlgorithm(private val context: Context) :
+    BackgroundSearchAlgorithm<AdapterItem>() {
+
+    private val prefs = NeoPrefs.getInstance(context)
+    private val repository by lazy { PeopleRepository.INSTANCE.get(context) }
+
+    override fun search(query: String): ArrayList<AdapterItem> {
+        if (!prefs.searchContacts.getValue()) return ArrayList()
+        return repository.findPeople(query).filterNotNull().mapTo(ArrayList()) {
+            val contactUri = Uri.withAppendedPath(Contacts.CONTENT_URI, it.contactId)
+            SearchResultAdapterItem(
+                it.contactName,
+                R.drawable.ic_search_contact,
+                Intent(Intent.ACTION_VIEW, contactUri)
+            )
+        }
+    }
+}
@@ -20,15 +20,11 @@ package com.saggitt.omega.search
 
 import android.content.Context
 import android.content.Intent
-import android.util.Log
+import android.net.Uri
 import com.android.launcher3.LauncherAppState
 import com.android.launcher3.LauncherState
 import com.android.launcher3.anim.AnimatorListeners
 import com.saggitt.omega.util.openURLInBrowser
-import com.saggitt.omega.util.toArrayList
-import okhttp3.OkHttpClient
-import okhttp3.Request
-import org.json.JSONArray
 
 abstract class WebSearchProvider(context: Context) : SearchProvider(context) {
     /**
@@ -48,26 +44,20 @@ abstract class WebSearchProvider(context: Context) : SearchProvider(context) {
     }
 
     open fun getSuggestions(query: String): List<String> {
-        val client = OkHttpClient()
-        if (suggestionsUrl == null) return emptyList()
-        if (query.isEmpty()) return emptyList()
-        val request = Request.Builder()
-            .url(suggestionsUrl!!.format(query))
-            .build()
-        try {
-            val response = client.newCall(request).execute()
-            val result = JSONArray(response.body.string())
-                .getJSONArray(1)
-                .toArrayList<String>()
-                .take(MAX_SUGGESTIONS)
-            response.close()
-            Log.d("WebSearchProvider", "Websearch Query: $query")
-            return result
-        } catch (ex: Exception) {
-            Log.e("WebSearchProvider", ex.message ?: "", ex)
-        }
+        val url = suggestionsUrl ?: return emptyList()
+        return WebSuggestionClient.INSTANCE.getSuggestions(url, query)
+    }
 
-        return emptyList()
+    /**
+     * Requests suggestions for the query as it is typed, see [WebSuggestionClient.requestSuggestions]
+     */
+    open fun requestSuggestions(query: String, callback: WebSuggestionClient.SuggestionsCallback) {
+        val url = suggestionsUrl
+        if (url == null) {
+            callback.onSuggestions(query, emptyList())
+            return
+        }
+        WebSuggestionClient.INSTANCE.requestSuggestions(url, query, callback)
     }
 
     open fun openResults(query: String) {
@@ -76,6 +66,9 @@ abstract class WebSearchProvider(context: Context) : SearchProvider(context) {
 
     protected open fun getResultUrl(query: String) = packageName.format(query)
 
+    open fun getResultIntent(query: String) =
+        Intent(Intent.ACTION_VIEW, Uri.parse(getResultUrl(query)))
+
     companion object {
         const val MAX_SUGGESTIONS = 5
     }
@@ -0,0 +1,257 @@
+/*
+ * This file is part of Neo Launcher
+ * Copyright (c) 2023   Neo Launcher Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.saggitt.omega.search
+
+import android.os.Handler
+import android.os.Looper
+import android.os.SystemClock
+import android.util.Log
+import android.util.LruCache
+import androidx.annotation.UiThread
+import androidx.annotation.VisibleForTesting
+import androidx.annotation.WorkerThread
+import com.saggitt.omega.util.toArrayList
+import okhttp3.Call
+import okhttp3.Callback
+import okhttp3.OkHttpClient
+import okhttp3.Request
+import okhttp3.Response
+import org.json.JSONArray
+import java.io.IOException
+import java.io.PrintWriter
+import java.util.Locale
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Fetches web search suggestions through a shared [OkHttpClient], so that connections are kept
+ * alive and reused between queries.
+ *
+ * Results are kept in an LRU cache for [cacheTtlMs]. While typing, requests are debounced and a
+ * superseded request is cancelled, and suggestions cached for a prefix of the query are returned
+ * right away, filtered to the query, until the request for the full query completes.
+ */
+class WebSuggestionClient @VisibleForTesting constructor(
+    private val httpClient: OkHttpClient,
+    private val handler: Handler,
+    private val debounceMs: Long = DEBOUNCE_MS,
+    private val cacheTtlMs: Long = CACHE_TTL_MS,
+    private val clock: () -> Long = SystemClock::elapsedRealtime,
+) {
+    constructor() : this(SHARED_HTTP_CLIENT, Handler(Looper.getMainLooper()))
+
+    fun interface SuggestionsCallback {
+        fun onSuggestions(query: String, suggestions: List<String>)
+    }
+
+    private class CacheEntry(val suggestions: List<String>, val timestamp: Long)
+
+    private val cache = LruCache<String, CacheEntry>(CACHE_SIZE)
+
+    // Only accessed on the handler thread
+    private var pendingRequest: Runnable? = null
+    private var inFlightCall: Call? = null
+
+    private val requestCount = AtomicInteger()
+    private val failureCount = AtomicInteger()
+    private val cacheHitCount = AtomicInteger()
+    private val prefixHitCount = AtomicInteger()
+    private val cancelledCount = AtomicInteger()
+    private val totalLatencyMs = AtomicLong()
+
+    /**
+     * Returns the suggestions for the query, from the cache or from the network
+     */
+    @WorkerThread
+    fun getSuggestions(urlTemplate: String, query: String): List<String> {
+        if (query.isBlank()) return emptyList()
+        getCached(urlTemplate, query)?.let {
+            cacheHitCount.incrementAndGet()
+            return it
+        }
+        val call = newCall(urlTemplate, query)
+        val start = clock()
+        return try {
+            call.execute().use { response -> onResponse(urlTemplate, query, response, start) }
+        } catch (e: Exception) {
+            failureCount.incrementAndGet()
+            Log.e(TAG, "Failed to fetch suggestions", e)
+            emptyList()
+        }
+    }
+
+    /**
+     * Requests the suggestions for the query as it is typed, replacing any previous request.
+     * The callback is called on the handler thread, first with suggestions from a cached prefix
+     * of the query if there are any, then with the suggestions fetched for the query.
+     */
+    @UiThread
+    fun requestSuggestions(urlTemplate: String, query: String, callback: SuggestionsCallback) {
+        cancel()
+        if (query.isBlank()) {
+            callback.onSuggestions(query, emptyList())
+            return
+        }
+        getCached(urlTemplate, query)?.let {
+            cacheHitCount.incrementAndGet()
+            callback.onSuggestions(query, it)
+            return
+        }
+        getPrefixSuggestions(urlTemplate, query)?.let {
+            prefixHitCount.incrementAndGet()
+            callback.onSuggestions(query, it)
+        }
+
+        val request = Runnable {
+            pendingRequest = null
+            fetch(urlTemplate, query, callback)
+        }
+        pendingRequest = request
+        handler.postDelayed(request, debounceMs)
+    }
+
+    /**
+     * Cancels the pending or in flight request, if any
+     */
+    @UiThread
+    fun cancel() {
+        pendingRequest?.let {
+            handler.removeCallbacks(it)
+            pendingRequest = null
+        }
+        inFlightCall?.let {
+            it.cancel()
+            cancelledCount.incrementAndGet()
+            inFlightCall = null
+        }
+    }
+
+    private fun fetch(urlTemplate: String, query: String, callback: SuggestionsCallback) {
+        val call = newCall(urlTemplate, query)
+        inFlightCall = call
+        val start = clock()
+        call.enqueue(object : Callback {
+            override fun onFailure(call: Call, e: IOException) {
+                if (!call.isCanceled()) {
+                    failureCount.incrementAndGet()
+                    Log.e(TAG, "Failed to fetch suggestions", e)
+                }
+                handler.post { if (inFlightCall === call) inFlightCall = null }
+            }
+
+            override fun onResponse(call: Call, response: Response) {
+                val suggestions = try {
+                    response.use { onResponse(urlTemplate, query, it, start) }
+                } catch (e: Exception) {
+                    failureCount.incrementAndGet()
+                    Log.e(TAG, "Failed to parse suggestions", e)
+                    emptyList()
+                }
+                handler.post {
+                    if (inFlightCall === call) {
+                        inFlightCall = null
+                        callback.onSuggestions(query, suggestions)
+                    }
+                }
+            }
+        })
+    }
+
+    private fun newCall(urlTemplate: String, query: String): Call {
+        requestCount.incrementAndGet()
+        return httpClient.newCall(Request.Builder().url(urlTemplate.format(query)).build())
+    }
+
+    private fun onResponse(
+        urlTemplate: String, query: String, response: Response, start: Long
+    ): List<String> {
+        val suggestions = JSONArray(response.body.string())
+            .getJSONArray(1)
+            .toArrayList<String>()
+            .take(WebSearchProvider.MAX_SUGGESTIONS)
+        totalLatencyMs.addAndGet(clock() - start)
+        cache.put(cacheKey(urlTemplate, query), CacheEntry(suggestions, clock()))
+        return suggestions
+    }
+
+    private fun getCached(urlTemplate: String, query: String): List<String>? {
+        val key = cacheKey(urlTemplate, query)
+        val entry = cache.get(key) ?: return null
+        if (clock() - entry.timestamp > cacheTtlMs) {
+            cache.remove(key)
+            return null
+        }
+        return entry.suggestions
+    }
+
+    /**
+     * Returns the cached suggestions of the longest prefix of the query which start with the
+     * query, or null if no prefix is cached
+     */
+    private fun getPrefixSuggestions(urlTemplate: String, query: String): List<String>? {
+        val normalized = normalize(query)
+        for (end in normalized.length - 1 downTo 1) {
+            val suggestions = getCached(urlTemplate, normalized.substring(0, end)) ?: continue
+            return suggestions.filter { normalize(it).startsWith(normalized) }
+        }
+        return null
+    }
+
+    private fun cacheKey(urlTemplate: String, query: String) = "$urlTemplate\n${normalize(query)}"
+
+    private fun normalize(query: String) = query.trim().lowercase(Locale.getDefault())
+
+    @VisibleForTesting
+    fun getRequestCount() = requestCount.get()
+
+    @VisibleForTesting
+    fun getCancelledCount() = cancelledCount.get()
+
+    @VisibleForTesting
+    fun getPrefixHitCount() = prefixHitCount.get()
+
+    fun dump(prefix: String, writer: PrintWriter) {
+        val requests = requestCount.get()
+        val completed = requests - failureCount.get() - cancelledCount.get()
+        writer.println(
+            "${prefix}WebSuggestionClient: requests=$requests, failures=${failureCount.get()}, "
+                    + "cancelled=${cancelledCount.get()}, cacheHits=${cacheHitCount.get()}, "
+                    + "prefixHits=${prefixHitCount.get()}, avgLatencyMs="
+                    + (if (completed > 0) totalLatencyMs.get() / completed else 0)
+        )
+    }
+
+    companion object {
+        private const val TAG = "WebSuggestionClient"
+
+        private const val DEBOUNCE_MS = 150L
+        private val CACHE_TTL_MS = TimeUnit.MINUTES.toMillis(5)
+        private const val CACHE_SIZE = 64
+
+        private val SHARED_HTTP_CLIENT by lazy {
+            OkHttpClient.Builder()
+                .callTimeout(5, TimeUnit.SECONDS)
+                .build()
+        }
+
+        @JvmStatic
+        val INSTANCE by lazy { WebSuggestionClient() }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * This file is part of Neo Launcher
+ * Copyright (c) 2023   Neo Launcher Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.saggitt.omega.search
+
+import android.content.Context
+import com.android.launcher3.R
+import com.android.launcher3.allapps.BaseAllAppsAdapter.AdapterItem
+import com.android.launcher3.allapps.search.SearchResultAdapterItem
+import com.android.launcher3.search.SearchAlgorithm
+import com.android.launcher3.search.SearchCallback
+import com.saggitt.omega.preferences.NeoPrefs
+
+/**
+ * Fetches the suggestions of the selected search provider, when it is a [WebSearchProvider] and
+ * global search is enabled. Requests go through [WebSuggestionClient.requestSuggestions], which
+ * debounces them while typing and cancels the superseded ones.
+ */
+class WebSuggestionsSearchAlgorithm(private val context: Context) : SearchAlgorithm<AdapterItem> {
+
+    private val prefs = NeoPrefs.getInstance(context)
+
+    override fun doSearch(query: String, callback: SearchCallback<AdapterItem>) {
+        val provider =
+            SearchProviderController.getInstance(context).searchProvider as? WebSearchProvider
+        if (provider == null || !prefs.searchGlobal.getValue()) {
+            WebSuggestionClient.INSTANCE.cancel()
+            callback.onSearchResult(query, ArrayList())
+            return
+        }
+        provider.requestSuggestions(query) { q, suggestions ->
+            callback.onSearchResult(q, suggestions.mapTo(ArrayList()) {
+                SearchResultAdapterItem(it, R.drawable.ic_search, provider.getResultIntent(it))
+            })
+        }
+    }
+
+    override fun cancel(interruptActiveRequests: Boolean) {
+        if (interruptActiveRequests) {
+            WebSuggestionClient.INSTANCE.cancel()
+        }
+    }
+}
@@ -21,46 +21,30 @@ package com.saggitt.omega.smartspace.provider
 import android.content.Context
 import android.content.pm.PackageManager
 import android.service.notification.StatusBarNotification
-import com.android.launcher3.notification.NotificationListener
+import com.android.launcher3.notification.NotificationUpdateBatch
 import com.android.launcher3.util.MainThreadInitializedObject
 import com.saggitt.omega.util.checkPackagePermission
-import kotlinx.coroutines.Dispatchers
-import kotlinx.coroutines.MainScope
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.MutableStateFlow
-import kotlinx.coroutines.launch
-import kotlinx.coroutines.withContext
 
 class NotificationsManager(@Suppress("UNUSED_PARAMETER") context: Context) {
 
-    private val scope = MainScope()
     private val notificationsMap = mutableMapOf<String, StatusBarNotification>()
     private val _notifications = MutableStateFlow(emptyList<StatusBarNotification>())
     val notifications: Flow<List<StatusBarNotification>> get() = _notifications
 
-    fun onNotificationPosted(sbn: StatusBarNotification) {
-        notificationsMap[sbn.key] = sbn
-        onChange()
-    }
-
-    fun onNotificationRemoved(sbn: StatusBarNotification) {
-        notificationsMap.remove(sbn.key)
-        onChange()
-    }
-
-    fun onNotificationFullRefresh() {
-        scope.launch(Dispatchers.IO) {
-            val tmpMap = runCatching {
-                NotificationListener.getInstanceIfConnected()?.activeNotifications?.associateBy { it.key }
-            }.getOrNull()
-            withContext(Dispatchers.Main) {
-                notificationsMap.clear()
-                if (tmpMap != null) {
-                    notificationsMap.putAll(tmpMap)
-                }
-                onChange()
-            }
+    /**
+     * Applies the notification changes received since the last batch, publishing the new list
+     * once for all of them.
+     */
+    fun onNotificationsChanged(batch: NotificationUpdateBatch) {
+        batch.allActive?.let { active ->
+            notificationsMap.clear()
+            active.associateByTo(notificationsMap) { it.key }
         }
+        batch.allRemovedKeys.forEach { notificationsMap.remove(it) }
+        batch.allPosted.forEach { notificationsMap[it.key] = it }
+        onChange()
     }
 
     private fun onChange() {
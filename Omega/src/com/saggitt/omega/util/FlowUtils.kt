@@ -19,7 +19,7 @@ import kotlinx.coroutines.flow.launchIn
 import kotlinx.coroutines.flow.onEach
 import kotlinx.coroutines.runBlocking
 
-fun <T> Flow<T>.firstBlocking() = runBlocking { first() }
+fun <T> Flow<T>.firstBlocking() = trackBlocking("firstBlocking") { runBlocking { first() } }
 
 @Composable
 fun <T> Flow<T>.collectAsStateBlocking() = collectAsState(initial = firstBlocking())
@@ -55,6 +55,7 @@ import com.android.launcher3.model.data.AppInfo
 import com.android.launcher3.pm.UserCache
 import com.android.launcher3.util.Executors.MAIN_EXECUTOR
 import com.android.launcher3.util.Executors.UI_HELPER_EXECUTOR
+import com.android.launcher3.util.MainThreadBlockingDetector
 import com.android.launcher3.util.Themes
 import com.android.launcher3.views.OptionsPopupView
 import com.saggitt.omega.allapps.AppColorComparator
@@ -162,6 +163,19 @@ inline fun <T> Iterable<T>.safeForEach(action: (T) -> Unit) {
     for (element in tmp) action(element)
 }
 
+/**
+ * Runs a call which can block, attributing its time on the main thread to the entry point and
+ * its caller in debug builds, see [MainThreadBlockingDetector].
+ */
+inline fun <T> trackBlocking(entryPoint: String, call: () -> T): T {
+    val token = MainThreadBlockingDetector.begin(entryPoint)
+    try {
+        return call()
+    } finally {
+        MainThreadBlockingDetector.end(token)
+    }
+}
+
 fun formatTime(calendar: Calendar, context: Context? = null): String {
     return when (context) {
         null -> String.format(
@@ -290,7 +304,7 @@ fun openURLInBrowser(context: Context, url: String?, sourceBounds: Rect?, option
 fun UserCache.getUserForProfileId(profileId: Int) =
     userProfiles.find { it.toString() == "UserHandle{$profileId}" }
 
-fun MutableList<AppInfo>.sortApps(context: Context, sortType: Int) {
+fun MutableList<AppInfo>.sortApps(context: Context, sortType: Int) = trackBlocking("sortApps") {
     val pm: PackageManager = context.packageManager
     when (sortType) {
         Config.SORT_ZA -> sortWith(compareBy(Collator.getInstance().reversed()) {
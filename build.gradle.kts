@@ -182,6 +182,7 @@ android {
             res.srcDirs(listOf("tests/res"))
             java.srcDirs(listOf("tests/src", "tests/tapl"))
             manifest.srcFile("tests/AndroidManifest-common.xml")
+            assets.srcDirs(listOf("$projectDir/schemas"))
         }
 
         named("androidTestDebug") {
@@ -302,10 +303,12 @@ dependencies {
     androidTestImplementation("androidx.test.ext:junit:1.1.5")
     androidTestImplementation("androidx.test:runner:1.5.2")
     androidTestImplementation("androidx.test:rules:1.5.0")
+    androidTestImplementation("androidx.room:room-testing:$vRoom")
     androidTestImplementation("androidx.test.uiautomator:uiautomator:2.2.0")
 
     androidTestImplementation("com.google.truth:truth:0.40")
     androidTestImplementation("org.mockito:mockito-core:5.0.0")
+    androidTestImplementation("com.squareup.okhttp3:mockwebserver:$vOkhttp")
     androidTestImplementation("com.google.dexmaker:dexmaker:1.2")
     androidTestImplementation("com.google.dexmaker:dexmaker-mockito:1.2")
     androidTestImplementation("androidx.annotation:annotation:1.6.0")
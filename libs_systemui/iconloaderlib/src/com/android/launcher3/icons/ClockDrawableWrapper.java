@@ -36,8 +36,8 @@ import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.LayerDrawable;
 import android.os.Bundle;
+import android.os.Looper;
 import android.os.Process;
-import android.os.SystemClock;
 import android.os.UserHandle;
 import android.util.Log;
 import android.util.TypedValue;
@@ -345,7 +345,13 @@ public class ClockDrawableWrapper extends CustomAdaptiveIconDrawable implements
 
         boolean applyTime(Calendar time, LayerDrawable foregroundDrawable) {
             time.setTimeInMillis(System.currentTimeMillis());
+            return applyTimeFields(time, foregroundDrawable);
+        }
 
+        /**
+         * Same as {@link #applyTime} but uses {@param time} as is, without reading the clock
+         */
+        boolean applyTimeFields(Calendar time, LayerDrawable foregroundDrawable) {
             // We need to rotate by the difference from the default time if one is specified.
             int convertedHour = (time.get(Calendar.HOUR) + (12 - defaultHour)) % 12;
             int convertedMinute = (time.get(Calendar.MINUTE) + (60 - defaultMinute)) % 60;
@@ -446,7 +452,8 @@ public class ClockDrawableWrapper extends CustomAdaptiveIconDrawable implements
         }
     }
 
-    private static class ClockIconDrawable extends FastBitmapDrawable implements Runnable {
+    private static class ClockIconDrawable extends FastBitmapDrawable
+            implements ClockTicker.Tickable {
 
         private final Calendar mTime = Calendar.getInstance();
 
@@ -488,8 +495,6 @@ public class ClockDrawableWrapper extends CustomAdaptiveIconDrawable implements
             mForeground.setBounds(bounds);
             mForeground.draw(canvas);
             canvas.restoreToCount(saveCount);
-
-            reschedule();
         }
 
         @Override
@@ -504,36 +509,26 @@ public class ClockDrawableWrapper extends CustomAdaptiveIconDrawable implements
         }
 
         @Override
-        public void run() {
-            if (mInfo.animInfo.applyTime(mTime, mForeground)) {
+        public void onTick(Calendar time) {
+            if (mInfo.animInfo.applyTimeFields(time, mForeground)) {
                 invalidateSelf();
-            } else {
-                reschedule();
             }
         }
 
         @Override
         public boolean setVisible(boolean visible, boolean restart) {
             boolean result = super.setVisible(visible, restart);
-            if (visible) {
-                reschedule();
-            } else {
-                unscheduleSelf(this);
+            // Ticks are delivered on the main thread, off-screen renderers draw a single frame
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                if (visible) {
+                    ClockTicker.getInstance().register(this);
+                } else {
+                    ClockTicker.getInstance().unregister(this);
+                }
             }
             return result;
         }
 
-        private void reschedule() {
-            if (!isVisible()) {
-                return;
-            }
-
-            unscheduleSelf(this);
-            final long upTime = SystemClock.uptimeMillis();
-            final long step = TICK_MS; /* tick every 200 ms */
-            scheduleSelf(this, upTime - ((upTime % step)) + step);
-        }
-
         @Override
         public ConstantState getConstantState() {
             return new ClockConstantState(mInfo, isDisabled());
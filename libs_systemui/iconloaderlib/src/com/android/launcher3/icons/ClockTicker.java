@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.icons;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+
+import com.android.launcher3.util.SafeCloseable;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Single time source for dynamic clock and calendar icons. It wakes up on wall clock
+ * boundaries ({@link ClockDrawableWrapper#TICK_MS}) while any clock icon is visible, updates all
+ * of them from one shared {@link Calendar} in the same message so they are invalidated for the
+ * same frame, and notifies day change listeners when the date rolls over. Nothing is scheduled
+ * while the host is not visible.
+ */
+public class ClockTicker {
+
+    private static ClockTicker sInstance;
+
+    /**
+     * Returns the shared ticker, which runs on the main thread
+     */
+    public static synchronized ClockTicker getInstance() {
+        if (sInstance == null) {
+            sInstance = new ClockTicker();
+        }
+        return sInstance;
+    }
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mTickRunnable = this::tick;
+    private final Calendar mTime = Calendar.getInstance();
+
+    // Drawables normally unregister when hidden, weak keys protect against ones that never are
+    private final Set<Tickable> mClocks = Collections.newSetFromMap(new WeakHashMap<>());
+    private final List<Runnable> mDayChangeListeners = new CopyOnWriteArrayList<>();
+
+    private boolean mHostVisible = true;
+    private int mDay;
+
+    private ClockTicker() {
+        mDay = dayOf(mTime);
+    }
+
+    /**
+     * Starts updating {@param clock} on every tick until it is unregistered.
+     */
+    @MainThread
+    void register(Tickable clock) {
+        boolean wasIdle = mClocks.isEmpty();
+        mClocks.add(clock);
+        if (wasIdle) {
+            scheduleNextTick();
+        }
+    }
+
+    @MainThread
+    void unregister(Tickable clock) {
+        mClocks.remove(clock);
+        if (mClocks.isEmpty()) {
+            scheduleNextTick();
+        }
+    }
+
+    /**
+     * Adds a listener called on the main thread whenever the local date changes. It can be
+     * called from any thread, closing the returned object removes the listener.
+     */
+    public SafeCloseable addDayChangeListener(@NonNull Runnable listener) {
+        mDayChangeListeners.add(listener);
+        mHandler.post(this::scheduleNextTick);
+        return () -> {
+            mDayChangeListeners.remove(listener);
+            mHandler.post(this::scheduleNextTick);
+        };
+    }
+
+    /**
+     * Pauses or resumes ticking with the visibility of the host. Resuming ticks immediately so
+     * that clocks and calendars catch up with the time spent in background.
+     */
+    @MainThread
+    public void setHostVisible(boolean visible) {
+        if (mHostVisible == visible) {
+            return;
+        }
+        mHostVisible = visible;
+        if (visible) {
+            tick();
+        } else {
+            mHandler.removeCallbacks(mTickRunnable);
+        }
+    }
+
+    /**
+     * Called when the system time or time zone was changed. It can be called from any thread.
+     */
+    public void onTimeChanged() {
+        mHandler.post(() -> {
+            mTime.setTimeZone(TimeZone.getDefault());
+            if (mHostVisible) {
+                tick();
+            }
+        });
+    }
+
+    private void tick() {
+        mHandler.removeCallbacks(mTickRunnable);
+        mTime.setTimeInMillis(System.currentTimeMillis());
+
+        int day = dayOf(mTime);
+        if (day != mDay) {
+            mDay = day;
+            for (Runnable listener : mDayChangeListeners) {
+                listener.run();
+            }
+        }
+
+        if (!mClocks.isEmpty()) {
+            // Copy, as a clock may unregister itself while being updated
+            for (Tickable clock : new ArrayList<>(mClocks)) {
+                clock.onTick(mTime);
+            }
+        }
+        scheduleNextTick();
+    }
+
+    private void scheduleNextTick() {
+        mHandler.removeCallbacks(mTickRunnable);
+        if (!mHostVisible) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long delay;
+        if (!mClocks.isEmpty()) {
+            delay = ClockDrawableWrapper.TICK_MS - (now % ClockDrawableWrapper.TICK_MS);
+        } else if (!mDayChangeListeners.isEmpty()) {
+            Calendar midnight = (Calendar) mTime.clone();
+            midnight.setTimeInMillis(now);
+            midnight.set(Calendar.HOUR_OF_DAY, 0);
+            midnight.set(Calendar.MINUTE, 0);
+            midnight.set(Calendar.SECOND, 0);
+            midnight.set(Calendar.MILLISECOND, 0);
+            midnight.add(Calendar.DAY_OF_YEAR, 1);
+            delay = midnight.getTimeInMillis() - now;
+        } else {
+            return;
+        }
+        mHandler.postDelayed(mTickRunnable, Math.max(delay, 1));
+    }
+
+    private static int dayOf(Calendar time) {
+        return time.get(Calendar.YEAR) * 1000 + time.get(Calendar.DAY_OF_YEAR);
+    }
+
+    /**
+     * Receiver of ticks, called on the main thread with the shared, already updated time.
+     */
+    interface Tickable {
+
+        void onTick(Calendar time);
+    }
+}
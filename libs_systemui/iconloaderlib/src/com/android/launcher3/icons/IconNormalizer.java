@@ -37,6 +37,11 @@ import androidx.annotation.Nullable;
 
 import java.nio.ByteBuffer;
 
+/**
+ * Computes the visual scale of icons using a scratch bitmap and pixel buffer owned by the
+ * instance. It is not thread safe: each {@link BaseIconFactory} owns its own normalizer, so
+ * parallel callers should use separate factories instead of sharing one.
+ */
 public class IconNormalizer {
 
     private static final String TAG = "IconNormalizer";
@@ -234,7 +239,7 @@ public class IconNormalizer {
      *
      * @param outBounds optional rect to receive the fraction distance from each edge.
      */
-    public synchronized float getScale(@NonNull Drawable d, @Nullable RectF outBounds,
+    public float getScale(@NonNull Drawable d, @Nullable RectF outBounds,
                                        @Nullable Path path, @Nullable boolean[] outMaskShape) {
         if (d instanceof AdaptiveIconDrawable) {
             if (mAdaptiveIconScale == SCALE_NOT_INITIALIZED) {
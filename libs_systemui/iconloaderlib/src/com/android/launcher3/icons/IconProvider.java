@@ -16,7 +16,6 @@
 
 package com.android.launcher3.icons;
 
-import static android.content.Intent.ACTION_DATE_CHANGED;
 import static android.content.Intent.ACTION_TIMEZONE_CHANGED;
 import static android.content.Intent.ACTION_TIME_CHANGED;
 import static android.content.res.Resources.ID_NULL;
@@ -387,6 +386,8 @@ public class IconProvider {
 
         private final IconChangeListener mCallback;
         private String mIconState;
+        @Nullable
+        private final SafeCloseable mDayChangeSubscription;
 
         IconChangeReceiver(IconChangeListener callback, Handler handler) {
             mCallback = callback;
@@ -402,10 +403,22 @@ public class IconProvider {
                 final IntentFilter filter = new IntentFilter(ACTION_TIMEZONE_CHANGED);
                 if (mCalendar != null || !dynamicCalendars.isEmpty()) {
                     filter.addAction(Intent.ACTION_TIME_CHANGED);
-                    filter.addAction(ACTION_DATE_CHANGED);
                 }
                 mContext.registerReceiver(this, filter, null, handler);
             }
+            // Date changes come from the shared ticker which also drives the clock icons
+            mDayChangeSubscription = mCalendar != null || !dynamicCalendars.isEmpty()
+                    ? ClockTicker.getInstance().addDayChangeListener(
+                            () -> handler.post(this::onDayChanged))
+                    : null;
+        }
+
+        private void onDayChanged() {
+            for (UserHandle user : mContext.getSystemService(UserManager.class).getUserProfiles()) {
+                if (mCalendar != null)
+                    mCallback.onAppIconChanged(mCalendar.getPackageName(), user);
+                dynamicCalendars.forEach(dCal -> mCallback.onAppIconChanged(dCal.getPackageName(), user));
+            }
         }
 
         @Override
@@ -416,13 +429,9 @@ public class IconProvider {
                         mCallback.onAppIconChanged(mClock.getPackageName(), Process.myUserHandle());
                     }
                     // follow through
-                case ACTION_DATE_CHANGED:
                 case ACTION_TIME_CHANGED:
-                    for (UserHandle user : context.getSystemService(UserManager.class).getUserProfiles()) {
-                        if (mCalendar != null)
-                            mCallback.onAppIconChanged(mCalendar.getPackageName(), user);
-                        dynamicCalendars.forEach(dCal -> mCallback.onAppIconChanged(dCal.getPackageName(), user));
-                    }
+                    // The ticker reports a day change if the new time is on another date
+                    ClockTicker.getInstance().onTimeChanged();
                     break;
                 case ACTION_OVERLAY_CHANGED: {
                     String newState = getSystemIconState();
@@ -437,6 +446,9 @@ public class IconProvider {
 
         @Override
         public void close() {
+            if (mDayChangeSubscription != null) {
+                mDayChangeSubscription.close();
+            }
             mContext.unregisterReceiver(this);
         }
     }
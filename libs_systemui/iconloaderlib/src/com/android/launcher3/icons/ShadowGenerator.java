@@ -31,6 +31,9 @@ import android.graphics.RectF;
 
 /**
  * Utility class to add shadows to bitmaps.
+ * <p>
+ * Instances reuse their paints and offsets between calls and are not thread safe. Each
+ * {@link BaseIconFactory} owns its own generator, so confine it to the factory's thread.
  */
 public class ShadowGenerator {
 
@@ -50,6 +53,7 @@ public class ShadowGenerator {
     private final Paint mBlurPaint;
     private final Paint mDrawPaint;
     private final BlurMaskFilter mDefaultBlurMaskFilter;
+    private final int[] mOffset = new int[2];
 
     public ShadowGenerator(int iconSize) {
         mIconSize = iconSize;
@@ -58,9 +62,9 @@ public class ShadowGenerator {
         mDefaultBlurMaskFilter = new BlurMaskFilter(mIconSize * BLUR_FACTOR, Blur.NORMAL);
     }
 
-    public synchronized void recreateIcon(Bitmap icon, Canvas out) {
+    public void recreateIcon(Bitmap icon, Canvas out) {
         if (ENABLE_SHADOWS) {
-            int[] offset = new int[2];
+            int[] offset = mOffset;
             mBlurPaint.setMaskFilter(mDefaultBlurMaskFilter);
             Bitmap shadow = icon.extractAlpha(mBlurPaint, offset);
 
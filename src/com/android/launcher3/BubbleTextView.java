@@ -53,6 +53,7 @@ import androidx.annotation.UiThread;
 
 import com.android.launcher3.accessibility.BaseAccessibilityDelegate;
 import com.android.launcher3.dot.DotInfo;
+import com.android.launcher3.dot.DotViewIndex;
 import com.android.launcher3.dragndrop.DragOptions.PreDragCondition;
 import com.android.launcher3.dragndrop.DraggableView;
 import com.android.launcher3.folder.FolderIcon;
@@ -293,6 +294,7 @@ public class BubbleTextView extends TextView implements ItemInfoUpdateReceiver,
         setBackground(null);
 
         setTag(null);
+        updateDotViewIndex();
         if (mIconLoadRequest != null) {
             mIconLoadRequest.cancel();
             mIconLoadRequest = null;
@@ -397,6 +399,29 @@ public class BubbleTextView extends TextView implements ItemInfoUpdateReceiver,
 
     protected void setItemInfo(ItemInfoWithIcon itemInfo) {
         setTag(itemInfo);
+        updateDotViewIndex();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        updateDotViewIndex();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        DotViewIndex index = mActivity.getDotViewIndex();
+        if (index != null) {
+            index.remove(this);
+        }
+    }
+
+    private void updateDotViewIndex() {
+        DotViewIndex index = mActivity.getDotViewIndex();
+        if (index != null && isAttachedToWindow()) {
+            index.add(this, getTag());
+        }
     }
 
     @UiThread
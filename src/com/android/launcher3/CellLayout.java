@@ -213,6 +213,8 @@ public class CellLayout extends ViewGroup {
     private final Rect mOccupiedRect = new Rect();
     public final int[] mDirectionVector = new int[2];
 
+    private ReorderAlgorithm mReorderAlgorithm;
+
     ItemConfiguration mPreviousSolution = null;
     private static final int INVALID_DIRECTION = -100;
 
@@ -498,7 +500,7 @@ public class CellLayout extends ViewGroup {
             debugPaint.setStrokeWidth(Utilities.dpToPx(1));
             for (int x = 0; x < mCountX; x++) {
                 for (int y = 0; y < mCountY; y++) {
-                    if (!mOccupied.cells[x][y]) {
+                    if (!mOccupied.isOccupied(x, y)) {
                         continue;
                     }
                     targetCell[0] = x;
@@ -1317,12 +1319,8 @@ public class CellLayout extends ViewGroup {
                 int xSize = -1;
                 if (!ignoreOccupied) {
                     // First, let's see if this thing fits anywhere
-                    for (int i = 0; i < minSpanX; i++) {
-                        for (int j = 0; j < minSpanY; j++) {
-                            if (mOccupied.cells[x + i][y + j]) {
-                                continue inner;
-                            }
-                        }
+                    if (!mOccupied.isRegionVacant(x, y, minSpanX, minSpanY)) {
+                        continue inner;
                     }
                     xSize = minSpanX;
                     ySize = minSpanY;
@@ -1336,7 +1334,7 @@ public class CellLayout extends ViewGroup {
                     while (!(hitMaxX && hitMaxY)) {
                         if (incX && !hitMaxX) {
                             for (int j = 0; j < ySize; j++) {
-                                if (x + xSize > countX -1 || mOccupied.cells[x + xSize][y + j]) {
+                                if (x + xSize > countX -1 || mOccupied.isOccupied(x + xSize, y + j)) {
                                     // We can't move out horizontally
                                     hitMaxX = true;
                                 }
@@ -1346,7 +1344,7 @@ public class CellLayout extends ViewGroup {
                             }
                         } else if (!hitMaxY) {
                             for (int i = 0; i < xSize; i++) {
-                                if (y + ySize > countY - 1 || mOccupied.cells[x + i][y + ySize]) {
+                                if (y + ySize > countY - 1 || mOccupied.isOccupied(x + i, y + ySize)) {
                                     // We can't move out vertically
                                     hitMaxY = true;
                                 }
@@ -1774,8 +1772,8 @@ public class CellLayout extends ViewGroup {
      * @param spanX Horizontal span of the object.
      * @param spanY Vertical span of the object.
      * @param direction The favored direction in which the views should move from x, y
-     * @param occupied The array which represents which cells in the CellLayout are occupied
-     * @param blockOccupied The array which represents which cells in the specified block (cellX,
+     * @param occupied The occupancy which represents which cells in the CellLayout are occupied
+     * @param blockOccupied The occupancy which represents which cells in the specified block (cellX,
      *        cellY, spanX, spanY) are occupied. This is used when try to move a group of views.
      * @param result Array in which to place the result, or null (in which case a new array will
      *        be allocated)
@@ -1783,7 +1781,8 @@ public class CellLayout extends ViewGroup {
      *         nearest the requested location.
      */
     private int[] findNearestArea(int cellX, int cellY, int spanX, int spanY, int[] direction,
-                                  boolean[][] occupied, boolean blockOccupied[][], int[] result) {
+                                  GridOccupancy occupied, GridOccupancy blockOccupied,
+                                  int[] result) {
         // Keep track of best-scoring drop area
         final int[] bestXY = result != null ? result : new int[2];
         float bestDistance = Float.MAX_VALUE;
@@ -1793,15 +1792,10 @@ public class CellLayout extends ViewGroup {
         final int countY = mCountY;
 
         for (int y = 0; y < countY - (spanY - 1); y++) {
-            inner:
             for (int x = 0; x < countX - (spanX - 1); x++) {
                 // First, let's see if this thing fits anywhere
-                for (int i = 0; i < spanX; i++) {
-                    for (int j = 0; j < spanY; j++) {
-                        if (occupied[x + i][y + j] && (blockOccupied == null || blockOccupied[i][j])) {
-                            continue inner;
-                        }
-                    }
+                if (!occupied.isRegionVacant(x, y, spanX, spanY, blockOccupied)) {
+                    continue;
                 }
 
                 float distance = (float) Math.hypot(x - cellX, y - cellY);
@@ -1838,7 +1832,7 @@ public class CellLayout extends ViewGroup {
         mTmpOccupied.markCells(rectOccupiedByPotentialDrop, true);
 
         findNearestArea(c.cellX, c.cellY, c.spanX, c.spanY, direction,
-                mTmpOccupied.cells, null, mTempLocation);
+                mTmpOccupied, null, mTempLocation);
 
         if (mTempLocation[0] >= 0 && mTempLocation[1] >= 0) {
             c.cellX = mTempLocation[0];
@@ -2321,7 +2315,7 @@ public class CellLayout extends ViewGroup {
 
         findNearestArea(boundingRect.left, boundingRect.top, boundingRect.width(),
                 boundingRect.height(), direction,
-                mTmpOccupied.cells, blockOccupied.cells, mTempLocation);
+                mTmpOccupied, blockOccupied, mTempLocation);
 
         // If we successfully found a location by pushing the block of views, we commit it
         if (mTempLocation[0] >= 0 && mTempLocation[1] >= 0) {
@@ -2403,10 +2397,21 @@ public class CellLayout extends ViewGroup {
         return new ReorderAlgorithm(this);
     }
 
+    /**
+     * Returns the reorder algorithm of this layout, created once so that it can remember
+     * previous attempts while the user drags over the same cells.
+     */
+    public ReorderAlgorithm getReorderAlgorithm() {
+        if (mReorderAlgorithm == null) {
+            mReorderAlgorithm = createReorderAlgorithm();
+        }
+        return mReorderAlgorithm;
+    }
+
     protected ItemConfiguration findReorderSolution(int pixelX, int pixelY, int minSpanX,
                                                     int minSpanY, int spanX, int spanY, int[] direction, View dragView, boolean decX,
                                                     ItemConfiguration solution) {
-        return createReorderAlgorithm().findReorderSolution(pixelX, pixelY, minSpanX, minSpanY,
+        return getReorderAlgorithm().findReorderSolution(pixelX, pixelY, minSpanX, minSpanY,
                 spanX, spanY, direction, dragView, decX, solution);
     }
 
@@ -2442,7 +2447,7 @@ public class CellLayout extends ViewGroup {
      */
     public ItemConfiguration calculateReorder(int pixelX, int pixelY, int minSpanX, int minSpanY,
                                               int spanX, int spanY, View dragView) {
-        return createReorderAlgorithm().calculateReorder(pixelX, pixelY, minSpanX, minSpanY,
+        return getReorderAlgorithm().calculateReorder(pixelX, pixelY, minSpanX, minSpanY,
                 spanX, spanY, dragView);
     }
 
@@ -2746,7 +2751,7 @@ public class CellLayout extends ViewGroup {
 
     public boolean isOccupied(int x, int y) {
         if (x < mCountX && y < mCountY) {
-            return mOccupied.cells[x][y];
+            return mOccupied.isOccupied(x, y);
         } else {
             throw new RuntimeException("Position exceeds the bound of this CellLayout");
         }
@@ -133,6 +133,7 @@ import com.android.launcher3.celllayout.CellPosMapper.TwoPanelCellPosMapper;
 import com.android.launcher3.compat.AccessibilityManagerCompat;
 import com.android.launcher3.config.FeatureFlags;
 import com.android.launcher3.dot.DotInfo;
+import com.android.launcher3.dot.DotViewIndex;
 import com.android.launcher3.dragndrop.DragController;
 import com.android.launcher3.dragndrop.DragLayer;
 import com.android.launcher3.dragndrop.DragOptions;
@@ -141,12 +142,15 @@ import com.android.launcher3.dragndrop.LauncherDragController;
 import com.android.launcher3.folder.Folder;
 import com.android.launcher3.folder.FolderGridOrganizer;
 import com.android.launcher3.folder.FolderIcon;
+import com.android.launcher3.folder.FolderPagedView;
+import com.android.launcher3.icons.ClockTicker;
 import com.android.launcher3.icons.IconCache;
 import com.android.launcher3.keyboard.ViewGroupFocusHelper;
 import com.android.launcher3.logger.LauncherAtom;
 import com.android.launcher3.logger.LauncherAtom.ContainerInfo;
 import com.android.launcher3.logger.LauncherAtom.WorkspaceContainer;
 import com.android.launcher3.logging.FileLog;
+import com.android.launcher3.logging.FrameStatsTracker;
 import com.android.launcher3.logging.InstanceId;
 import com.android.launcher3.logging.InstanceIdSequence;
 import com.android.launcher3.logging.StatsLogManager;
@@ -183,6 +187,7 @@ import com.android.launcher3.util.ActivityTracker;
 import com.android.launcher3.util.ComponentKey;
 import com.android.launcher3.util.IntArray;
 import com.android.launcher3.util.IntSet;
+import com.android.launcher3.util.MainThreadBlockingDetector;
 import com.android.launcher3.util.OnboardingPrefs;
 import com.android.launcher3.util.PackageManagerHelper;
 import com.android.launcher3.util.PackageUserKey;
@@ -196,6 +201,7 @@ import com.android.launcher3.util.TouchController;
 import com.android.launcher3.util.TraceHelper;
 import com.android.launcher3.util.UiThreadHelper;
 import com.android.launcher3.util.ViewOnDrawExecutor;
+import com.android.launcher3.util.window.RefreshRateTracker;
 import com.android.launcher3.views.ActivityContext;
 import com.android.launcher3.views.FloatingIconView;
 import com.android.launcher3.views.FloatingSurfaceView;
@@ -218,6 +224,7 @@ import com.android.systemui.plugins.shared.LauncherExterns;
 import com.android.systemui.plugins.shared.LauncherOverlayManager;
 import com.android.systemui.plugins.shared.LauncherOverlayManager.LauncherOverlay;
 import com.saggitt.omega.NeoLauncher;
+import com.saggitt.omega.search.WebSuggestionClient;
 import com.saggitt.omega.util.Config;
 
 import java.io.FileDescriptor;
@@ -229,6 +236,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
@@ -349,6 +357,8 @@ public class Launcher extends StatefulActivity<LauncherState>
     private LauncherAccessibilityDelegate mAccessibilityDelegate;
 
     private PopupDataProvider mPopupDataProvider;
+    private final DotViewIndex mDotViewIndex = new DotViewIndex();
+    private FrameStatsTracker mFrameStatsTracker;
 
     private IntSet mSynchronouslyBoundPages = new IntSet();
     @NonNull
@@ -420,6 +430,7 @@ public class Launcher extends StatefulActivity<LauncherState>
                     .penaltyDeath()
                     .build());
         }
+        MainThreadBlockingDetector.monitorMainLooper();
 
         if (Utilities.IS_DEBUG_DEVICE && FeatureFlags.NOTIFY_CRASHES.get()) {
             final String notificationChannelId = "com.android.launcher3.Debug";
@@ -475,6 +486,9 @@ public class Launcher extends StatefulActivity<LauncherState>
         mDragController = new LauncherDragController(this);
         mAllAppsController = new AllAppsTransitionController(this);
         mStateManager = new StateManager<>(this, NORMAL);
+        mFrameStatsTracker = new FrameStatsTracker(getWindow(), mStateManager::getState,
+                () -> RefreshRateTracker.getSingleFrameMs(this));
+        mStateManager.addStateListener(mFrameStatsTracker);
 
         mOnboardingPrefs = createOnboardingPrefs(mSharedPrefs);
 
@@ -720,6 +734,15 @@ public class Launcher extends StatefulActivity<LauncherState>
         return mPopupDataProvider.getDotInfoForItem(info);
     }
 
+    @Override
+    public DotViewIndex getDotViewIndex() {
+        return mDotViewIndex;
+    }
+
+    public FrameStatsTracker getFrameStatsTracker() {
+        return mFrameStatsTracker;
+    }
+
     @Override
     public void invalidateParent(ItemInfo info) {
         if (info.container >= 0) {
@@ -992,6 +1015,7 @@ public class Launcher extends StatefulActivity<LauncherState>
         logStopAndResume(false /* isResume */);
         mAppWidgetHolder.setActivityStarted(false);
         NotificationListener.removeNotificationsChangedListener(getPopupDataProvider());
+        ClockTicker.getInstance().setHostVisible(false);
     }
 
     @Override
@@ -1004,6 +1028,7 @@ public class Launcher extends StatefulActivity<LauncherState>
         }
 
         mAppWidgetHolder.setActivityStarted(true);
+        ClockTicker.getInstance().setHostVisible(true);
         TraceHelper.INSTANCE.endSection(traceToken);
     }
 
@@ -1471,9 +1496,8 @@ public class Launcher extends StatefulActivity<LauncherState>
         }
     };
 
-    private void updateNotificationDots(Predicate<PackageUserKey> updatedDots) {
-        mWorkspace.updateNotificationDots(updatedDots);
-        mAppsView.getAppsStore().updateNotificationDots(updatedDots);
+    private void updateNotificationDots(Set<PackageUserKey> updatedDots) {
+        mDotViewIndex.updateNotificationDots(updatedDots);
     }
 
     @Override
@@ -1726,6 +1750,7 @@ public class Launcher extends StatefulActivity<LauncherState>
 
         mOverlayManager.onActivityDestroyed(this);
         mUserChangedCallbackCloseable.close();
+        mFrameStatsTracker.destroy();
     }
 
     public LauncherAccessibilityDelegate getAccessibilityDelegate() {
@@ -2762,10 +2787,11 @@ public class Launcher extends StatefulActivity<LauncherState>
         mWorkspace.setCurrentPage(currentPage, currentPage /* overridePrevPage */);
         mPagesToBindSynchronously = new IntSet();
 
-        // Cache one page worth of icons
+        // Cache the icons of the folder pages which are bound at once
         getViewCache().setCacheSize(R.layout.folder_application,
-                mDeviceProfile.inv.numFolderColumns * mDeviceProfile.inv.numFolderRows);
-        getViewCache().setCacheSize(R.layout.folder_page, 2);
+                mDeviceProfile.inv.numFolderColumns * mDeviceProfile.inv.numFolderRows
+                        * FolderPagedView.MAX_BOUND_PAGES);
+        getViewCache().setCacheSize(R.layout.folder_page, FolderPagedView.MAX_BOUND_PAGES);
 
         TraceHelper.INSTANCE.endSection(traceToken);
     }
@@ -3044,6 +3070,11 @@ public class Launcher extends StatefulActivity<LauncherState>
         mDragLayer.dump(prefix, writer);
         mStateManager.dump(prefix, writer);
         mPopupDataProvider.dump(prefix, writer);
+        mDotViewIndex.dump(prefix, writer);
+        mFrameStatsTracker.dump(prefix, writer);
+        MainThreadBlockingDetector.dump(prefix, writer);
+        WebSuggestionClient.getINSTANCE().dump(prefix, writer);
+        NotificationListener.dump(prefix, writer);
         mDeviceProfile.dump(prefix, writer);
 
         try {
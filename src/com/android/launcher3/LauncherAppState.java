@@ -167,7 +167,11 @@ public class LauncherAppState implements SafeCloseable {
         mContext = context;
 
         mInvariantDeviceProfile = InvariantDeviceProfile.INSTANCE.get(context);
-        mIconProvider = new CustomIconProvider(context, Themes.isThemedIconEnabled(context));
+        CustomIconProvider iconProvider =
+                new CustomIconProvider(context, Themes.isThemedIconEnabled(context));
+        // Parse the selected icon pack while the model loads the workspace
+        iconProvider.prewarmIconPack();
+        mIconProvider = iconProvider;
         mIconCache = new IconCache(mContext, mInvariantDeviceProfile,
                 iconCacheFileName, mIconProvider);
         mModel = new LauncherModel(context, this, mIconCache, AppFilter.newInstance(mContext),
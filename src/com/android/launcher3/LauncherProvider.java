@@ -88,6 +88,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Locale;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -113,6 +114,9 @@ public class LauncherProvider extends ContentProvider {
 
     static final String EMPTY_DATABASE_CREATED = "EMPTY_DATABASE_CREATED";
 
+    // Incremented whenever the favorites of the current database may have changed
+    private static final AtomicInteger sDataVersion = new AtomicInteger();
+
     protected DatabaseHelper mOpenHelper;
     protected String mProviderAuthority;
 
@@ -214,6 +218,20 @@ public class LauncherProvider extends ContentProvider {
         return (int) db.insert(table, nullColumnHack, values);
     }
 
+    /**
+     * Returns a number which changes every time the favorites of the current database may have
+     * changed, used to know if data loaded earlier is still up to date.
+     */
+    public static int getDataVersion() {
+        return sDataVersion.get();
+    }
+
+    private static void onDataChanged(String table) {
+        if (Favorites.TABLE_NAME.equalsIgnoreCase(table)) {
+            sDataVersion.incrementAndGet();
+        }
+    }
+
     private void reloadLauncherIfExternal() {
         if (Binder.getCallingPid() != Process.myPid()) {
             LauncherAppState app = LauncherAppState.getInstanceNoCreate();
@@ -240,6 +258,7 @@ public class LauncherProvider extends ContentProvider {
         final int rowId = dbInsertAndCheck(mOpenHelper, db, args.table, null, initialValues);
         if (rowId < 0) return null;
         onAddOrDeleteOp(db);
+        onDataChanged(args.table);
 
         uri = ContentUris.withAppendedId(uri, rowId);
         reloadLauncherIfExternal();
@@ -304,6 +323,7 @@ public class LauncherProvider extends ContentProvider {
             t.commit();
         }
 
+        onDataChanged(args.table);
         reloadLauncherIfExternal();
         return values.length;
     }
@@ -349,6 +369,7 @@ public class LauncherProvider extends ContentProvider {
         int count = db.delete(args.table, args.where, args.args);
         if (count > 0) {
             onAddOrDeleteOp(db);
+            onDataChanged(args.table);
             reloadLauncherIfExternal();
         }
         return count;
@@ -362,6 +383,9 @@ public class LauncherProvider extends ContentProvider {
         addModifiedTime(values);
         SQLiteDatabase db = mOpenHelper.getWritableDatabase();
         int count = db.update(args.table, values, args.where, args.args);
+        if (count > 0) {
+            onDataChanged(args.table);
+        }
         reloadLauncherIfExternal();
         return count;
     }
@@ -386,6 +410,7 @@ public class LauncherProvider extends ContentProvider {
                 return result;
             }
             case LauncherSettings.Settings.METHOD_DELETE_EMPTY_FOLDERS: {
+                onDataChanged(Favorites.TABLE_NAME);
                 Bundle result = new Bundle();
                 result.putIntArray(LauncherSettings.Settings.EXTRA_VALUE, deleteEmptyFolders()
                         .toArray());
@@ -404,6 +429,7 @@ public class LauncherProvider extends ContentProvider {
                 return result;
             }
             case LauncherSettings.Settings.METHOD_CREATE_EMPTY_DB: {
+                onDataChanged(Favorites.TABLE_NAME);
                 mOpenHelper.createEmptyDB(mOpenHelper.getWritableDatabase());
                 return null;
             }
@@ -429,10 +455,12 @@ public class LauncherProvider extends ContentProvider {
                 return null;
             }
             case LauncherSettings.Settings.METHOD_LOAD_DEFAULT_FAVORITES: {
+                onDataChanged(Favorites.TABLE_NAME);
                 loadDefaultFavoritesIfNecessary();
                 return null;
             }
             case LauncherSettings.Settings.METHOD_REMOVE_GHOST_WIDGETS: {
+                onDataChanged(Favorites.TABLE_NAME);
                 mOpenHelper.removeGhostWidgets(mOpenHelper.getWritableDatabase());
                 return null;
             }
@@ -456,12 +484,15 @@ public class LauncherProvider extends ContentProvider {
                 final long ts = System.currentTimeMillis();
                 if (ts - mLastRestoreTimestamp > RESTORE_BACKUP_TABLE_DELAY) {
                     mLastRestoreTimestamp = ts;
+                    onDataChanged(Favorites.TABLE_NAME);
                     RestoreDbTask.restoreIfPossible(
                             getContext(), mOpenHelper, new BackupManager(getContext()));
                 }
                 return null;
             }
             case LauncherSettings.Settings.METHOD_UPDATE_CURRENT_OPEN_HELPER: {
+                // The current favorites are migrated right after, through their own transaction
+                onDataChanged(Favorites.TABLE_NAME);
                 Bundle result = new Bundle();
                 result.putBoolean(LauncherSettings.Settings.EXTRA_VALUE,
                         prepForMigration(
@@ -485,6 +516,7 @@ public class LauncherProvider extends ContentProvider {
             }
             case LauncherSettings.Settings.METHOD_SWITCH_DATABASE: {
                 if (TextUtils.equals(arg, mOpenHelper.getDatabaseName())) return null;
+                onDataChanged(Favorites.TABLE_NAME);
                 final DatabaseHelper helper = mOpenHelper;
                 if (extras == null || !extras.containsKey(KEY_LAYOUT_PROVIDER_AUTHORITY)) {
                     mProviderAuthority = null;
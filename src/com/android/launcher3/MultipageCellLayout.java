@@ -71,7 +71,7 @@ public class MultipageCellLayout extends CellLayout {
             cellX++;
         }
         int finalCellX = cellX;
-        return ((MulticellReorderAlgorithm) createReorderAlgorithm()).simulateSeam(
+        return ((MulticellReorderAlgorithm) getReorderAlgorithm()).simulateSeam(
                 () -> super.createAreaForResize(finalCellX, cellY, spanX, spanY, dragView,
                         direction, commit));
     }
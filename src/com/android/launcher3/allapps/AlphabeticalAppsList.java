@@ -32,6 +32,7 @@ import com.android.launcher3.model.data.ItemInfo;
 import com.android.launcher3.util.ComponentKey;
 import com.android.launcher3.util.LabelComparator;
 import com.android.launcher3.views.ActivityContext;
+import com.saggitt.omega.groups.CompiledFilter;
 import com.saggitt.omega.groups.category.DrawerFolderInfo;
 import com.saggitt.omega.preferences.NeoPrefs;
 import com.saggitt.omega.util.OmegaUtilsKt;
@@ -91,7 +92,7 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
     private AppInfoComparator mAppNameComparator;
     private final int mNumAppsPerRowAllApps;
     private int mNumAppRowsInAdapter;
-    private Predicate<ItemInfo> mItemFilter;
+    private CompiledFilter mItemFilter;
 
     private final NeoPrefs prefs;
     private final BaseDraggingActivity mLauncher;
@@ -112,7 +113,7 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
     }
 
     public void updateItemFilter(Predicate<ItemInfo> itemFilter) {
-        this.mItemFilter = itemFilter;
+        this.mItemFilter = CompiledFilter.of(itemFilter);
         onAppsUpdated();
     }
 
@@ -213,15 +214,14 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
         // Sort the list of apps
         mApps.clear();
 
-        // Sort the list of apps
-        List<AppInfo> unsortedApps = Arrays.asList(mAllAppsStore.getApps());
-        OmegaUtilsKt.sortApps(unsortedApps, mLauncher, prefs.getDrawerSortMode().getValue());
-        AppInfo[] sortedApps = unsortedApps.toArray(AppInfo.EMPTY_ARRAY);
+        // Filter before sorting, the store's array must keep its order for the compiled filters
+        AppInfo[] apps = mAllAppsStore.getApps();
+        List<AppInfo> filteredApps = !hasSearchResults() && mItemFilter != null
+                ? mItemFilter.filter(apps)
+                : new ArrayList<>(Arrays.asList(apps));
+        OmegaUtilsKt.sortApps(filteredApps, mLauncher, prefs.getDrawerSortMode().getValue());
 
-        Stream<AppInfo> appSteam = Stream.of(sortedApps);
-        if (!hasSearchResults() && mItemFilter != null) {
-            appSteam = appSteam.filter(mItemFilter);
-        }
+        Stream<AppInfo> appSteam = filteredApps.stream();
 
         //appSteam = appSteam.sorted(mAppNameComparator);
 
@@ -341,10 +341,11 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
         LauncherAppState app = LauncherAppState.getInstance(mLauncher);
         LauncherModel model = app.getModel();
         ModelWriter modelWriter = model.getWriter(false, true, CellPosMapper.DEFAULT, null);
+        // Folders only show the apps of the current tab, like the rest of the list
         return Utilities.getOmegaPrefs(mLauncher)
                 .getDrawerAppGroupsManager()
                 .getDrawerFolders()
-                .getFolderInfos(this, modelWriter);
+                .getFolderInfos(mAllAppsStore.getApps(), mItemFilter, modelWriter);
     }
 
     private Set<ComponentKey> getFolderFilteredApps() {
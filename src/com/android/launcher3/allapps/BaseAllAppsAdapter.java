@@ -36,6 +36,7 @@ import com.android.launcher3.Launcher;
 import com.android.launcher3.R;
 import com.android.launcher3.Utilities;
 import com.android.launcher3.allapps.search.SearchAdapterProvider;
+import com.android.launcher3.allapps.search.SearchResultAdapterItem;
 import com.android.launcher3.config.FeatureFlags;
 import com.android.launcher3.folder.FolderIcon;
 import com.android.launcher3.model.data.AppInfo;
@@ -66,7 +67,10 @@ public abstract class BaseAllAppsAdapter<T extends Context & ActivityContext> ex
     // Drawer folders
     public static final int VIEW_TYPE_FOLDER = 1 << 6;
 
-    public static final int NEXT_ID = 7;
+    // A search result which is not an app
+    public static final int VIEW_TYPE_SEARCH_RESULT = 1 << 7;
+
+    public static final int NEXT_ID = 8;
 
     // Common view type masks
     public static final int VIEW_TYPE_MASK_DIVIDER = VIEW_TYPE_ALL_APPS_DIVIDER;
@@ -235,6 +239,16 @@ public abstract class BaseAllAppsAdapter<T extends Context & ActivityContext> ex
                         mActivityContext.getDeviceProfile().allAppsCellHeightPx);
                 folder.setLayoutParams(lp);
                 return new ViewHolder(folder);
+            case VIEW_TYPE_SEARCH_RESULT:
+                View result = mLayoutInflater.inflate(
+                        R.layout.all_apps_search_result, parent, false);
+                result.setOnClickListener(v -> {
+                    if (v.getTag() instanceof SearchResultAdapterItem) {
+                        SearchResultAdapterItem item = (SearchResultAdapterItem) v.getTag();
+                        mActivityContext.startActivitySafely(v, item.intent, item.launchInfo);
+                    }
+                });
+                return new ViewHolder(result);
             case VIEW_TYPE_WORK_EDU_CARD:
                 return new ViewHolder(mLayoutInflater.inflate(
                         R.layout.work_apps_edu, parent, false));
@@ -279,6 +293,15 @@ public abstract class BaseAllAppsAdapter<T extends Context & ActivityContext> ex
                 container.removeAllViews();
                 container.addView(folderIcon);
                 break;
+            case VIEW_TYPE_SEARCH_RESULT: {
+                SearchResultAdapterItem item =
+                        (SearchResultAdapterItem) mApps.getAdapterItems().get(position);
+                TextView result = (TextView) holder.itemView;
+                result.setText(item.title);
+                result.setCompoundDrawablesRelativeWithIntrinsicBounds(item.iconRes, 0, 0, 0);
+                result.setTag(item);
+                break;
+            }
             case VIEW_TYPE_WORK_EDU_CARD:
                 ((WorkEduCard) holder.itemView).setPosition(position);
                 break;
@@ -39,8 +39,11 @@ import com.android.launcher3.allapps.ActivityAllAppsContainerView;
 import com.android.launcher3.allapps.AllAppsStore;
 import com.android.launcher3.allapps.BaseAllAppsAdapter.AdapterItem;
 import com.android.launcher3.allapps.SearchUiManager;
+import com.android.launcher3.allapps.search.FederatedSearchAlgorithm.Source;
 import com.android.launcher3.search.SearchCallback;
 import com.android.launcher3.views.ActivityContext;
+import com.saggitt.omega.search.PeopleSearchAlgorithm;
+import com.saggitt.omega.search.WebSuggestionsSearchAlgorithm;
 
 import java.util.ArrayList;
 
@@ -51,6 +54,12 @@ public class AppsSearchContainerLayout extends ExtendedEditText
         implements SearchUiManager, SearchCallback<AdapterItem>,
         AllAppsStore.OnUpdateListener, Insettable {
 
+    // Time the results of each search source are waited for. Apps are searched in memory and
+    // are shown as soon as they are found, without waiting for the slower sources.
+    private static final long APPS_DEADLINE_MS = 200;
+    private static final long PEOPLE_DEADLINE_MS = 300;
+    private static final long WEB_DEADLINE_MS = 1000;
+
     private final ActivityContext mLauncher;
     private final AllAppsSearchBarController mSearchBarController;
     private final SpannableStringBuilder mSearchQueryBuilder;
@@ -130,7 +139,13 @@ public class AppsSearchContainerLayout extends ExtendedEditText
     public void initializeSearch(ActivityAllAppsContainerView<?> appsView) {
         mAppsView = appsView;
         mSearchBarController.initialize(
-                new DefaultAppSearchAlgorithm(getContext(), true),
+                new FederatedSearchAlgorithm(true /* addNoResultsMessage */,
+                        new Source(new DefaultAppSearchAlgorithm(getContext()),
+                                APPS_DEADLINE_MS),
+                        new Source(new PeopleSearchAlgorithm(getContext()),
+                                PEOPLE_DEADLINE_MS),
+                        new Source(new WebSuggestionsSearchAlgorithm(getContext()),
+                                WEB_DEADLINE_MS)),
                 this, mLauncher, this);
     }
 
@@ -25,11 +25,14 @@ import androidx.annotation.AnyThread;
 import androidx.annotation.NonNull;
 
 import com.android.launcher3.LauncherAppState;
+import com.android.launcher3.R;
 import com.android.launcher3.allapps.BaseAllAppsAdapter.AdapterItem;
 import com.android.launcher3.model.AllAppsList;
 import com.android.launcher3.model.BaseModelUpdateTask;
 import com.android.launcher3.model.BgDataModel;
+import com.android.launcher3.model.DeepShortcutSearchIndex;
 import com.android.launcher3.model.data.AppInfo;
+import com.android.launcher3.model.data.WorkspaceItemInfo;
 import com.android.launcher3.search.SearchAlgorithm;
 import com.android.launcher3.search.SearchCallback;
 import com.android.launcher3.search.StringMatcherUtility;
@@ -43,6 +46,7 @@ import java.util.List;
 public class DefaultAppSearchAlgorithm implements SearchAlgorithm<AdapterItem> {
 
     private static final int MAX_RESULTS_COUNT = 5;
+    private static final int MAX_SHORTCUT_RESULTS_COUNT = 5;
 
     private final LauncherAppState mAppState;
     private final Handler mResultHandler;
@@ -72,6 +76,9 @@ public class DefaultAppSearchAlgorithm implements SearchAlgorithm<AdapterItem> {
             public void execute(@NonNull final LauncherAppState app,
                                 @NonNull final BgDataModel dataModel, @NonNull final AllAppsList apps) {
                 ArrayList<AdapterItem> result = getTitleMatchResult(apps.data, query);
+                synchronized (dataModel) {
+                    result.addAll(getShortcutMatchResult(dataModel.deepShortcutIndex, query));
+                }
                 if (mAddNoResultsMessage && result.isEmpty()) {
                     result.add(getEmptyMessageAdapterItem(query));
                 }
@@ -80,7 +87,7 @@ public class DefaultAppSearchAlgorithm implements SearchAlgorithm<AdapterItem> {
         });
     }
 
-    private static AdapterItem getEmptyMessageAdapterItem(String query) {
+    static AdapterItem getEmptyMessageAdapterItem(String query) {
         AdapterItem item = new AdapterItem(VIEW_TYPE_EMPTY_SEARCH);
         // Add a place holder info to propagate the query
         AppInfo placeHolder = new AppInfo();
@@ -112,4 +119,19 @@ public class DefaultAppSearchAlgorithm implements SearchAlgorithm<AdapterItem> {
         }
         return result;
     }
+
+    /**
+     * Filters the indexed deep shortcuts matching specified query
+     */
+    @AnyThread
+    public static ArrayList<AdapterItem> getShortcutMatchResult(
+            DeepShortcutSearchIndex index, String query) {
+        ArrayList<AdapterItem> result = new ArrayList<>();
+        for (WorkspaceItemInfo info : index.search(query.toLowerCase(),
+                StringMatcherUtility.StringMatcher.getInstance(), MAX_SHORTCUT_RESULTS_COUNT)) {
+            result.add(new SearchResultAdapterItem(info.title, R.drawable.ic_search_shortcut,
+                    info.getIntent(), info));
+        }
+        return result;
+    }
 }
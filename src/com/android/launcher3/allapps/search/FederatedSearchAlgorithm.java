@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.allapps.search;
+
+import static com.android.launcher3.util.Executors.MAIN_EXECUTOR;
+
+import android.os.Handler;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.UiThread;
+
+import com.android.launcher3.allapps.BaseAllAppsAdapter.AdapterItem;
+import com.android.launcher3.search.SearchAlgorithm;
+import com.android.launcher3.search.SearchCallback;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+/**
+ * Searches several sources at once, like apps, contacts and web suggestions, and streams their
+ * merged results to the callback as each source completes, so that fast sources are not held
+ * back by slow ones.
+ * <p>
+ * Every source has a deadline after which the query completes without its results. A source
+ * can refine its results by answering again until the next query. Results are ranked by the order
+ * of the sources, then by the order given by each source. A new query cancels the requests of the
+ * previous one in every source.
+ */
+@UiThread
+public class FederatedSearchAlgorithm implements SearchAlgorithm<AdapterItem> {
+
+    private static final String TAG = "FederatedSearchAlgorithm";
+
+    /**
+     * A search source and the time its results are waited for
+     */
+    public static class Source {
+
+        final SearchAlgorithm<AdapterItem> algorithm;
+        final long deadlineMs;
+
+        public Source(SearchAlgorithm<AdapterItem> algorithm, long deadlineMs) {
+            this.algorithm = algorithm;
+            this.deadlineMs = deadlineMs;
+        }
+    }
+
+    private final Source[] mSources;
+    private final boolean mAddNoResultsMessage;
+    private final Handler mHandler = new Handler(MAIN_EXECUTOR.getLooper());
+
+    @Nullable
+    private ActiveQuery mActiveQuery;
+
+    public FederatedSearchAlgorithm(boolean addNoResultsMessage, Source... sources) {
+        mSources = sources;
+        mAddNoResultsMessage = addNoResultsMessage;
+    }
+
+    @Override
+    public void doSearch(String query, SearchCallback<AdapterItem> callback) {
+        doSearch(query, null, callback);
+    }
+
+    @Override
+    public void doSearch(String query, String[] suggestedQueries,
+            SearchCallback<AdapterItem> callback) {
+        if (mActiveQuery != null) {
+            clearActiveQuery();
+            for (Source source : mSources) {
+                source.algorithm.cancel(true /* interruptActiveRequests */);
+            }
+        }
+        ActiveQuery activeQuery = new ActiveQuery(query, callback);
+        mActiveQuery = activeQuery;
+        for (int i = 0; i < mSources.length; i++) {
+            final int index = i;
+            Runnable deadline = () -> {
+                Log.w(TAG, mSources[index].algorithm.getClass().getSimpleName()
+                        + " missed its deadline of " + mSources[index].deadlineMs + "ms");
+                activeQuery.mTimedOut[index] = true;
+                activeQuery.onSourceDone(index, null);
+            };
+            activeQuery.mDeadlines[i] = deadline;
+            mHandler.postDelayed(deadline, mSources[i].deadlineMs);
+        }
+        for (int i = 0; i < mSources.length; i++) {
+            final int index = i;
+            // Sources can answer synchronously, the callback is always handled on the main thread
+            mSources[i].algorithm.doSearch(query, suggestedQueries, new SearchCallback<AdapterItem>() {
+                @Override
+                public void onSearchResult(String q, ArrayList<AdapterItem> items) {
+                    MAIN_EXECUTOR.execute(() -> activeQuery.onSourceDone(index, items));
+                }
+
+                @Override
+                public void clearSearchResult() {
+                    MAIN_EXECUTOR.execute(() -> activeQuery.onSourceDone(index, null));
+                }
+            });
+        }
+    }
+
+    @Override
+    public void cancel(boolean interruptActiveRequests) {
+        for (Source source : mSources) {
+            source.algorithm.cancel(interruptActiveRequests);
+        }
+        if (interruptActiveRequests) {
+            clearActiveQuery();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        clearActiveQuery();
+        for (Source source : mSources) {
+            source.algorithm.destroy();
+        }
+    }
+
+    private void clearActiveQuery() {
+        if (mActiveQuery != null) {
+            for (Runnable deadline : mActiveQuery.mDeadlines) {
+                mHandler.removeCallbacks(deadline);
+            }
+            mActiveQuery = null;
+        }
+    }
+
+    private class ActiveQuery {
+
+        private final String mQuery;
+        private final SearchCallback<AdapterItem> mCallback;
+
+        private final Runnable[] mDeadlines = new Runnable[mSources.length];
+        // Results of every completed source, null for the pending ones and the ones which failed
+        // or missed their deadline
+        private final ArrayList<ArrayList<AdapterItem>> mResults =
+                new ArrayList<>(Collections.nCopies(mSources.length, null));
+        private final boolean[] mDone = new boolean[mSources.length];
+        private final boolean[] mTimedOut = new boolean[mSources.length];
+        private int mPendingCount = mSources.length;
+
+        ActiveQuery(String query, SearchCallback<AdapterItem> callback) {
+            mQuery = query;
+            mCallback = callback;
+        }
+
+        void onSourceDone(int index, @Nullable ArrayList<AdapterItem> items) {
+            if (mActiveQuery != this || (mDone[index] && mTimedOut[index])) {
+                // Stale query, or late results of a source which missed its deadline
+                return;
+            }
+            if (!mDone[index]) {
+                mDone[index] = true;
+                mPendingCount--;
+                mHandler.removeCallbacks(mDeadlines[index]);
+            }
+            mResults.set(index, items);
+
+            // Publishing empty results would show all apps, so wait for the other sources
+            if ((items != null && !items.isEmpty()) || mPendingCount == 0) {
+                publish();
+            }
+        }
+
+        private void publish() {
+            ArrayList<AdapterItem> merged = new ArrayList<>();
+            for (ArrayList<AdapterItem> results : mResults) {
+                if (results != null) {
+                    merged.addAll(results);
+                }
+            }
+            if (mPendingCount == 0 && merged.isEmpty() && mAddNoResultsMessage) {
+                merged.add(DefaultAppSearchAlgorithm.getEmptyMessageAdapterItem(mQuery));
+            }
+            mCallback.onSearchResult(mQuery, merged);
+        }
+    }
+}
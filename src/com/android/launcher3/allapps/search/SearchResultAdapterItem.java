@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.allapps.search;
+
+import static com.android.launcher3.allapps.BaseAllAppsAdapter.VIEW_TYPE_SEARCH_RESULT;
+
+import android.content.Intent;
+
+import androidx.annotation.DrawableRes;
+import androidx.annotation.Nullable;
+
+import com.android.launcher3.allapps.BaseAllAppsAdapter.AdapterItem;
+import com.android.launcher3.model.data.ItemInfo;
+
+import java.util.Objects;
+
+/**
+ * A search result which is not an app, like a contact or a web suggestion, shown as a row
+ * opening its intent when clicked.
+ */
+public class SearchResultAdapterItem extends AdapterItem {
+
+    public final CharSequence title;
+    @DrawableRes
+    public final int iconRes;
+    public final Intent intent;
+    // The item to launch the intent for, like a deep shortcut
+    @Nullable
+    public final ItemInfo launchInfo;
+
+    public SearchResultAdapterItem(CharSequence title, @DrawableRes int iconRes, Intent intent) {
+        this(title, iconRes, intent, null);
+    }
+
+    public SearchResultAdapterItem(CharSequence title, @DrawableRes int iconRes, Intent intent,
+            @Nullable ItemInfo launchInfo) {
+        super(VIEW_TYPE_SEARCH_RESULT);
+        this.title = title;
+        this.iconRes = iconRes;
+        this.intent = intent;
+        this.launchInfo = launchInfo;
+    }
+
+    @Override
+    public boolean isSameAs(AdapterItem other) {
+        // Deep shortcuts only differ by their extras
+        return super.isSameAs(other) && Objects.equals(intent.toUri(0),
+                ((SearchResultAdapterItem) other).intent.toUri(0));
+    }
+
+    @Override
+    public boolean isContentSame(AdapterItem other) {
+        SearchResultAdapterItem item = (SearchResultAdapterItem) other;
+        return iconRes == item.iconRes && Objects.equals(title.toString(), item.title.toString());
+    }
+}
@@ -31,6 +31,11 @@ public class MulticellReorderAlgorithm extends ReorderAlgorithm {
 
     private final View mSeam;
 
+    // Grids used while the seam is added, kept to avoid allocating them on every simulation
+    private GridOccupancy mSeamOccupied;
+    private GridOccupancy mSeamTmpOccupied;
+    private GridOccupancy mTmpOccupiedWithoutSeam;
+
     public MulticellReorderAlgorithm(CellLayout cellLayout) {
         super(cellLayout);
         mSeam = new View(cellLayout.getContext());
@@ -80,14 +85,22 @@ public class MulticellReorderAlgorithm extends ReorderAlgorithm {
         mcl.setCountX(mcl.getCountX() + 1);
         mcl.getShortcutsAndWidgets().addViewInLayout(mSeam, lp);
         mcl.setOccupied(createGridOccupancyWithSeam(mcl.getOccupied()));
-        mcl.mTmpOccupied = new GridOccupancy(mcl.getCountX(), mcl.getCountY());
+        mTmpOccupiedWithoutSeam = mcl.mTmpOccupied;
+        mSeamTmpOccupied = reuseOrCreate(mSeamTmpOccupied);
+        mSeamTmpOccupied.clear();
+        mcl.mTmpOccupied = mSeamTmpOccupied;
     }
 
     void removeSeam() {
         MultipageCellLayout mcl = (MultipageCellLayout) mCellLayout;
         mcl.setCountX(mcl.getCountX() - 1);
         mcl.getShortcutsAndWidgets().removeViewInLayout(mSeam);
-        mcl.mTmpOccupied = new GridOccupancy(mcl.getCountX(), mcl.getCountY());
+        if (mTmpOccupiedWithoutSeam == null) {
+            mTmpOccupiedWithoutSeam = new GridOccupancy(mcl.getCountX(), mcl.getCountY());
+        }
+        mTmpOccupiedWithoutSeam.clear();
+        mcl.mTmpOccupied = mTmpOccupiedWithoutSeam;
+        mTmpOccupiedWithoutSeam = null;
         mcl.setSeamWasAdded(false);
     }
 
@@ -112,16 +125,18 @@ public class MulticellReorderAlgorithm extends ReorderAlgorithm {
     }
 
     GridOccupancy createGridOccupancyWithSeam(GridOccupancy gridOccupancy) {
-        GridOccupancy grid = new GridOccupancy(mCellLayout.getCountX(), mCellLayout.getCountY());
-        for (int x = 0; x < mCellLayout.getCountX(); x++) {
-            for (int y = 0; y < mCellLayout.getCountY(); y++) {
-                int offset = x >= mCellLayout.getCountX() / 2 ? 1 : 0;
-                if (x == mCellLayout.getCountX() / 2) {
-                    grid.cells[x][y] = true;
-                } else {
-                    grid.cells[x][y] = gridOccupancy.cells[x - offset][y];
-                }
-            }
+        mSeamOccupied = reuseOrCreate(mSeamOccupied);
+        gridOccupancy.copyToInsertingColumn(mSeamOccupied, mCellLayout.getCountX() / 2);
+        return mSeamOccupied;
+    }
+
+    /**
+     * Returns {@param grid} if it matches the current size of the CellLayout, or a new one.
+     */
+    private GridOccupancy reuseOrCreate(GridOccupancy grid) {
+        if (grid == null || grid.getCountX() != mCellLayout.getCountX()
+                || grid.getCountY() != mCellLayout.getCountY()) {
+            return new GridOccupancy(mCellLayout.getCountX(), mCellLayout.getCountY());
         }
         return grid;
     }
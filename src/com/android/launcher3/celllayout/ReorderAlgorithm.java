@@ -15,9 +15,14 @@
  */
 package com.android.launcher3.celllayout;
 
+import android.util.ArrayMap;
 import android.view.View;
 
 import com.android.launcher3.CellLayout;
+import com.android.launcher3.util.CellAndSpan;
+import com.android.launcher3.util.GridOccupancy;
+
+import java.util.ArrayList;
 
 /**
  * Contains the logic of a reorder.
@@ -27,8 +32,16 @@ import com.android.launcher3.CellLayout;
  */
 public class ReorderAlgorithm {
 
+    // Rearrangement attempts are only remembered for a bounded number of drop targets
+    private static final int MAX_MEMOIZED_ATTEMPTS = 64;
+
     CellLayout mCellLayout;
 
+    // Results of rearrangementExists, valid while the layout and the dragged view stay the same
+    private final ArrayMap<Long, Attempt> mAttempts = new ArrayMap<>();
+    private long mAttemptsLayoutSignature;
+    private View mAttemptsDragView;
+
     public ReorderAlgorithm(CellLayout cellLayout) {
         mCellLayout = cellLayout;
     }
@@ -73,7 +86,7 @@ public class ReorderAlgorithm {
         boolean success;
         // First we try the exact nearest position of the item being dragged,
         // we will then want to try to move this around to other neighbouring positions
-        success = mCellLayout.rearrangementExists(result[0], result[1], spanX, spanY, direction,
+        success = rearrangementExists(result[0], result[1], spanX, spanY, direction,
                 dragView, solution);
 
         if (!success) {
@@ -201,4 +214,108 @@ public class ReorderAlgorithm {
         }
         return null;
     }
+
+    /**
+     * Same as {@link CellLayout#rearrangementExists} but remembers the outcome of every attempt,
+     * so the same drop target, span and direction are only solved once while dragging over an
+     * unchanged layout. The solution and the temporary occupancy are restored on a hit.
+     */
+    private boolean rearrangementExists(int cellX, int cellY, int spanX, int spanY,
+            int[] direction, View dragView, CellLayout.ItemConfiguration solution) {
+        if (cellX < 0 || cellY < 0) return false;
+        validateAttempts(dragView);
+
+        long key = attemptKey(cellX, cellY, spanX, spanY, direction);
+        Attempt attempt = mAttempts.get(key);
+        if (attempt != null && attempt.canRestoreTo(solution)) {
+            return attempt.restoreTo(solution, mCellLayout.mTmpOccupied);
+        }
+
+        boolean success = mCellLayout.rearrangementExists(cellX, cellY, spanX, spanY, direction,
+                dragView, solution);
+        if (mAttempts.size() >= MAX_MEMOIZED_ATTEMPTS) {
+            mAttempts.clear();
+        }
+        mAttempts.put(key, new Attempt(success, solution, mCellLayout.mTmpOccupied));
+        return success;
+    }
+
+    private void validateAttempts(View dragView) {
+        long signature = computeLayoutSignature();
+        if (signature != mAttemptsLayoutSignature || dragView != mAttemptsDragView) {
+            mAttempts.clear();
+            mAttemptsLayoutSignature = signature;
+            mAttemptsDragView = dragView;
+        }
+    }
+
+    /**
+     * Returns a hash of the size of the grid and the cell and span of every child
+     */
+    private long computeLayoutSignature() {
+        long signature = mCellLayout.getCountX() * 31L + mCellLayout.getCountY();
+        ShortcutAndWidgetContainer children = mCellLayout.getShortcutsAndWidgets();
+        int count = children.getChildCount();
+        for (int i = 0; i < count; i++) {
+            View child = children.getChildAt(i);
+            CellLayoutLayoutParams lp = (CellLayoutLayoutParams) child.getLayoutParams();
+            signature = signature * 31 + System.identityHashCode(child);
+            signature = signature * 31 + lp.getCellX();
+            signature = signature * 31 + lp.getCellY();
+            signature = signature * 31 + lp.cellHSpan;
+            signature = signature * 31 + lp.cellVSpan;
+            signature = signature * 31 + (lp.canReorder ? 1 : 0);
+        }
+        return signature;
+    }
+
+    private static long attemptKey(int cellX, int cellY, int spanX, int spanY, int[] direction) {
+        return ((long) cellX << 40) | ((long) cellY << 28) | ((long) spanX << 16)
+                | ((long) spanY << 4) | ((direction[0] + 1) << 2) | (direction[1] + 1);
+    }
+
+    /**
+     * Outcome of a rearrangement attempt, stored in the order of the solution's views
+     */
+    private static class Attempt {
+
+        final boolean success;
+        final CellAndSpan[] cells;
+        final ArrayList<View> intersectingViews;
+        final GridOccupancy tmpOccupied;
+
+        Attempt(boolean success, CellLayout.ItemConfiguration solution, GridOccupancy occupied) {
+            this.success = success;
+            if (success) {
+                int count = solution.map.size();
+                cells = new CellAndSpan[count];
+                for (int i = 0; i < count; i++) {
+                    cells[i] = new CellAndSpan();
+                    cells[i].copyFrom(solution.map.valueAt(i));
+                }
+                intersectingViews = new ArrayList<>(solution.intersectingViews);
+                tmpOccupied = occupied.copy();
+            } else {
+                cells = null;
+                intersectingViews = null;
+                tmpOccupied = null;
+            }
+        }
+
+        boolean canRestoreTo(CellLayout.ItemConfiguration solution) {
+            return !success || cells.length == solution.map.size();
+        }
+
+        boolean restoreTo(CellLayout.ItemConfiguration solution, GridOccupancy occupied) {
+            if (!success) {
+                return false;
+            }
+            for (int i = 0; i < cells.length; i++) {
+                solution.map.valueAt(i).copyFrom(cells[i]);
+            }
+            solution.intersectingViews = new ArrayList<>(intersectingViews);
+            tmpOccupied.copyTo(occupied);
+            return true;
+        }
+    }
 }
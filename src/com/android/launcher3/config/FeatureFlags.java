@@ -257,6 +257,18 @@ public final class FeatureFlags {
             "ENABLE_PREMIUM_HAPTICS_ALL_APPS", false,
             "Enables haptics opening/closing All apps");
 
+    // The flags below are local to this launcher. They have no upstream bug id, so they are
+    // created directly instead of through getReleaseFlag.
+
+    // When enabled folder icon previews replay a recording while their items are at rest.
+    public static final BooleanFlag ENABLE_FOLDER_PREVIEW_CACHE = new BooleanFlag(true);
+
+    // When enabled folder pages bind their icons as they are scrolled to instead of all on open.
+    public static final BooleanFlag ENABLE_LAZY_FOLDER_PAGES = new BooleanFlag(true);
+
+    // When enabled the frame durations and missed frames of launcher transitions are recorded.
+    public static final BooleanFlag ENABLE_FRAME_STATS = new BooleanFlag(true);
+
     public static class BooleanFlag {
 
         private final boolean mCurrentValue;
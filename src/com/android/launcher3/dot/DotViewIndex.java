@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.dot;
+
+import android.util.ArrayMap;
+import android.util.ArraySet;
+import android.view.View;
+
+import androidx.annotation.UiThread;
+
+import com.android.launcher3.BubbleTextView;
+import com.android.launcher3.folder.Folder;
+import com.android.launcher3.folder.FolderIcon;
+import com.android.launcher3.model.data.FolderInfo;
+import com.android.launcher3.model.data.ItemInfo;
+import com.android.launcher3.model.data.WorkspaceItemInfo;
+import com.android.launcher3.util.PackageUserKey;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Set;
+
+/**
+ * Index of the attached icons and folder icons by the package they show notification dots for,
+ * so that a dot change only updates the affected views instead of every icon of the launcher.
+ * <p>
+ * Views add themselves when attached to the window or rebound, and remove themselves when
+ * detached.
+ */
+@UiThread
+public class DotViewIndex {
+
+    private final HashMap<PackageUserKey, ArraySet<View>> mViewsByKey = new HashMap<>();
+    private final ArrayMap<View, ArraySet<PackageUserKey>> mKeysByView = new ArrayMap<>();
+
+    private final PackageUserKey mTempKey = new PackageUserKey(null, null);
+    private final ArraySet<View> mTempViews = new ArraySet<>();
+    private final ArrayList<FolderIcon> mTempFolderIcons = new ArrayList<>();
+
+    /**
+     * Indexes the icon under the package of its item, replacing any previous entry
+     */
+    public void add(BubbleTextView icon, Object tag) {
+        remove(icon);
+        if (tag instanceof ItemInfo) {
+            addKey(icon, (ItemInfo) tag);
+        }
+    }
+
+    /**
+     * Indexes the folder icon under the packages of all the folder contents, replacing any
+     * previous entry
+     */
+    public void add(FolderIcon folderIcon, FolderInfo info) {
+        remove(folderIcon);
+        for (WorkspaceItemInfo item : info.contents) {
+            addKey(folderIcon, item);
+        }
+    }
+
+    public void remove(View view) {
+        ArraySet<PackageUserKey> keys = mKeysByView.remove(view);
+        if (keys == null) {
+            return;
+        }
+        for (int i = keys.size() - 1; i >= 0; i--) {
+            PackageUserKey key = keys.valueAt(i);
+            ArraySet<View> views = mViewsByKey.get(key);
+            if (views != null && views.remove(view) && views.isEmpty()) {
+                mViewsByKey.remove(key);
+            }
+        }
+    }
+
+    private void addKey(View view, ItemInfo info) {
+        if (!mTempKey.updateFromItemInfo(info)) {
+            return;
+        }
+        ArraySet<PackageUserKey> keys = mKeysByView.get(view);
+        if (keys == null) {
+            keys = new ArraySet<>(1);
+            mKeysByView.put(view, keys);
+        } else if (keys.contains(mTempKey)) {
+            return;
+        }
+        PackageUserKey key = new PackageUserKey(mTempKey.mPackageName, mTempKey.mUser);
+        keys.add(key);
+        ArraySet<View> views = mViewsByKey.get(key);
+        if (views == null) {
+            views = new ArraySet<>(1);
+            mViewsByKey.put(key, views);
+        }
+        views.add(view);
+    }
+
+    /**
+     * Updates the dots of the icons and folder icons showing any of the given packages
+     */
+    public void updateNotificationDots(Set<PackageUserKey> updatedDots) {
+        ArraySet<View> views = mTempViews;
+        for (PackageUserKey key : updatedDots) {
+            ArraySet<View> indexed = mViewsByKey.get(key);
+            if (indexed != null) {
+                views.addAll(indexed);
+            }
+        }
+        if (views.isEmpty()) {
+            return;
+        }
+
+        // Update folders first, collecting their affected items which may not be attached
+        ArrayList<FolderIcon> folderIcons = mTempFolderIcons;
+        for (int i = views.size() - 1; i >= 0; i--) {
+            if (views.valueAt(i) instanceof FolderIcon) {
+                folderIcons.add((FolderIcon) views.removeAt(i));
+            }
+        }
+        for (FolderIcon folderIcon : folderIcons) {
+            folderIcon.updateIconDots(updatedDots::contains, mTempKey);
+            Folder folder = folderIcon.getFolder();
+            if (folder != null) {
+                folder.iterateOverItems((info, v) -> {
+                    if (v instanceof BubbleTextView && mTempKey.updateFromItemInfo(info)
+                            && updatedDots.contains(mTempKey)) {
+                        views.add(v);
+                    }
+                    return false;
+                });
+            }
+        }
+        folderIcons.clear();
+
+        for (int i = 0; i < views.size(); i++) {
+            BubbleTextView icon = (BubbleTextView) views.valueAt(i);
+            if (icon.getTag() instanceof ItemInfo) {
+                icon.applyDotState((ItemInfo) icon.getTag(), true /* animate */);
+            }
+        }
+        views.clear();
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "DotViewIndex: " + mKeysByView.size() + " views under "
+                + mViewsByKey.size() + " packages");
+    }
+}
@@ -88,6 +88,7 @@ import com.android.launcher3.dragndrop.DragOptions;
 import com.android.launcher3.graphics.IconShape;
 import com.android.launcher3.logger.LauncherAtom.FromState;
 import com.android.launcher3.logger.LauncherAtom.ToState;
+import com.android.launcher3.logging.FrameStatsTracker;
 import com.android.launcher3.logging.StatsLogManager;
 import com.android.launcher3.logging.StatsLogManager.StatsLogger;
 import com.android.launcher3.model.data.FolderInfo;
@@ -704,7 +705,8 @@ public class Folder extends AbstractFloatingView implements ClipPathView, DragSo
             openFolder.close(true);
         }
 
-        mContent.bindItems(items);
+        trackFrames(FrameStatsTracker.ACTION_FOLDER_OPEN, true);
+        mContent.bindItems(items, pageNo);
         centerAboutIcon();
         mItemsInvalidated = true;
         updateTextViewFocus();
@@ -744,6 +746,7 @@ public class Folder extends AbstractFloatingView implements ClipPathView, DragSo
 
             @Override
             public void onAnimationEnd(Animator animation) {
+                trackFrames(FrameStatsTracker.ACTION_FOLDER_OPEN, false);
                 setState(STATE_OPEN);
                 announceAccessibilityChanges();
                 AccessibilityManagerCompat.sendFolderOpenedEventToTest(getContext());
@@ -848,6 +851,7 @@ public class Folder extends AbstractFloatingView implements ClipPathView, DragSo
         mContent.snapToPageImmediately(mContent.getDestinationPage());
 
         cancelRunningAnimations();
+        trackFrames(FrameStatsTracker.ACTION_FOLDER_CLOSE, true);
         AnimatorSet a = new FolderAnimationManager(this, false /* isOpening */).getAnimator();
         a.addListener(new AnimatorListenerAdapter() {
             @Override
@@ -866,6 +870,7 @@ public class Folder extends AbstractFloatingView implements ClipPathView, DragSo
                 closeComplete(true);
                 announceAccessibilityChanges();
                 mIsAnimatingClosed = false;
+                trackFrames(FrameStatsTracker.ACTION_FOLDER_CLOSE, false);
             }
         });
         startAnimation(a);
@@ -1466,6 +1471,7 @@ public class Folder extends AbstractFloatingView implements ClipPathView, DragSo
     }
 
     private View getViewForInfo(final WorkspaceItemInfo item) {
+        mContent.bindAllPages();
         return mContent.iterateOverItems((info, view) -> info == item);
     }
 
@@ -1485,6 +1491,7 @@ public class Folder extends AbstractFloatingView implements ClipPathView, DragSo
      * Returns the sorted list of all the icons in the folder
      */
     public ArrayList<View> getIconsInReadingOrder() {
+        mContent.bindAllPages();
         if (mItemsInvalidated) {
             mItemsInReadingOrder.clear();
             mContent.iterateOverItems((i, v) -> !mItemsInReadingOrder.add(v));
@@ -1493,23 +1500,34 @@ public class Folder extends AbstractFloatingView implements ClipPathView, DragSo
         return mItemsInReadingOrder;
     }
 
+    /**
+     * Returns the icons of the page in reading order, without binding the other pages
+     */
     public List<BubbleTextView> getItemsOnPage(int page) {
-        ArrayList<View> allItems = getIconsInReadingOrder();
-        int lastPage = mContent.getPageCount() - 1;
-        int totalItemsInFolder = allItems.size();
-        int itemsPerPage = mContent.itemsPerPage();
-        int numItemsOnCurrentPage = page == lastPage
-                ? totalItemsInFolder - (itemsPerPage * page)
-                : itemsPerPage;
-
-        int startIndex = page * itemsPerPage;
-        int endIndex = Math.min(startIndex + numItemsOnCurrentPage, allItems.size());
-
-        List<BubbleTextView> itemsOnCurrentPage = new ArrayList<>(numItemsOnCurrentPage);
-        for (int i = startIndex; i < endIndex; ++i) {
-            itemsOnCurrentPage.add((BubbleTextView) allItems.get(i));
-        }
-        return itemsOnCurrentPage;
+        return mContent.getItemsOnPage(page);
+    }
+
+    /**
+     * Starts or stops recording the frames of a folder action, when shown in Launcher
+     */
+    void trackFrames(String action, boolean start) {
+        Launcher launcher = mLauncherDelegate.getLauncher();
+        if (launcher == null) {
+            return;
+        }
+        if (start) {
+            launcher.getFrameStatsTracker().begin(action);
+        } else {
+            launcher.getFrameStatsTracker().end(action);
+        }
+    }
+
+    /**
+     * Returns true if the folder is open and its items are at rest, so that the icons of the
+     * pages out of view can be recycled
+     */
+    boolean canRecyclePages() {
+        return mState == STATE_OPEN && !mDragInProgress;
     }
 
     @Override
@@ -154,14 +154,20 @@ public class FolderGridOrganizer {
      * Returns the preview items for the provided pageNo using the full list of contents
      */
     public <T, R extends T> ArrayList<R> previewItemsForPage(int page, List<T> contents) {
-        ArrayList<R> result = new ArrayList<>();
         int itemsPerPage = mCountX * mCountY;
-        int start = itemsPerPage * page;
+        int start = Math.min(itemsPerPage * page, contents.size());
         int end = Math.min(start + itemsPerPage, contents.size());
+        return previewItemsOnPage(page, contents.subList(start, end));
+    }
 
-        for (int i = start, rank = 0; i < end; i++, rank++) {
+    /**
+     * Returns the preview items for the provided pageNo using the contents of that page only
+     */
+    public <T, R extends T> ArrayList<R> previewItemsOnPage(int page, List<T> pageContents) {
+        ArrayList<R> result = new ArrayList<>();
+        for (int rank = 0; rank < pageContents.size(); rank++) {
             if (isItemInPreview(page, rank)) {
-                result.add((R) contents.get(i));
+                result.add((R) pageContents.get(rank));
             }
 
             if (result.size() == MAX_NUM_ITEMS_IN_PREVIEW) {
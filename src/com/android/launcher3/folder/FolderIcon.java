@@ -58,6 +58,7 @@ import com.android.launcher3.Workspace;
 import com.android.launcher3.allapps.ActivityAllAppsContainerView;
 import com.android.launcher3.anim.Interpolators;
 import com.android.launcher3.celllayout.CellLayoutLayoutParams;
+import com.android.launcher3.dot.DotViewIndex;
 import com.android.launcher3.dot.FolderDotInfo;
 import com.android.launcher3.dragndrop.BaseItemDragListener;
 import com.android.launcher3.dragndrop.DragLayer;
@@ -260,6 +261,7 @@ public class FolderIcon extends FrameLayout implements FolderListener, IconLabel
             mInfo.removeListener(this);
             mInfo.removeListener(mFolder);
             mInfo = null;
+            updateDotViewIndex();
         }
     }
 
@@ -698,8 +700,48 @@ public class FolderIcon extends FrameLayout implements FolderListener, IconLabel
         return mPreviewItemManager.verifyDrawable(who) || super.verifyDrawable(who);
     }
 
+    @Override
+    public void invalidateDrawable(@NonNull Drawable drawable) {
+        if (mPreviewItemManager.verifyDrawable(drawable)) {
+            mPreviewItemManager.invalidatePreviewCache();
+        }
+        super.invalidateDrawable(drawable);
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        updateDotViewIndex();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        mPreviewItemManager.discardPreviewCache();
+        DotViewIndex index = mActivity == null ? null : mActivity.getDotViewIndex();
+        if (index != null) {
+            index.remove(this);
+        }
+    }
+
+    /**
+     * Indexes this icon under the packages of the folder contents while it is attached
+     */
+    private void updateDotViewIndex() {
+        DotViewIndex index = mActivity == null ? null : mActivity.getDotViewIndex();
+        if (index == null || !isAttachedToWindow()) {
+            return;
+        }
+        if (mInfo != null) {
+            index.add(this, mInfo);
+        } else {
+            index.remove(this);
+        }
+    }
+
     @Override
     public void onItemsChanged(boolean animate) {
+        updateDotViewIndex();
         updatePreviewItems(animate);
         invalidate();
         requestLayout();
@@ -720,6 +762,7 @@ public class FolderIcon extends FrameLayout implements FolderListener, IconLabel
 
     @Override
     public void onAdd(WorkspaceItemInfo item, int rank) {
+        updateDotViewIndex();
         updatePreviewItems(false);
         boolean wasDotted = mDotInfo.hasDot();
         mDotInfo.addDotInfo(mActivity.getDotInfoForItem(item));
@@ -732,6 +775,7 @@ public class FolderIcon extends FrameLayout implements FolderListener, IconLabel
 
     @Override
     public void onRemove(List<WorkspaceItemInfo> items) {
+        updateDotViewIndex();
         updatePreviewItems(false);
         boolean wasDotted = mDotInfo.hasDot();
         items.stream().map(mActivity::getDotInfoForItem).forEach(mDotInfo::subtractDotInfo);
@@ -27,6 +27,7 @@ import android.graphics.drawable.Drawable;
 import android.util.ArrayMap;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.util.SparseArray;
 import android.view.Gravity;
 import android.view.View;
 import android.view.ViewDebug;
@@ -42,7 +43,9 @@ import com.android.launcher3.R;
 import com.android.launcher3.ShortcutAndWidgetContainer;
 import com.android.launcher3.Utilities;
 import com.android.launcher3.celllayout.CellLayoutLayoutParams;
+import com.android.launcher3.config.FeatureFlags;
 import com.android.launcher3.keyboard.ViewGroupFocusHelper;
+import com.android.launcher3.logging.FrameStatsTracker;
 import com.android.launcher3.model.data.ItemInfo;
 import com.android.launcher3.model.data.WorkspaceItemInfo;
 import com.android.launcher3.pageindicators.PageIndicatorDots;
@@ -73,6 +76,16 @@ public class FolderPagedView extends PagedView<PageIndicatorDots> implements Cli
      */
     private static final float SCROLL_HINT_FRACTION = 0.07f;
 
+    /**
+     * Number of pages on each side of the current page whose icons are bound.
+     */
+    private static final int BOUND_PAGE_RANGE = 1;
+
+    /**
+     * Maximum number of pages whose icons are bound at once.
+     */
+    public static final int MAX_BOUND_PAGES = 2 * BOUND_PAGE_RANGE + 1;
+
     private static final int[] sTmpArray = new int[2];
 
     public final boolean mIsRtl;
@@ -98,6 +111,10 @@ public class FolderPagedView extends PagedView<PageIndicatorDots> implements Cli
     // animating or is open.
     private boolean mViewsBound = false;
 
+    // Items of the pages whose icons are not bound yet, by page and position in the page. Any
+    // change to the arrangement binds all the pages first, see #bindAllPages()
+    private final SparseArray<WorkspaceItemInfo[]> mUnboundPages = new SparseArray<>();
+
     public FolderPagedView(Context context, AttributeSet attrs) {
         super(context, attrs);
         InvariantDeviceProfile profile = LauncherAppState.getIDP(context);
@@ -146,16 +163,112 @@ public class FolderPagedView extends PagedView<PageIndicatorDots> implements Cli
     }
 
     /**
-     * Binds items to the layout.
+     * Binds items to the layout, only creating the icons of the pages around {@param pageNo}.
+     * The icons of the other pages are created as they are scrolled to.
      */
-    public void bindItems(List<WorkspaceItemInfo> items) {
+    public void bindItems(List<WorkspaceItemInfo> items, int pageNo) {
         if (mViewsBound) {
             unbindItems();
         }
-        arrangeChildren(items.stream().map(this::createNewView).collect(Collectors.toList()));
+        if (!FeatureFlags.ENABLE_LAZY_FOLDER_PAGES.get()) {
+            arrangeChildren(items.stream().map(this::createNewView).collect(Collectors.toList()));
+            mViewsBound = true;
+            return;
+        }
+
+        int itemsPerPage = mOrganizer.getMaxItemsPerPage();
+        ArrayList<View> views = new ArrayList<>(items.size());
+        for (int rank = 0; rank < items.size(); rank++) {
+            int page = rank / itemsPerPage;
+            WorkspaceItemInfo item = items.get(rank);
+            if (Math.abs(page - pageNo) <= BOUND_PAGE_RANGE) {
+                views.add(createNewView(item));
+            } else {
+                WorkspaceItemInfo[] pageItems = mUnboundPages.get(page);
+                if (pageItems == null) {
+                    pageItems = new WorkspaceItemInfo[itemsPerPage];
+                    mUnboundPages.put(page, pageItems);
+                }
+                pageItems[rank % itemsPerPage] = item;
+                views.add(null);
+            }
+        }
+        arrangeChildren(views);
         mViewsBound = true;
     }
 
+    /**
+     * Creates the icons of all the pages which were not bound yet. This must be called before
+     * any change to the arrangement of the items.
+     */
+    public void bindAllPages() {
+        for (int i = mUnboundPages.size() - 1; i >= 0; i--) {
+            bindPage(mUnboundPages.keyAt(i));
+        }
+    }
+
+    private void bindPagesAround(int pageNo) {
+        if (mUnboundPages.size() == 0) {
+            return;
+        }
+        for (int i = pageNo - BOUND_PAGE_RANGE; i <= pageNo + BOUND_PAGE_RANGE; i++) {
+            bindPage(i);
+        }
+    }
+
+    private void bindPage(int pageNo) {
+        WorkspaceItemInfo[] pageItems = mUnboundPages.get(pageNo);
+        if (pageItems == null) {
+            return;
+        }
+        mUnboundPages.remove(pageNo);
+        CellLayout page = getPageAt(pageNo);
+        for (int pos = 0; pos < pageItems.length; pos++) {
+            WorkspaceItemInfo item = pageItems[pos];
+            if (item != null) {
+                View v = createNewView(item);
+                CellLayoutLayoutParams lp = (CellLayoutLayoutParams) v.getLayoutParams();
+                lp.setCellXY(mOrganizer.getPosForRank(pos));
+                page.addViewToCellLayout(v, -1, item.getViewId(), lp, true);
+            }
+        }
+        mFolder.mItemsInvalidated = true;
+    }
+
+    /**
+     * Recycles the icons of the pages out of the bound range, keeping their items to bind them
+     * again when they are scrolled to.
+     */
+    private void recycleFarPages() {
+        if (!mViewsBound || !mPendingAnimations.isEmpty() || !mFolder.canRecyclePages()
+                || !FeatureFlags.ENABLE_LAZY_FOLDER_PAGES.get()) {
+            return;
+        }
+        int currentPage = getCurrentPage();
+        for (int i = getPageCount() - 1; i >= 0; i--) {
+            if (Math.abs(i - currentPage) > BOUND_PAGE_RANGE && mUnboundPages.get(i) == null) {
+                recyclePage(i);
+            }
+        }
+    }
+
+    private void recyclePage(int pageNo) {
+        CellLayout page = getPageAt(pageNo);
+        ShortcutAndWidgetContainer container = page.getShortcutsAndWidgets();
+        WorkspaceItemInfo[] pageItems = new WorkspaceItemInfo[mOrganizer.getMaxItemsPerPage()];
+        for (int i = container.getChildCount() - 1; i >= 0; i--) {
+            View v = container.getChildAt(i);
+            CellLayoutLayoutParams lp = (CellLayoutLayoutParams) v.getLayoutParams();
+            int pos = lp.getCellY() * mGridCountX + lp.getCellX();
+            pageItems[pos] = (WorkspaceItemInfo) v.getTag();
+            v.setVisibility(View.VISIBLE);
+            mViewCache.recycleView(R.layout.folder_application, v);
+        }
+        page.removeAllViews();
+        mUnboundPages.put(pageNo, pageItems);
+        mFolder.mItemsInvalidated = true;
+    }
+
     /**
      * Removes all the icons from the folder
      */
@@ -171,6 +284,7 @@ public class FolderPagedView extends PagedView<PageIndicatorDots> implements Cli
             mViewCache.recycleView(R.layout.folder_page, page);
         }
         removeAllViews();
+        mUnboundPages.clear();
         mViewsBound = false;
     }
 
@@ -275,6 +389,9 @@ public class FolderPagedView extends PagedView<PageIndicatorDots> implements Cli
     protected void onScrollChanged(int l, int t, int oldl, int oldt) {
         super.onScrollChanged(l, t, oldl, oldt);
         if (mMaxScroll > 0) mPageIndicator.setScroll(l, mMaxScroll);
+        if (mUnboundPages.size() > 0) {
+            bindPagesAround(getPageNearestToCenterOfScreen());
+        }
     }
 
     /**
@@ -395,7 +512,8 @@ public class FolderPagedView extends PagedView<PageIndicatorDots> implements Cli
     }
 
     /**
-     * Iterates over all its items in a reading order.
+     * Iterates over all its bound items in a reading order. Items of the pages which are not
+     * bound yet are skipped, they are created up to date when bound.
      * @return the view for which the operator returned true.
      */
     public View iterateOverItems(ItemOperator op) {
@@ -427,8 +545,29 @@ public class FolderPagedView extends PagedView<PageIndicatorDots> implements Cli
         }
     }
 
+    /**
+     * Returns the icons of the page in reading order
+     */
+    public List<BubbleTextView> getItemsOnPage(int pageNo) {
+        ArrayList<BubbleTextView> items = new ArrayList<>();
+        CellLayout page = getPageAt(pageNo);
+        if (page == null) {
+            return items;
+        }
+        for (int j = 0; j < page.getCountY(); j++) {
+            for (int i = 0; i < page.getCountX(); i++) {
+                View v = page.getChildAt(i, j);
+                if (v instanceof BubbleTextView) {
+                    items.add((BubbleTextView) v);
+                }
+            }
+        }
+        return items;
+    }
+
     @Override
     protected void notifyPageSwitchListener(int prevPage) {
+        bindPagesAround(getNextPage());
         super.notifyPageSwitchListener(prevPage);
         if (mFolder != null) {
             mFolder.updateTextViewFocus();
@@ -477,11 +616,21 @@ public class FolderPagedView extends PagedView<PageIndicatorDots> implements Cli
     @Override
     protected void onPageBeginTransition() {
         super.onPageBeginTransition();
+        mFolder.trackFrames(FrameStatsTracker.ACTION_FOLDER_SCROLL, true);
+        bindPagesAround(getCurrentPage());
+        bindPagesAround(getNextPage());
         // Ensure that adjacent pages have high resolution icons
         verifyVisibleHighResIcons(getCurrentPage() - 1);
         verifyVisibleHighResIcons(getCurrentPage() + 1);
     }
 
+    @Override
+    protected void onPageEndTransition() {
+        super.onPageEndTransition();
+        mFolder.trackFrames(FrameStatsTracker.ACTION_FOLDER_SCROLL, false);
+        recycleFarPages();
+    }
+
     /**
      * Ensures that all the icons on the given page are of high-res
      */
@@ -513,6 +662,7 @@ public class FolderPagedView extends PagedView<PageIndicatorDots> implements Cli
         if (!mViewsBound) {
             return;
         }
+        bindAllPages();
         completePendingPageChanges();
         int delay = 0;
         float delayAmount = START_VIEW_REORDER_DELAY;
@@ -32,14 +32,18 @@ import android.graphics.Canvas;
 import android.graphics.Path;
 import android.graphics.PointF;
 import android.graphics.Rect;
+import android.graphics.RenderNode;
 import android.graphics.drawable.Drawable;
 import android.util.FloatProperty;
 import android.view.View;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 
 import com.android.launcher3.BubbleTextView;
 import com.android.launcher3.Utilities;
+import com.android.launcher3.config.FeatureFlags;
 import com.android.launcher3.graphics.PreloadIconDrawable;
 import com.android.launcher3.model.data.ItemInfoWithIcon;
 import com.android.launcher3.model.data.WorkspaceItemInfo;
@@ -93,6 +97,13 @@ public class PreviewItemManager {
     private float mCurrentPageItemsTransX = 0;
     private boolean mShouldSlideInFirstPage;
 
+    // Recording of the preview items at rest, replayed as long as nothing about them changes
+    @Nullable
+    private RenderNode mPreviewCache;
+    private boolean mPreviewCacheValid;
+    private float mPreviewCacheOffsetX;
+    private float mPreviewCacheOffsetY;
+
     static final int INITIAL_ITEM_ANIMATION_DURATION = 350;
     private static final int FINAL_ITEM_ANIMATION_DURATION = 200;
 
@@ -148,6 +159,7 @@ public class PreviewItemManager {
             mIcon.mPreviewLayoutRule.init(mIcon.mBackground.previewSize, mIntrinsicIconSize,
                     Utilities.isRtl(mIcon.getResources()));
 
+            invalidatePreviewCache();
             updatePreviewItems(false);
         }
     }
@@ -189,6 +201,67 @@ public class PreviewItemManager {
      * Draws the preview items on {@param canvas}.
      */
     public void draw(Canvas canvas) {
+        PreviewBackground bg = mIcon.getFolderBackground();
+        if (!canUsePreviewCache(canvas)) {
+            drawPreviewItems(canvas);
+            return;
+        }
+        if (!mPreviewCacheValid || mPreviewCacheOffsetX != bg.basePreviewOffsetX
+                || mPreviewCacheOffsetY != bg.basePreviewOffsetY) {
+            if (mPreviewCache == null) {
+                mPreviewCache = new RenderNode("FolderIconPreview");
+                mPreviewCache.setClipToBounds(false);
+            }
+            mPreviewCache.setPosition(0, 0, mIcon.getWidth(), mIcon.getHeight());
+            drawPreviewItems(mPreviewCache.beginRecording());
+            mPreviewCache.endRecording();
+            mPreviewCacheValid = true;
+            mPreviewCacheOffsetX = bg.basePreviewOffsetX;
+            mPreviewCacheOffsetY = bg.basePreviewOffsetY;
+        }
+        canvas.drawRenderNode(mPreviewCache);
+    }
+
+    /**
+     * Returns true if the preview items are at rest and can be drawn from a recording
+     */
+    private boolean canUsePreviewCache(Canvas canvas) {
+        if (!Utilities.ATLEAST_Q || !canvas.isHardwareAccelerated()
+                || !FeatureFlags.ENABLE_FOLDER_PREVIEW_CACHE.get() || mShouldSlideInFirstPage) {
+            return false;
+        }
+        for (int i = 0; i < mFirstPageParams.size(); i++) {
+            PreviewItemDrawingParams p = mFirstPageParams.get(i);
+            if (p.anim != null || p.drawable instanceof PreloadIconDrawable) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Drops the recording of the preview items, so that it is redrawn on the next frame
+     */
+    void invalidatePreviewCache() {
+        mPreviewCacheValid = false;
+    }
+
+    @VisibleForTesting
+    boolean isPreviewCacheValid() {
+        return mPreviewCacheValid;
+    }
+
+    /**
+     * Releases the recording of the preview items, when the icon is no longer shown
+     */
+    void discardPreviewCache() {
+        mPreviewCacheValid = false;
+        if (mPreviewCache != null) {
+            mPreviewCache.discardDisplayList();
+        }
+    }
+
+    private void drawPreviewItems(Canvas canvas) {
         int saveCount = canvas.getSaveCount();
         // The items are drawn in coordinates relative to the preview offset
         PreviewBackground bg = mIcon.getFolderBackground();
@@ -210,6 +283,7 @@ public class PreviewItemManager {
     }
 
     public void onParamsChanged() {
+        invalidatePreviewCache();
         mIcon.invalidate();
     }
 
@@ -249,13 +323,15 @@ public class PreviewItemManager {
 
         PreviewItemDrawingParams params = index < mFirstPageParams.size() ?
                 mFirstPageParams.get(index) : null;
-        if (params != null) {
+        if (params != null && params.hidden != hidden) {
             params.hidden = hidden;
+            invalidatePreviewCache();
         }
     }
 
     void buildParamsForPage(int page, ArrayList<PreviewItemDrawingParams> params, boolean animate) {
         List<WorkspaceItemInfo> items = mIcon.getPreviewItemsOnPage(page);
+        invalidatePreviewCache();
 
         // We adjust the size of the list to match the number of items in the preview.
         while (items.size() < params.size()) {
@@ -297,6 +373,17 @@ public class PreviewItemManager {
     }
 
     void onFolderClose(int currentPage) {
+        // The items may have changed while the folder was open, and the icons of the folder may
+        // have taken over the callbacks of the preview drawables. Take them back and record the
+        // preview again.
+        for (int i = 0; i < mFirstPageParams.size(); i++) {
+            Drawable d = mFirstPageParams.get(i).drawable;
+            if (d != null) {
+                d.setCallback(mIcon);
+            }
+        }
+        invalidatePreviewCache();
+
         // If we are not closing on the first page, we animate the current page preview items
         // out, and animate the first page preview items in.
         mShouldSlideInFirstPage = currentPage != 0;
@@ -438,6 +525,7 @@ public class PreviewItemManager {
         }
         p.drawable.setBounds(0, 0, mIconSize, mIconSize);
         p.item = item;
+        invalidatePreviewCache();
 
         // Set the callback to FolderIcon as it is responsible to drawing the icon. The
         // callback will be released when the folder is opened.
@@ -0,0 +1,238 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.graphics;
+
+import static com.android.launcher3.util.Executors.MAIN_EXECUTOR;
+
+import android.app.WallpaperColors;
+import android.appwidget.AppWidgetProviderInfo;
+import android.content.Context;
+import android.graphics.Bitmap;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.android.launcher3.InvariantDeviceProfile;
+import com.android.launcher3.LauncherAppState;
+import com.android.launcher3.LauncherProvider;
+import com.android.launcher3.model.BgDataModel;
+import com.android.launcher3.util.ComponentKey;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of loaded grid previews, so that going back to a grid option in the picker does not
+ * migrate and load the workspace from the database again. Entries are keyed by grid option,
+ * wallpaper colors and the version of the launcher data, and can hold the last rendered
+ * preview to also skip inflating the workspace.
+ * <p>
+ * The cache is cleared once no preview has used it for a while, so the loaded models are not kept
+ * after the picker is closed.
+ */
+class PreviewCache {
+
+    private static final int MAX_ENTRIES = 4;
+
+    // Time to keep the entries after the last one was released, covers switching grid options
+    private static final long IDLE_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(10);
+
+    static final PreviewCache INSTANCE = new PreviewCache();
+
+    private final LinkedHashMap<Key, Entry> mEntries = new LinkedHashMap<>(
+            MAX_ENTRIES, 0.75f, true /* accessOrder */);
+    private final Runnable mClearRunnable = this::clearIfIdle;
+
+    // Number of acquired entries which are not released yet
+    private int mAcquiredCount;
+
+    private PreviewCache() { }
+
+    /**
+     * Returns the entry for the key, acquired for the caller, or null
+     */
+    @Nullable
+    synchronized Entry acquire(Key key) {
+        Entry entry = mEntries.get(key);
+        if (entry != null) {
+            entry.mRefCount++;
+            onAcquired();
+        }
+        return entry;
+    }
+
+    /**
+     * Adds an entry for the key, acquired for the caller. Entries loaded from older launcher
+     * data can no longer be used and are evicted.
+     */
+    synchronized void put(Key key, Entry entry) {
+        entry.mRefCount++;
+        onAcquired();
+        Iterator<Map.Entry<Key, Entry>> iterator = mEntries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, Entry> existing = iterator.next();
+            if (existing.getKey().mDataVersion != key.mDataVersion
+                    || existing.getKey().equals(key)) {
+                iterator.remove();
+                evict(existing.getValue());
+            }
+        }
+        mEntries.put(key, entry);
+        while (mEntries.size() > MAX_ENTRIES) {
+            iterator = mEntries.entrySet().iterator();
+            Entry eldest = iterator.next().getValue();
+            iterator.remove();
+            evict(eldest);
+        }
+    }
+
+    /**
+     * Releases an entry acquired from this cache, it is destroyed once it was evicted and no
+     * longer in use.
+     */
+    synchronized void release(Entry entry) {
+        entry.mRefCount--;
+        if (entry.mEvicted && entry.mRefCount == 0) {
+            entry.destroy();
+        }
+        mAcquiredCount--;
+        if (mAcquiredCount == 0) {
+            MAIN_EXECUTOR.getHandler().postDelayed(mClearRunnable, IDLE_TIMEOUT_MS);
+        }
+    }
+
+    private void onAcquired() {
+        mAcquiredCount++;
+        MAIN_EXECUTOR.getHandler().removeCallbacks(mClearRunnable);
+    }
+
+    private synchronized void clearIfIdle() {
+        if (mAcquiredCount > 0) {
+            return;
+        }
+        for (Entry entry : mEntries.values()) {
+            evict(entry);
+        }
+        mEntries.clear();
+    }
+
+    private void evict(Entry entry) {
+        entry.mEvicted = true;
+        if (entry.mRefCount == 0) {
+            entry.destroy();
+        }
+    }
+
+    /**
+     * Identifies a preview. Any change to the launcher data or to the icons gives a new key.
+     */
+    static class Key {
+
+        private final String mGridName;
+        private final String mCurrentGridName;
+        @Nullable
+        private final WallpaperColors mWallpaperColors;
+        private final String mIconState;
+        private final int mDataVersion;
+
+        @WorkerThread
+        Key(Context context, InvariantDeviceProfile idp, @Nullable WallpaperColors colors) {
+            mGridName = idp.dbFile;
+            mCurrentGridName = InvariantDeviceProfile.getCurrentGridName(context);
+            mWallpaperColors = colors;
+            mIconState = LauncherAppState.getInstance(context).getIconProvider()
+                    .getSystemIconState();
+            mDataVersion = LauncherProvider.getDataVersion();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return mDataVersion == key.mDataVersion
+                    && Objects.equals(mGridName, key.mGridName)
+                    && Objects.equals(mCurrentGridName, key.mCurrentGridName)
+                    && Objects.equals(mWallpaperColors, key.mWallpaperColors)
+                    && Objects.equals(mIconState, key.mIconState);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mGridName, mCurrentGridName, mWallpaperColors, mIconState,
+                    mDataVersion);
+        }
+    }
+
+    /**
+     * A loaded preview: the context to inflate it with, the model, and the last rendered
+     * bitmap if any.
+     */
+    static class Entry {
+
+        final Context inflationContext;
+        final BgDataModel dataModel;
+        @Nullable
+        final Map<ComponentKey, AppWidgetProviderInfo> widgetProviderInfoMap;
+        @Nullable
+        private final Runnable mOnDestroy;
+
+        // Guarded by the cache
+        private int mRefCount;
+        private boolean mEvicted;
+
+        @Nullable
+        private Bitmap mBitmap;
+        private int mBitmapSurfaceWidth;
+        private int mBitmapSurfaceHeight;
+
+        Entry(Context inflationContext, BgDataModel dataModel,
+                @Nullable Map<ComponentKey, AppWidgetProviderInfo> widgetProviderInfoMap,
+                @Nullable Runnable onDestroy) {
+            this.inflationContext = inflationContext;
+            this.dataModel = dataModel;
+            this.widgetProviderInfoMap = widgetProviderInfoMap;
+            mOnDestroy = onDestroy;
+        }
+
+        /**
+         * Returns the preview rendered for a surface of the given size, or null
+         */
+        @Nullable
+        synchronized Bitmap getBitmap(int surfaceWidth, int surfaceHeight) {
+            return surfaceWidth == mBitmapSurfaceWidth && surfaceHeight == mBitmapSurfaceHeight
+                    ? mBitmap : null;
+        }
+
+        synchronized void setBitmap(Bitmap bitmap, int surfaceWidth, int surfaceHeight) {
+            mBitmap = bitmap;
+            mBitmapSurfaceWidth = surfaceWidth;
+            mBitmapSurfaceHeight = surfaceHeight;
+        }
+
+        private void destroy() {
+            synchronized (this) {
+                mBitmap = null;
+            }
+            if (mOnDestroy != null) {
+                MAIN_EXECUTOR.execute(mOnDestroy);
+            }
+        }
+    }
+}
@@ -20,8 +20,8 @@ import static com.android.launcher3.util.Executors.MAIN_EXECUTOR;
 import static com.android.launcher3.util.Executors.MODEL_EXECUTOR;
 
 import android.app.WallpaperColors;
-import android.appwidget.AppWidgetProviderInfo;
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.hardware.display.DisplayManager;
 import android.os.Bundle;
 import android.os.IBinder;
@@ -31,8 +31,10 @@ import android.view.Display;
 import android.view.SurfaceControlViewHost;
 import android.view.SurfaceControlViewHost.SurfacePackage;
 import android.view.View;
+import android.view.View.MeasureSpec;
 import android.view.WindowManager.LayoutParams;
 import android.view.animation.AccelerateDecelerateInterpolator;
+import android.widget.ImageView;
 
 import androidx.annotation.UiThread;
 import androidx.annotation.WorkerThread;
@@ -44,16 +46,15 @@ import com.android.launcher3.LauncherSettings;
 import com.android.launcher3.Utilities;
 import com.android.launcher3.Workspace;
 import com.android.launcher3.graphics.LauncherPreviewRenderer.PreviewContext;
+import com.android.launcher3.icons.BitmapRenderer;
 import com.android.launcher3.model.BgDataModel;
 import com.android.launcher3.model.GridSizeMigrationTaskV2;
 import com.android.launcher3.model.LoaderTask;
-import com.android.launcher3.util.ComponentKey;
 import com.android.launcher3.util.RunnableList;
 import com.android.launcher3.util.Themes;
 import com.android.launcher3.widget.LocalColorExtractor;
 
 import java.util.ArrayList;
-import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -134,6 +135,14 @@ public class PreviewSurfaceRenderer {
 
     @WorkerThread
     private void loadModelData() {
+        // Computed before migrating, so that the entry is keyed by the data it was loaded from
+        final PreviewCache.Key cacheKey = new PreviewCache.Key(mContext, mIdp, mWallpaperColors);
+        final PreviewCache.Entry cached = PreviewCache.INSTANCE.acquire(cacheKey);
+        if (cached != null) {
+            MAIN_EXECUTOR.execute(() -> renderEntry(cached));
+            return;
+        }
+
         final boolean migrated = doGridMigrationIfNecessary();
 
         final Context inflationContext;
@@ -176,16 +185,19 @@ public class PreviewSurfaceRenderer {
                     loadWorkspace(new ArrayList<>(), LauncherSettings.Favorites.PREVIEW_CONTENT_URI,
                             query);
 
-                    MAIN_EXECUTOR.execute(() -> {
-                        renderView(previewContext, mBgDataModel, mWidgetProvidersMap);
-                        mOnDestroyCallbacks.add(previewContext::onDestroy);
-                    });
+                    PreviewCache.Entry entry = new PreviewCache.Entry(previewContext,
+                            mBgDataModel, mWidgetProvidersMap, previewContext::onDestroy);
+                    PreviewCache.INSTANCE.put(cacheKey, entry);
+                    MAIN_EXECUTOR.execute(() -> renderEntry(entry));
                 }
             }.run();
         } else {
             LauncherAppState.getInstance(inflationContext).getModel().loadAsync(dataModel -> {
                 if (dataModel != null) {
-                    MAIN_EXECUTOR.execute(() -> renderView(inflationContext, dataModel, null));
+                    PreviewCache.Entry entry = new PreviewCache.Entry(
+                            inflationContext, dataModel, null, null);
+                    PreviewCache.INSTANCE.put(cacheKey, entry);
+                    MAIN_EXECUTOR.execute(() -> renderEntry(entry));
                 } else {
                     Log.e(TAG, "Model loading failed");
                 }
@@ -201,14 +213,52 @@ public class PreviewSurfaceRenderer {
         return GridSizeMigrationTaskV2.migrateGridIfNeeded(mContext, mIdp);
     }
 
+    /**
+     * Renders the entry, keeping it acquired until the preview is destroyed
+     */
     @UiThread
-    private void renderView(Context inflationContext, BgDataModel dataModel,
-                            Map<ComponentKey, AppWidgetProviderInfo> widgetProviderInfoMap) {
+    private void renderEntry(PreviewCache.Entry entry) {
         if (mDestroyed) {
+            PreviewCache.INSTANCE.release(entry);
+            return;
+        }
+        mOnDestroyCallbacks.add(() -> PreviewCache.INSTANCE.release(entry));
+
+        Bitmap bitmap = entry.getBitmap(mWidth, mHeight);
+        if (bitmap != null) {
+            // Show the preview rendered last time instead of inflating the workspace again
+            ImageView view = new ImageView(mContext);
+            view.setScaleType(ImageView.ScaleType.FIT_XY);
+            view.setImageBitmap(bitmap);
+            DeviceProfile dp = mIdp.getDeviceProfile(entry.inflationContext);
+            view.measure(MeasureSpec.makeMeasureSpec(dp.widthPx, MeasureSpec.EXACTLY),
+                    MeasureSpec.makeMeasureSpec(dp.heightPx, MeasureSpec.EXACTLY));
+            view.layout(0, 0, dp.widthPx, dp.heightPx);
+            showView(view, null);
             return;
         }
-        View view = new LauncherPreviewRenderer(inflationContext, mIdp, mWallpaperColors)
-                .getRenderedView(dataModel, widgetProviderInfoMap);
+
+        View view = new LauncherPreviewRenderer(entry.inflationContext, mIdp, mWallpaperColors)
+                .getRenderedView(entry.dataModel, entry.widgetProviderInfoMap);
+        // Capture once shown, so that content bound after inflation is part of the bitmap
+        showView(view, () -> {
+            if (mDestroyed) {
+                return;
+            }
+            float scale = view.getScaleX();
+            int width = Math.round(scale * view.getWidth());
+            int height = Math.round(scale * view.getHeight());
+            if (width > 0 && height > 0) {
+                entry.setBitmap(BitmapRenderer.createHardwareBitmap(width, height, c -> {
+                    c.scale(scale, scale);
+                    view.draw(c);
+                }), mWidth, mHeight);
+            }
+        });
+    }
+
+    @UiThread
+    private void showView(View view, Runnable onShown) {
         // This aspect scales the view to fit in the surface and centers it
         final float scale = Math.min(mWidth / (float) view.getMeasuredWidth(),
                 mHeight / (float) view.getMeasuredHeight());
@@ -222,6 +272,7 @@ public class PreviewSurfaceRenderer {
         view.animate().alpha(1)
                 .setInterpolator(new AccelerateDecelerateInterpolator())
                 .setDuration(FADE_IN_ANIMATION_DURATION)
+                .withEndAction(onShown)
                 .start();
         mSurfaceControlViewHost.setView(view, view.getMeasuredWidth(), view.getMeasuredHeight());
     }
@@ -16,19 +16,33 @@
 
 package com.android.launcher3.icons;
 
+import static com.android.launcher3.util.Executors.THREAD_POOL_EXECUTOR;
+
 import android.content.Context;
+import android.graphics.drawable.Drawable;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.android.launcher3.InvariantDeviceProfile;
 import com.android.launcher3.graphics.IconShape;
 import com.android.launcher3.graphics.LauncherPreviewRenderer;
 import com.android.launcher3.util.Themes;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Wrapper class to provide access to {@link BaseIconFactory} and also to provide pool of this class
  * that are threadsafe.
  */
 public class LauncherIcons extends BaseIconFactory implements AutoCloseable {
 
+    private static final String TAG = "LauncherIcons";
+
     private static final Object sPoolSync = new Object();
     private static LauncherIcons sPool;
     private static int sPoolId = 0;
@@ -57,6 +71,81 @@ public class LauncherIcons extends BaseIconFactory implements AutoCloseable {
         return new LauncherIcons(context, idp.fillResIconDpi, idp.iconBitmapSize, poolId);
     }
 
+    /**
+     * Renders {@param icons} in parallel on the thread pool executor. Every worker obtains its
+     * own factory, so the normalizer, shadow generator and color extractor scratch buffers are
+     * never shared between threads. The calling thread takes part in the work, which keeps this
+     * safe to call from a pool thread. The result is in the same order as the input, and the
+     * same drawable instance must not appear twice since it may be drawn concurrently. Icons
+     * which fail to render on a worker are rendered again on the calling thread.
+     */
+    @NonNull
+    public static List<BitmapInfo> createBadgedIconBitmaps(Context context,
+            @NonNull List<Drawable> icons, @Nullable IconOptions options) {
+        int count = icons.size();
+        BitmapInfo[] result = new BitmapInfo[count];
+        if (count == 0) {
+            return Arrays.asList(result);
+        }
+        AtomicInteger nextIndex = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(count);
+        Runnable worker = () -> {
+            // The factory is obtained before claiming an icon, so a claimed icon is always
+            // counted down
+            try (LauncherIcons li = obtain(context)) {
+                for (int index = nextIndex.getAndIncrement(); index < count;
+                        index = nextIndex.getAndIncrement()) {
+                    try {
+                        result[index] = li.createBadgedIconBitmap(icons.get(index), options);
+                    } catch (RuntimeException e) {
+                        Log.e(TAG, "Failed to render icon " + index + " on a worker", e);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }
+        };
+
+        int helpers = Math.min(count, THREAD_POOL_EXECUTOR.getCorePoolSize()) - 1;
+        for (int i = 0; i < helpers; i++) {
+            THREAD_POOL_EXECUTOR.execute(worker);
+        }
+        worker.run();
+        // Only claimed indices are pending at this point, and those are already being rendered.
+        // Wait for them even if interrupted, as their drawables must not be drawn concurrently.
+        boolean interrupted = false;
+        while (true) {
+            try {
+                done.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Render the failed icons serially, so that errors reach the caller as they would from
+        // createBadgedIconBitmap
+        LauncherIcons fallback = null;
+        try {
+            for (int i = 0; i < count; i++) {
+                if (result[i] == null) {
+                    if (fallback == null) {
+                        fallback = obtain(context);
+                    }
+                    result[i] = fallback.createBadgedIconBitmap(icons.get(i), options);
+                }
+            }
+        } finally {
+            if (fallback != null) {
+                fallback.close();
+            }
+        }
+        return Arrays.asList(result);
+    }
+
     public static void clearPool() {
         synchronized (sPoolSync) {
             sPool = null;
@@ -0,0 +1,379 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.logging;
+
+import static com.android.launcher3.util.Executors.MAIN_EXECUTOR;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.util.ArrayMap;
+import android.view.Choreographer;
+import android.view.FrameMetrics;
+import android.view.Window;
+import android.view.Window.OnFrameMetricsAvailableListener;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.UiThread;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.launcher3.LauncherState;
+import com.android.launcher3.config.FeatureFlags;
+import com.android.launcher3.statemanager.StateManager.StateListener;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Records the frames drawn while launcher transitions and actions are running, such as state
+ * changes, page scrolls and folder animations, to measure jank without external tooling.
+ * <p>
+ * The duration of every frame is read from {@link FrameMetrics}, and the frames skipped because
+ * the main thread was blocked are counted from the gaps between {@link Choreographer} frames.
+ * Stats are aggregated by action and by the {@link LauncherState} the action started in.
+ */
+@UiThread
+public class FrameStatsTracker implements StateListener<LauncherState> {
+
+    public static final String ACTION_STATE_TRANSITION = "state_transition";
+    public static final String ACTION_WORKSPACE_SCROLL = "workspace_scroll";
+    public static final String ACTION_FOLDER_SCROLL = "folder_scroll";
+    public static final String ACTION_FOLDER_OPEN = "folder_open";
+    public static final String ACTION_FOLDER_CLOSE = "folder_close";
+
+    public static final String KEY_SESSIONS = "sessions";
+    public static final String KEY_FRAMES = "frames";
+    public static final String KEY_JANKY_FRAMES = "janky_frames";
+    public static final String KEY_MISSED_FRAMES = "missed_frames";
+    public static final String KEY_BLOCKING_SPANS = "blocking_spans";
+    public static final String KEY_P90_FRAME_MS = "p90_frame_ms";
+    public static final String KEY_MAX_FRAME_MS = "max_frame_ms";
+    public static final String KEY_MAX_BLOCKING_MS = "max_blocking_ms";
+
+    // Frame metrics are reported after the frame is rendered, an action only stops collecting
+    // frames once the frames drawn before its end were reported
+    private static final long FINISH_DELAY_MS = 200;
+    // Frame durations are bucketed by millisecond up to this duration
+    private static final int MAX_HISTOGRAM_MS = 150;
+
+    @Nullable
+    private final Window mWindow;
+    private final Supplier<LauncherState> mStateSupplier;
+    private final IntSupplier mSingleFrameMs;
+    private final Handler mHandler = MAIN_EXECUTOR.getHandler();
+
+    // Running actions, by action
+    private final ArrayMap<String, Session> mActive = new ArrayMap<>();
+    // Ended actions still collecting the frames drawn before their end
+    private final ArrayList<Session> mFinishing = new ArrayList<>();
+    // Stats of the finished actions, by action and state
+    private final ArrayMap<String, Stats> mStats = new ArrayMap<>();
+
+    private final OnFrameMetricsAvailableListener mFrameMetricsListener =
+            (window, frameMetrics, dropCount) -> onFrame(
+                    frameMetrics.getMetric(FrameMetrics.INTENDED_VSYNC_TIMESTAMP),
+                    frameMetrics.getMetric(FrameMetrics.TOTAL_DURATION));
+    private final Choreographer.FrameCallback mFrameCallback = this::onChoreographerFrame;
+    private final Runnable mFinishRunnable = this::finishSessions;
+
+    private boolean mListening;
+    private boolean mFrameCallbackPosted;
+    private long mLastFrameTimeNanos;
+    private long mFrameIntervalNanos;
+
+    // The state the next state transition starts from
+    private LauncherState mCurrentState;
+
+    /**
+     * @param window the window to read the frame durations from, or null to only collect the
+     *               frames reported to {@link #onFrame} and {@link #onChoreographerFrame}
+     */
+    public FrameStatsTracker(@Nullable Window window, Supplier<LauncherState> stateSupplier,
+            IntSupplier singleFrameMs) {
+        mWindow = window;
+        mStateSupplier = stateSupplier;
+        mSingleFrameMs = singleFrameMs;
+        mCurrentState = stateSupplier.get();
+    }
+
+    /**
+     * Starts recording the frames of the action, tagged with the current state. Starting an
+     * action which is already running ends it first.
+     */
+    public void begin(String action) {
+        begin(action, action + " in " + mStateSupplier.get());
+    }
+
+    private void begin(String action, String key) {
+        if (!FeatureFlags.ENABLE_FRAME_STATS.get()) {
+            return;
+        }
+        end(action);
+        mActive.put(action, new Session(key, System.nanoTime()));
+        startListening();
+    }
+
+    /**
+     * Stops recording the frames of the action, if it is running
+     */
+    public void end(String action) {
+        Session session = mActive.remove(action);
+        if (session == null) {
+            return;
+        }
+        session.endNanos = System.nanoTime();
+        mFinishing.add(session);
+        mHandler.removeCallbacks(mFinishRunnable);
+        mHandler.postDelayed(mFinishRunnable, FINISH_DELAY_MS);
+    }
+
+    @Override
+    public void onStateTransitionStart(LauncherState toState) {
+        begin(ACTION_STATE_TRANSITION, ACTION_STATE_TRANSITION + " " + mCurrentState
+                + " to " + toState);
+    }
+
+    @Override
+    public void onStateTransitionComplete(LauncherState finalState) {
+        end(ACTION_STATE_TRANSITION);
+        mCurrentState = finalState;
+    }
+
+    private void startListening() {
+        if (!mListening) {
+            mListening = true;
+            mFrameIntervalNanos = TimeUnit.MILLISECONDS.toNanos(
+                    Math.max(1, mSingleFrameMs.getAsInt()));
+            if (mWindow != null) {
+                mWindow.addOnFrameMetricsAvailableListener(mFrameMetricsListener, mHandler);
+            }
+        }
+        postFrameCallback();
+    }
+
+    private void postFrameCallback() {
+        if (mWindow != null && !mFrameCallbackPosted) {
+            mFrameCallbackPosted = true;
+            Choreographer.getInstance().postFrameCallback(mFrameCallback);
+        }
+    }
+
+    private void stopListening() {
+        if (!mListening) {
+            return;
+        }
+        mListening = false;
+        mLastFrameTimeNanos = 0;
+        if (mWindow != null) {
+            mWindow.removeOnFrameMetricsAvailableListener(mFrameMetricsListener);
+            Choreographer.getInstance().removeFrameCallback(mFrameCallback);
+        }
+        mFrameCallbackPosted = false;
+    }
+
+    /**
+     * Adds a drawn frame to the actions running when it was started
+     */
+    @VisibleForTesting
+    void onFrame(long intendedVsyncNanos, long durationNanos) {
+        for (int i = mActive.size() - 1; i >= 0; i--) {
+            mActive.valueAt(i).onFrame(intendedVsyncNanos, durationNanos, mFrameIntervalNanos);
+        }
+        for (int i = mFinishing.size() - 1; i >= 0; i--) {
+            mFinishing.get(i).onFrame(intendedVsyncNanos, durationNanos, mFrameIntervalNanos);
+        }
+    }
+
+    /**
+     * Counts the frames skipped since the previous frame for the running actions
+     */
+    @VisibleForTesting
+    void onChoreographerFrame(long frameTimeNanos) {
+        mFrameCallbackPosted = false;
+        if (mLastFrameTimeNanos != 0) {
+            long gap = frameTimeNanos - mLastFrameTimeNanos;
+            long skippedFrames = (gap + mFrameIntervalNanos / 2) / mFrameIntervalNanos - 1;
+            if (skippedFrames > 0) {
+                for (int i = mActive.size() - 1; i >= 0; i--) {
+                    mActive.valueAt(i).stats.onBlocked(skippedFrames, gap - mFrameIntervalNanos);
+                }
+            }
+        }
+        if (mActive.isEmpty()) {
+            mLastFrameTimeNanos = 0;
+        } else {
+            mLastFrameTimeNanos = frameTimeNanos;
+            postFrameCallback();
+        }
+    }
+
+    /**
+     * Adds the ended actions to the stats
+     */
+    @VisibleForTesting
+    void finishSessions() {
+        mHandler.removeCallbacks(mFinishRunnable);
+        for (Session session : mFinishing) {
+            Stats stats = mStats.get(session.key);
+            if (stats == null) {
+                stats = new Stats();
+                mStats.put(session.key, stats);
+            }
+            stats.add(session.stats);
+        }
+        mFinishing.clear();
+        if (mActive.isEmpty()) {
+            stopListening();
+        }
+    }
+
+    /**
+     * Stops recording frames and drops the running actions
+     */
+    public void destroy() {
+        mActive.clear();
+        mFinishing.clear();
+        mHandler.removeCallbacks(mFinishRunnable);
+        stopListening();
+    }
+
+    /**
+     * Clears the stats of the finished actions
+     */
+    public void reset() {
+        mStats.clear();
+    }
+
+    /**
+     * Returns the stats of the finished actions, by action and state
+     */
+    public Bundle getStats() {
+        Bundle result = new Bundle();
+        for (int i = 0; i < mStats.size(); i++) {
+            result.putBundle(mStats.keyAt(i), mStats.valueAt(i).toBundle());
+        }
+        return result;
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "FrameStatsTracker: running=" + mActive.keySet());
+        for (int i = 0; i < mStats.size(); i++) {
+            writer.println(prefix + "\t" + mStats.keyAt(i) + ": " + mStats.valueAt(i));
+        }
+    }
+
+    private static class Session {
+
+        final String key;
+        final long startNanos;
+        long endNanos = Long.MAX_VALUE;
+        final Stats stats = new Stats();
+
+        Session(String key, long startNanos) {
+            this.key = key;
+            this.startNanos = startNanos;
+            stats.sessions = 1;
+        }
+
+        void onFrame(long intendedVsyncNanos, long durationNanos, long frameIntervalNanos) {
+            if (intendedVsyncNanos >= startNanos && intendedVsyncNanos <= endNanos) {
+                stats.onFrame(durationNanos, frameIntervalNanos);
+            }
+        }
+    }
+
+    private static class Stats {
+
+        int sessions;
+        int frames;
+        int jankyFrames;
+        long missedFrames;
+        int blockingSpans;
+        long maxFrameNanos;
+        long maxBlockingNanos;
+        final int[] frameHistogram = new int[MAX_HISTOGRAM_MS + 1];
+
+        void onFrame(long durationNanos, long frameIntervalNanos) {
+            frames++;
+            if (durationNanos > frameIntervalNanos) {
+                jankyFrames++;
+            }
+            maxFrameNanos = Math.max(maxFrameNanos, durationNanos);
+            int durationMs = (int) TimeUnit.NANOSECONDS.toMillis(durationNanos);
+            frameHistogram[Math.min(durationMs, MAX_HISTOGRAM_MS)]++;
+        }
+
+        void onBlocked(long skippedFrames, long blockingNanos) {
+            missedFrames += skippedFrames;
+            blockingSpans++;
+            maxBlockingNanos = Math.max(maxBlockingNanos, blockingNanos);
+        }
+
+        void add(Stats other) {
+            sessions += other.sessions;
+            frames += other.frames;
+            jankyFrames += other.jankyFrames;
+            missedFrames += other.missedFrames;
+            blockingSpans += other.blockingSpans;
+            maxFrameNanos = Math.max(maxFrameNanos, other.maxFrameNanos);
+            maxBlockingNanos = Math.max(maxBlockingNanos, other.maxBlockingNanos);
+            for (int i = 0; i < frameHistogram.length; i++) {
+                frameHistogram[i] += other.frameHistogram[i];
+            }
+        }
+
+        /**
+         * Returns the frame duration under which the given fraction of the frames were drawn
+         */
+        int getFramePercentileMs(float fraction) {
+            int target = (int) Math.ceil(frames * fraction);
+            int count = 0;
+            for (int i = 0; i < frameHistogram.length; i++) {
+                count += frameHistogram[i];
+                if (count >= target && count > 0) {
+                    return i + 1;
+                }
+            }
+            return 0;
+        }
+
+        Bundle toBundle() {
+            Bundle bundle = new Bundle();
+            bundle.putInt(KEY_SESSIONS, sessions);
+            bundle.putInt(KEY_FRAMES, frames);
+            bundle.putInt(KEY_JANKY_FRAMES, jankyFrames);
+            bundle.putLong(KEY_MISSED_FRAMES, missedFrames);
+            bundle.putInt(KEY_BLOCKING_SPANS, blockingSpans);
+            bundle.putInt(KEY_P90_FRAME_MS, getFramePercentileMs(0.9f));
+            bundle.putLong(KEY_MAX_FRAME_MS, TimeUnit.NANOSECONDS.toMillis(maxFrameNanos));
+            bundle.putLong(KEY_MAX_BLOCKING_MS, TimeUnit.NANOSECONDS.toMillis(maxBlockingNanos));
+            return bundle;
+        }
+
+        @Override
+        public String toString() {
+            return "sessions=" + sessions + " frames=" + frames + " janky=" + jankyFrames
+                    + " missed=" + missedFrames + " p50=" + getFramePercentileMs(0.5f)
+                    + "ms p90=" + getFramePercentileMs(0.9f) + "ms p99="
+                    + getFramePercentileMs(0.99f) + "ms max="
+                    + TimeUnit.NANOSECONDS.toMillis(maxFrameNanos) + "ms blocking="
+                    + blockingSpans + " spans, max "
+                    + TimeUnit.NANOSECONDS.toMillis(maxBlockingNanos) + "ms";
+        }
+    }
+}
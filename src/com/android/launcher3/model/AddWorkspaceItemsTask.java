@@ -15,6 +15,8 @@
  */
 package com.android.launcher3.model;
 
+import static com.android.launcher3.util.Executors.MODEL_EXECUTOR;
+
 import android.content.Intent;
 import android.content.pm.LauncherActivityInfo;
 import android.content.pm.LauncherApps;
@@ -44,6 +46,7 @@ import com.android.launcher3.util.IntArray;
 import com.android.launcher3.util.PackageManagerHelper;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
@@ -129,12 +132,8 @@ public class AddWorkspaceItemsTask extends BaseModelUpdateTask {
                     InstallSessionHelper.INSTANCE.get(app.getContext());
             LauncherApps launcherApps = app.getContext().getSystemService(LauncherApps.class);
 
+            List<ItemInfo> itemsToAdd = new ArrayList<>();
             for (ItemInfo item : filteredItems) {
-                // Find appropriate space for the item.
-                int[] coords = mItemSpaceFinder.findSpaceForItem(app, dataModel, workspaceScreens,
-                        addedWorkspaceScreensFinal, item.spanX, item.spanY);
-                int screenId = coords[0];
-
                 ItemInfo itemInfo;
                 if (item instanceof WorkspaceItemInfo || item instanceof FolderInfo ||
                         item instanceof LauncherAppWidgetInfo) {
@@ -210,16 +209,36 @@ public class AddWorkspaceItemsTask extends BaseModelUpdateTask {
                     }
                 }
 
-                // Add the shortcut to the db
-                getModelWriter().addItemToDatabase(itemInfo,
-                        LauncherSettings.Favorites.CONTAINER_DESKTOP, screenId,
-                        coords[1], coords[2]);
-
-                // Save the WorkspaceItemInfo for binding in the workspace
-                addedItemsFinal.add(itemInfo);
+                itemsToAdd.add(itemInfo);
+            }
 
-                // log bitmap and label
-                FileLog.d(LOG, "Adding item info to workspace: " + itemInfo);
+            // Find appropriate space for all the items in one pass.
+            List<int[]> itemCoords = itemsToAdd.isEmpty() ? Collections.emptyList()
+                    : mItemSpaceFinder.findSpaceForItems(app, dataModel, workspaceScreens,
+                            addedWorkspaceScreensFinal, itemsToAdd);
+            try {
+                for (int i = 0; i < itemsToAdd.size(); i++) {
+                    ItemInfo itemInfo = itemsToAdd.get(i);
+                    int[] coords = itemCoords.get(i);
+
+                    // Add the shortcut to the db
+                    getModelWriter().addItemToDatabase(itemInfo,
+                            LauncherSettings.Favorites.CONTAINER_DESKTOP, coords[0],
+                            coords[1], coords[2]);
+
+                    // Save the WorkspaceItemInfo for binding in the workspace
+                    addedItemsFinal.add(itemInfo);
+
+                    // log bitmap and label
+                    FileLog.d(LOG, "Adding item info to workspace: " + itemInfo);
+                }
+            } finally {
+                // The items are indexed by the model on the model thread, which takes over their
+                // reservations. Release the reservations of the items which were not added after.
+                if (!itemCoords.isEmpty()) {
+                    MODEL_EXECUTOR.execute(
+                            () -> releaseReservations(dataModel, itemsToAdd, itemCoords));
+                }
             }
         }
 
@@ -247,6 +266,18 @@ public class AddWorkspaceItemsTask extends BaseModelUpdateTask {
         }
     }
 
+    private static void releaseReservations(@NonNull BgDataModel dataModel,
+            @NonNull List<ItemInfo> items, @NonNull List<int[]> coords) {
+        synchronized (dataModel) {
+            for (int i = 0; i < coords.size(); i++) {
+                int[] itemCoords = coords.get(i);
+                ItemInfo item = items.get(i);
+                dataModel.workspaceOccupancy.release(itemCoords[0], itemCoords[1],
+                        itemCoords[2], item.spanX, item.spanY);
+            }
+        }
+    }
+
     /**
      * Returns true if the shortcuts already exists on the workspace. This must be called after
      * the workspace has been loaded. We identify a shortcut by its intent.
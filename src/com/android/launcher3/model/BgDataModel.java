@@ -108,6 +108,11 @@ public class BgDataModel {
      */
     public final HashMap<ComponentKey, Integer> deepShortcutMap = new HashMap<>();
 
+    /**
+     * Labels of the deep shortcuts of all launcher activities, for search.
+     */
+    public final DeepShortcutSearchIndex deepShortcutIndex = new DeepShortcutSearchIndex();
+
     /**
      * Entire list of widgets.
      */
@@ -118,6 +123,11 @@ public class BgDataModel {
      */
     public final StringCache stringCache = new StringCache();
 
+    /**
+     * Occupancy of the desktop screens, updated with the items of the model
+     */
+    public final WorkspaceOccupancyIndex workspaceOccupancy = new WorkspaceOccupancyIndex();
+
     /**
      * Id when the model was last bound
      */
@@ -132,7 +142,9 @@ public class BgDataModel {
         folders.clear();
         itemsIdMap.clear();
         deepShortcutMap.clear();
+        deepShortcutIndex.clear();
         extraItems.clear();
+        workspaceOccupancy.clear();
     }
 
     /**
@@ -170,6 +182,8 @@ public class BgDataModel {
         for (int i = 0; i< itemsIdMap.size(); i++) {
             writer.println(prefix + '\t' + itemsIdMap.valueAt(i).toString());
         }
+        workspaceOccupancy.dump(prefix + " ", writer);
+        deepShortcutIndex.dump(prefix + " ", writer);
 
         if (args.length > 0 && TextUtils.equals(args[0], "--all")) {
             writer.println(prefix + "shortcut counts ");
@@ -217,6 +231,7 @@ public class BgDataModel {
                     break;
             }
             itemsIdMap.remove(item.id);
+            workspaceOccupancy.remove(item);
         }
         updatedDeepShortcuts.forEach(user -> updateShortcutPinnedState(context, user));
     }
@@ -235,6 +250,7 @@ public class BgDataModel {
                     /* stackTrace= */ null);
         }
         itemsIdMap.put(item.id, item);
+        workspaceOccupancy.update(item);
         switch (item.itemType) {
             case LauncherSettings.Favorites.ITEM_TYPE_FOLDER:
                 folders.put(item.id, (FolderInfo) item);
@@ -363,6 +379,8 @@ public class BgDataModel {
 
     /**
      * Clear all the deep shortcut counts for the given package, and re-add the new shortcut counts.
+     * The shortcuts of the package, or of the user if the package is null, are also re-indexed
+     * for search.
      */
     public synchronized void updateDeepShortcutCounts(
             String packageName, UserHandle user, List<ShortcutInfo> shortcuts) {
@@ -376,6 +394,7 @@ public class BgDataModel {
                 }
             }
         }
+        deepShortcutIndex.update(packageName, user, shortcuts);
 
         // Now add the new shortcuts to the map.
         for (ShortcutInfo shortcut : shortcuts) {
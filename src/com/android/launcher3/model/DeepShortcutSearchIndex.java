@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model;
+
+import android.content.ComponentName;
+import android.content.pm.ShortcutInfo;
+import android.os.UserHandle;
+import android.text.TextUtils;
+
+import androidx.annotation.Nullable;
+
+import com.android.launcher3.LauncherSettings.Favorites;
+import com.android.launcher3.model.data.WorkspaceItemInfo;
+import com.android.launcher3.search.StringMatcherUtility;
+import com.android.launcher3.search.StringMatcherUtility.StringMatcher;
+import com.android.launcher3.shortcuts.ShortcutKey;
+import com.android.launcher3.util.ComponentKey;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Labels of the deep shortcuts of every launcher activity, kept up to date by {@link BgDataModel}
+ * along with {@link BgDataModel#deepShortcutMap}, so that shortcuts can be searched without
+ * querying the shortcut service.
+ * <p>
+ * All methods must be called while holding the lock of the owning {@link BgDataModel}.
+ */
+public class DeepShortcutSearchIndex {
+
+    private final HashMap<ComponentKey, ArrayList<Entry>> mEntries = new HashMap<>();
+    private int mCount;
+
+    /**
+     * Replaces the indexed shortcuts of the package, or of all the packages of the user if the
+     * package is null
+     */
+    void update(@Nullable String packageName, UserHandle user, List<ShortcutInfo> shortcuts) {
+        remove(packageName, user);
+        for (ShortcutInfo shortcut : shortcuts) {
+            if (!shortcut.isEnabled() || shortcut.getActivity() == null
+                    || !(shortcut.isDeclaredInManifest() || shortcut.isDynamic())) {
+                continue;
+            }
+            ComponentKey activity = new ComponentKey(shortcut.getActivity(),
+                    shortcut.getUserHandle());
+            ArrayList<Entry> entries = mEntries.get(activity);
+            if (entries == null) {
+                entries = new ArrayList<>(1);
+                mEntries.put(activity, entries);
+            }
+            entries.add(new Entry(activity, shortcut.getId(), shortcut.getShortLabel(),
+                    shortcut.getLongLabel()));
+            mCount++;
+        }
+    }
+
+    /**
+     * Removes the indexed shortcuts of the package, or of all the packages of the user if the
+     * package is null
+     */
+    void remove(@Nullable String packageName, UserHandle user) {
+        Iterator<Map.Entry<ComponentKey, ArrayList<Entry>>> iterator =
+                mEntries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<ComponentKey, ArrayList<Entry>> next = iterator.next();
+            ComponentKey key = next.getKey();
+            if (key.user.equals(user) && (packageName == null
+                    || key.componentName.getPackageName().equals(packageName))) {
+                mCount -= next.getValue().size();
+                iterator.remove();
+            }
+        }
+    }
+
+    void clear() {
+        mEntries.clear();
+        mCount = 0;
+    }
+
+    /**
+     * Returns the shortcuts with a short or long label matching the query, using the same rules
+     * as the app search.
+     *
+     * @param query the lower case query
+     */
+    public ArrayList<WorkspaceItemInfo> search(String query, StringMatcher matcher,
+            int maxResults) {
+        ArrayList<WorkspaceItemInfo> results = new ArrayList<>();
+        for (ArrayList<Entry> entries : mEntries.values()) {
+            for (int i = 0; i < entries.size(); i++) {
+                Entry entry = entries.get(i);
+                if (entry.matches(query, matcher)) {
+                    results.add(entry.toWorkspaceItemInfo());
+                    if (results.size() >= maxResults) {
+                        return results;
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "Deep shortcut index: " + mCount + " shortcuts of "
+                + mEntries.size() + " activities");
+    }
+
+    private static class Entry {
+
+        final ComponentKey activity;
+        final String id;
+        final String shortLabel;
+        @Nullable
+        final String longLabel;
+
+        Entry(ComponentKey activity, String id, @Nullable CharSequence shortLabel,
+                @Nullable CharSequence longLabel) {
+            this.activity = activity;
+            this.id = id;
+            this.shortLabel = shortLabel == null ? "" : shortLabel.toString();
+            this.longLabel = TextUtils.isEmpty(longLabel)
+                    || TextUtils.equals(longLabel, shortLabel) ? null : longLabel.toString();
+        }
+
+        boolean matches(String query, StringMatcher matcher) {
+            return StringMatcherUtility.matches(query, shortLabel, matcher)
+                    || (longLabel != null
+                    && StringMatcherUtility.matches(query, longLabel, matcher));
+        }
+
+        WorkspaceItemInfo toWorkspaceItemInfo() {
+            ComponentName cn = activity.componentName;
+            WorkspaceItemInfo info = new WorkspaceItemInfo();
+            info.itemType = Favorites.ITEM_TYPE_DEEP_SHORTCUT;
+            info.user = activity.user;
+            info.intent = ShortcutKey.makeIntent(id, cn.getPackageName()).setComponent(cn);
+            info.title = shortLabel;
+            info.contentDescription = longLabel != null ? longLabel : shortLabel;
+            return info;
+        }
+    }
+}
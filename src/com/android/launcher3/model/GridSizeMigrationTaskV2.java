@@ -19,17 +19,17 @@ package com.android.launcher3.model;
 import static com.android.launcher3.provider.LauncherDbUtils.dropTable;
 
 import android.content.ComponentName;
-import android.content.ContentValues;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.database.Cursor;
-import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 import android.graphics.Point;
 import android.util.ArrayMap;
 import android.util.Log;
+import android.util.LruCache;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.VisibleForTesting;
@@ -50,6 +50,7 @@ import com.android.launcher3.widget.WidgetManagerHelper;
 
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -59,6 +60,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * This class takes care of shrinking the workspace (by maximum of one row and one column), as a
@@ -69,6 +71,15 @@ public class GridSizeMigrationTaskV2 {
     private static final String TAG = "GridSizeMigrationTaskV2";
     private static final boolean DEBUG = false;
 
+    // Each placement is stored as the source id, screen id, cellX, cellY, spanX and spanY
+    private static final int PLACEMENT_SIZE = 6;
+
+    /**
+     * Placements by grids and layout, so that previewing the same grid option again does not
+     * solve the placement again.
+     */
+    private static final LruCache<String, CachedPlacements> sPlacementCache = new LruCache<>(8);
+
     private final Context mContext;
     private final SQLiteDatabase mDb;
     private final DbReader mSrcReader;
@@ -224,9 +235,56 @@ public class GridSizeMigrationTaskV2 {
         Collections.sort(mHotseatDiff);
         Collections.sort(mWorkspaceDiff);
 
+        Map<Integer, DbEntry> entriesById = new HashMap<>();
+        Stream.concat(mHotseatDiff.stream(), mWorkspaceDiff.stream())
+                .forEach(entry -> entriesById.put(entry.id, entry));
+
+        int[] inputs = getPlacementInputs();
+        String cacheKey = getPlacementCacheKey(srcDeviceState, destDeviceState, inputs);
+        CachedPlacements cached = sPlacementCache.get(cacheKey);
+        int[] placements;
+        if (cached != null && cached.matches(inputs, entriesById)) {
+            placements = cached.placements;
+            if (DEBUG) {
+                Log.d(TAG, "Reusing placements for " + cacheKey);
+            }
+        } else {
+            placements = findPlacements(srcDeviceState, destDeviceState);
+            sPlacementCache.put(cacheKey, new CachedPlacements(inputs, placements));
+        }
+
+        // Write all the placed entries in a single transaction
+        try (SQLiteTransaction t = new SQLiteTransaction(mDb);
+             EntryWriter writer = new EntryWriter(mDb, mContext, mSrcReader.mTableName,
+                     mDestReader.mTableName)) {
+            for (int i = 0; i < placements.length; i += PLACEMENT_SIZE) {
+                DbEntry entry = entriesById.get(placements[i]);
+                entry.screenId = placements[i + 1];
+                entry.cellX = placements[i + 2];
+                entry.cellY = placements[i + 3];
+                entry.spanX = placements[i + 4];
+                entry.spanY = placements[i + 5];
+                writer.insertEntry(entry);
+            }
+            t.commit();
+        }
+        return true;
+    }
+
+    /**
+     * Places the hotseat and workspace items which are missing in the destination.
+     *
+     * @return the placements, see {@link #PLACEMENT_SIZE}
+     */
+    private int[] findPlacements(DeviceGridState srcDeviceState,
+            DeviceGridState destDeviceState) {
+        List<DbEntry> placed = new ArrayList<>();
+        List<DbEntry> hotseatToPlace = new ArrayList<>(mHotseatDiff);
+        List<DbEntry> workspaceToPlace = new ArrayList<>(mWorkspaceDiff);
+
         // Migrate hotseat
-        HotseatPlacementSolution hotseatSolution = new HotseatPlacementSolution(mDb, mSrcReader,
-                mDestReader, mContext, mDestHotseatSize, mHotseatItems, mHotseatDiff);
+        HotseatPlacementSolution hotseatSolution = new HotseatPlacementSolution(
+                mDestHotseatSize, mHotseatItems, hotseatToPlace, placed);
         hotseatSolution.find();
 
         // Migrate workspace.
@@ -247,10 +305,10 @@ public class GridSizeMigrationTaskV2 {
             if (DEBUG) {
                 Log.d(TAG, "Migrating " + screenId);
             }
-            GridPlacementSolution workspaceSolution = new GridPlacementSolution(mDb, mSrcReader,
-                    mDestReader, mContext, screenId, mTrgX, mTrgY, mWorkspaceDiff, false);
+            GridPlacementSolution workspaceSolution = new GridPlacementSolution(mDestReader,
+                    mContext, screenId, mTrgX, mTrgY, workspaceToPlace, false, placed);
             workspaceSolution.find();
-            if (mWorkspaceDiff.isEmpty()) {
+            if (workspaceToPlace.isEmpty()) {
                 break;
             }
         }
@@ -258,39 +316,92 @@ public class GridSizeMigrationTaskV2 {
         // In case the new grid is smaller, there might be some leftover items that don't fit on
         // any of the screens, in this case we add them to new screens until all of them are placed.
         int screenId = mDestReader.mLastScreenId + 1;
-        while (!mWorkspaceDiff.isEmpty()) {
-            GridPlacementSolution workspaceSolution = new GridPlacementSolution(mDb, mSrcReader,
-                    mDestReader, mContext, screenId, mTrgX, mTrgY, mWorkspaceDiff,
-                    preservePages);
+        while (!workspaceToPlace.isEmpty()) {
+            GridPlacementSolution workspaceSolution = new GridPlacementSolution(mDestReader,
+                    mContext, screenId, mTrgX, mTrgY, workspaceToPlace, preservePages, placed);
             workspaceSolution.find();
             screenId++;
         }
 
-        return true;
+        int[] placements = new int[placed.size() * PLACEMENT_SIZE];
+        for (int i = 0; i < placed.size(); i++) {
+            DbEntry entry = placed.get(i);
+            int offset = i * PLACEMENT_SIZE;
+            placements[offset] = entry.id;
+            placements[offset + 1] = entry.screenId;
+            placements[offset + 2] = entry.cellX;
+            placements[offset + 3] = entry.cellY;
+            placements[offset + 4] = entry.spanX;
+            placements[offset + 5] = entry.spanY;
+        }
+        return placements;
+    }
+
+    /**
+     * Returns everything the placement depends on besides the grids: the entries to place and the
+     * occupancy of the destination.
+     */
+    private int[] getPlacementInputs() {
+        IntArray inputs = new IntArray();
+        inputs.add(mDestHotseatSize);
+        inputs.add(mHotseatItems.size());
+        for (DbEntry entry : mHotseatItems) {
+            inputs.add(entry.screenId);
+        }
+        inputs.add(mDestReader.mLastScreenId);
+        inputs.add(mWorkspaceItems.size());
+        for (DbEntry entry : mWorkspaceItems) {
+            addPosition(inputs, entry);
+        }
+        inputs.add(mHotseatDiff.size());
+        for (DbEntry entry : mHotseatDiff) {
+            inputs.add(entry.id);
+        }
+        inputs.add(mWorkspaceDiff.size());
+        for (DbEntry entry : mWorkspaceDiff) {
+            inputs.add(entry.id);
+            addPosition(inputs, entry);
+            inputs.add(entry.minSpanX);
+            inputs.add(entry.minSpanY);
+        }
+        return inputs.toArray();
+    }
+
+    private static void addPosition(IntArray inputs, DbEntry entry) {
+        inputs.add(entry.screenId);
+        inputs.add(entry.cellX);
+        inputs.add(entry.cellY);
+        inputs.add(entry.spanX);
+        inputs.add(entry.spanY);
+    }
+
+    /**
+     * Returns a key identifying the source and target grids and a hash of the placement inputs.
+     * Entries with the same key must still be verified against the inputs.
+     */
+    private String getPlacementCacheKey(DeviceGridState srcDeviceState,
+            DeviceGridState destDeviceState, int[] inputs) {
+        return srcDeviceState.getColumns() + "x" + srcDeviceState.getRows()
+                + "->" + mTrgX + "x" + mTrgY
+                + ":" + FeatureFlags.ENABLE_NEW_MIGRATION_LOGIC.get()
+                + ":" + FeatureFlags.QSbOnFirstScreen(mContext)
+                + ":" + destDeviceState.compareTo(srcDeviceState)
+                + ":" + Integer.toHexString(Arrays.hashCode(inputs));
     }
 
     /** Return what's in the src but not in the dest */
     private static List<DbEntry> calcDiff(List<DbEntry> src, List<DbEntry> dest) {
-        Map<String, Integer> destIdSet = new HashMap<>();
+        // Number of entries of the dest for each migration id
+        Map<String, Integer> destIdCounts = new HashMap<>();
         for (DbEntry entry : dest) {
-            String entryID = entry.getEntryMigrationId();
-            if (destIdSet.containsKey(entryID)) {
-                destIdSet.put(entryID, destIdSet.get(entryID) + 1);
-            } else {
-                destIdSet.put(entryID, 1);
-            }
+            destIdCounts.merge(entry.getEntryMigrationId(), 1, Integer::sum);
         }
         List<DbEntry> diff = new ArrayList<>();
         for (DbEntry entry : src) {
             String entryID = entry.getEntryMigrationId();
-            if (destIdSet.containsKey(entryID)) {
-                Integer count = destIdSet.get(entryID);
-                if (count <= 0) {
-                    diff.add(entry);
-                    destIdSet.remove(entryID);
-                } else {
-                    destIdSet.put(entryID, count - 1);
-                }
+            Integer count = destIdCounts.get(entryID);
+            if (count != null && count > 0) {
+                destIdCounts.put(entryID, count - 1);
             } else {
                 diff.add(entry);
             }
@@ -298,51 +409,132 @@ public class GridSizeMigrationTaskV2 {
         return diff;
     }
 
-    private static void insertEntryInDb(SQLiteDatabase db, Context context, DbEntry entry,
-                                        String srcTableName, String destTableName) {
-        int id = copyEntryAndUpdate(db, context, entry, srcTableName, destTableName);
+    /**
+     * Placements found for a set of inputs, see {@link #getPlacementInputs}
+     */
+    private static class CachedPlacements {
+
+        final int[] inputs;
+        final int[] placements;
+
+        CachedPlacements(int[] inputs, int[] placements) {
+            this.inputs = inputs;
+            this.placements = placements;
+        }
 
-        if (entry.itemType == LauncherSettings.Favorites.ITEM_TYPE_FOLDER) {
-            for (Set<Integer> itemIds : entry.mFolderItems.values()) {
-                for (int itemId : itemIds) {
-                    copyEntryAndUpdate(db, context, itemId, id, srcTableName, destTableName);
+        /**
+         * Returns true if the placements were found for the same inputs and only place the given
+         * entries
+         */
+        boolean matches(int[] currentInputs, Map<Integer, DbEntry> entriesById) {
+            if (!Arrays.equals(inputs, currentInputs)) {
+                return false;
+            }
+            for (int i = 0; i < placements.length; i += PLACEMENT_SIZE) {
+                if (!entriesById.containsKey(placements[i])) {
+                    return false;
                 }
             }
+            return true;
         }
     }
 
-    private static int copyEntryAndUpdate(SQLiteDatabase db, Context context,
-                                          DbEntry entry, String srcTableName, String destTableName) {
-        return copyEntryAndUpdate(db, context, entry, -1, -1, srcTableName, destTableName);
-    }
+    /**
+     * Copies entries from the source table into the destination table with compiled
+     * INSERT ... SELECT statements, replacing the position of the entries and the container of
+     * the items in folders.
+     */
+    private static class EntryWriter implements AutoCloseable {
+
+        private static final String[] ENTRY_OVERRIDES = {
+                LauncherSettings.Favorites._ID,
+                LauncherSettings.Favorites.SCREEN,
+                LauncherSettings.Favorites.CELLX,
+                LauncherSettings.Favorites.CELLY,
+                LauncherSettings.Favorites.SPANX,
+                LauncherSettings.Favorites.SPANY};
+        private static final String[] FOLDER_ITEM_OVERRIDES = {
+                LauncherSettings.Favorites._ID,
+                LauncherSettings.Favorites.CONTAINER};
 
-    private static int copyEntryAndUpdate(SQLiteDatabase db, Context context,
-                                          int id, int folderId, String srcTableName, String destTableName) {
-        return copyEntryAndUpdate(db, context, null, id, folderId, srcTableName, destTableName);
-    }
+        private final Context mContext;
+        private final SQLiteStatement mInsertEntry;
+        private final SQLiteStatement mInsertFolderItem;
 
-    private static int copyEntryAndUpdate(SQLiteDatabase db, Context context,
-                                          DbEntry entry, int id, int folderId, String srcTableName, String destTableName) {
-        int newId = -1;
-        Cursor c = db.query(srcTableName, null,
-                LauncherSettings.Favorites._ID + " = '" + (entry != null ? entry.id : id) + "'",
-                null, null, null, null);
-        while (c.moveToNext()) {
-            ContentValues values = new ContentValues();
-            DatabaseUtils.cursorRowToContentValues(c, values);
-            if (entry != null) {
-                entry.updateContentValues(values);
-            } else {
-                values.put(LauncherSettings.Favorites.CONTAINER, folderId);
+        EntryWriter(SQLiteDatabase db, Context context, String srcTableName,
+                String destTableName) {
+            mContext = context;
+            String[] columns;
+            try (Cursor c = db.query(srcTableName, null, null, null, null, null, null, "0")) {
+                columns = c.getColumnNames();
+            }
+            mInsertEntry = db.compileStatement(
+                    buildInsert(columns, ENTRY_OVERRIDES, srcTableName, destTableName));
+            mInsertFolderItem = db.compileStatement(
+                    buildInsert(columns, FOLDER_ITEM_OVERRIDES, srcTableName, destTableName));
+        }
+
+        /**
+         * Returns a statement copying a row, the overridden columns are bound first, followed by
+         * the id of the source row.
+         */
+        private static String buildInsert(String[] columns, String[] overrides,
+                String srcTableName, String destTableName) {
+            Set<String> overridden = new HashSet<>(Arrays.asList(overrides));
+            StringBuilder insertColumns = new StringBuilder(String.join(",", overrides));
+            StringBuilder selectColumns = new StringBuilder(
+                    String.join(",", Collections.nCopies(overrides.length, "?")));
+            for (String column : columns) {
+                if (!overridden.contains(column)) {
+                    insertColumns.append(',').append(column);
+                    selectColumns.append(',').append(column);
+                }
+            }
+            return "INSERT INTO " + destTableName + " (" + insertColumns + ") SELECT "
+                    + selectColumns + " FROM " + srcTableName
+                    + " WHERE " + LauncherSettings.Favorites._ID + " = ?";
+        }
+
+        void insertEntry(DbEntry entry) {
+            int id = newItemId();
+            mInsertEntry.bindLong(1, id);
+            mInsertEntry.bindLong(2, entry.screenId);
+            mInsertEntry.bindLong(3, entry.cellX);
+            mInsertEntry.bindLong(4, entry.cellY);
+            mInsertEntry.bindLong(5, entry.spanX);
+            mInsertEntry.bindLong(6, entry.spanY);
+            mInsertEntry.bindLong(7, entry.id);
+            if (mInsertEntry.executeInsert() == -1) {
+                Log.w(TAG, "Failed to migrate entry " + entry.id);
+                return;
+            }
+
+            if (entry.itemType == LauncherSettings.Favorites.ITEM_TYPE_FOLDER) {
+                for (Set<Integer> itemIds : entry.mFolderItems.values()) {
+                    for (int itemId : itemIds) {
+                        mInsertFolderItem.bindLong(1, newItemId());
+                        mInsertFolderItem.bindLong(2, id);
+                        mInsertFolderItem.bindLong(3, itemId);
+                        if (mInsertFolderItem.executeInsert() == -1) {
+                            Log.w(TAG, "Failed to migrate item " + itemId + " of folder "
+                                    + entry.id);
+                        }
+                    }
+                }
             }
-            newId = LauncherSettings.Settings.call(context.getContentResolver(),
+        }
+
+        private int newItemId() {
+            return LauncherSettings.Settings.call(mContext.getContentResolver(),
                     LauncherSettings.Settings.METHOD_NEW_ITEM_ID).getInt(
                     LauncherSettings.Settings.EXTRA_VALUE);
-            values.put(LauncherSettings.Favorites._ID, newId);
-            db.insert(destTableName, null, values);
         }
-        c.close();
-        return newId;
+
+        @Override
+        public void close() {
+            mInsertEntry.close();
+            mInsertFolderItem.close();
+        }
     }
 
     private static void removeEntryFromDb(SQLiteDatabase db, String tableName, IntArray entryIds) {
@@ -369,8 +561,6 @@ public class GridSizeMigrationTaskV2 {
 
     protected static class GridPlacementSolution {
 
-        private final SQLiteDatabase mDb;
-        private final DbReader mSrcReader;
         private final DbReader mDestReader;
         private final Context mContext;
         private final GridOccupancy mOccupied;
@@ -379,15 +569,14 @@ public class GridSizeMigrationTaskV2 {
         private final int mTrgY;
         private final List<DbEntry> mSortedItemsToPlace;
         private final boolean mMatchingScreenIdOnly;
+        private final List<DbEntry> mPlacedItems;
 
         private int mNextStartX;
         private int mNextStartY;
 
-        GridPlacementSolution(SQLiteDatabase db, DbReader srcReader, DbReader destReader,
-                              Context context, int screenId, int trgX, int trgY, List<DbEntry> sortedItemsToPlace,
-                              boolean matchingScreenIdOnly) {
-            mDb = db;
-            mSrcReader = srcReader;
+        GridPlacementSolution(DbReader destReader, Context context, int screenId, int trgX,
+                              int trgY, List<DbEntry> sortedItemsToPlace,
+                              boolean matchingScreenIdOnly, List<DbEntry> placedItems) {
             mDestReader = destReader;
             mContext = context;
             mOccupied = new GridOccupancy(trgX, trgY);
@@ -405,6 +594,7 @@ public class GridSizeMigrationTaskV2 {
             }
             mSortedItemsToPlace = sortedItemsToPlace;
             mMatchingScreenIdOnly = matchingScreenIdOnly;
+            mPlacedItems = placedItems;
         }
 
         public void find() {
@@ -418,8 +608,7 @@ public class GridSizeMigrationTaskV2 {
                     continue;
                 }
                 if (findPlacement(entry)) {
-                    insertEntryInDb(mDb, mContext, entry, mSrcReader.mTableName,
-                            mDestReader.mTableName);
+                    mPlacedItems.add(entry);
                     iterator.remove();
                 }
             }
@@ -458,25 +647,18 @@ public class GridSizeMigrationTaskV2 {
 
     protected static class HotseatPlacementSolution {
 
-        private final SQLiteDatabase mDb;
-        private final DbReader mSrcReader;
-        private final DbReader mDestReader;
-        private final Context mContext;
         private final HotseatOccupancy mOccupied;
         private final List<DbEntry> mItemsToPlace;
+        private final List<DbEntry> mPlacedItems;
 
-        HotseatPlacementSolution(SQLiteDatabase db, DbReader srcReader, DbReader destReader,
-                                 Context context, int hotseatSize, List<DbEntry> placedHotseatItems,
-                                 List<DbEntry> itemsToPlace) {
-            mDb = db;
-            mSrcReader = srcReader;
-            mDestReader = destReader;
-            mContext = context;
+        HotseatPlacementSolution(int hotseatSize, List<DbEntry> placedHotseatItems,
+                                 List<DbEntry> itemsToPlace, List<DbEntry> placedItems) {
             mOccupied = new HotseatOccupancy(hotseatSize);
             for (DbEntry entry : placedHotseatItems) {
                 mOccupied.markCells(entry, true);
             }
             mItemsToPlace = itemsToPlace;
+            mPlacedItems = placedItems;
         }
 
         public void find() {
@@ -488,8 +670,7 @@ public class GridSizeMigrationTaskV2 {
                     // to something other than -1.
                     entry.cellX = i;
                     entry.cellY = 0;
-                    insertEntryInDb(mDb, mContext, entry, mSrcReader.mTableName,
-                            mDestReader.mTableName);
+                    mPlacedItems.add(entry);
                     mOccupied.markCells(entry, true);
                 }
             }
@@ -746,6 +927,7 @@ public class GridSizeMigrationTaskV2 {
         private String mIntent;
         private String mProvider;
         private Map<String, Set<Integer>> mFolderItems = new HashMap<>();
+        private String mMigrationId;
 
         /** Comparator according to the reading order */
         @Override
@@ -772,20 +954,19 @@ public class GridSizeMigrationTaskV2 {
             return Objects.hash(mIntent);
         }
 
-        public void updateContentValues(ContentValues values) {
-            values.put(LauncherSettings.Favorites.SCREEN, screenId);
-            values.put(LauncherSettings.Favorites.CELLX, cellX);
-            values.put(LauncherSettings.Favorites.CELLY, cellY);
-            values.put(LauncherSettings.Favorites.SPANX, spanX);
-            values.put(LauncherSettings.Favorites.SPANY, spanY);
-        }
-
         /**
          * This id is not used in the DB is only used while doing the migration and it identifies
          * an entry on each workspace. For example two calculator icons would have the same
          * migration id even thought they have different database ids.
          */
         public String getEntryMigrationId() {
+            if (mMigrationId == null) {
+                mMigrationId = computeEntryMigrationId();
+            }
+            return mMigrationId;
+        }
+
+        private String computeEntryMigrationId() {
             switch (itemType) {
                 case LauncherSettings.Favorites.ITEM_TYPE_FOLDER:
                     return getFolderMigrationId();
@@ -495,6 +495,9 @@ public class ModelWriter {
                 // as in Workspace.onDrop. Here, we just add/remove them from the list of items
                 // that are on the desktop, as appropriate
                 ItemInfo modelItem = mBgDataModel.itemsIdMap.get(itemId);
+                if (modelItem != null) {
+                    mBgDataModel.workspaceOccupancy.update(modelItem);
+                }
                 if (modelItem != null &&
                         (modelItem.container == Favorites.CONTAINER_DESKTOP ||
                                 modelItem.container == Favorites.CONTAINER_HOTSEAT)) {
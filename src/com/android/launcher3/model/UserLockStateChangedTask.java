@@ -112,6 +112,7 @@ public class UserLockStateChangedTask extends BaseModelUpdateTask {
                 keysIter.remove();
             }
         }
+        dataModel.deepShortcutIndex.remove(null, mUser);
 
         if (mIsUserUnlocked) {
             dataModel.updateDeepShortcutCounts(
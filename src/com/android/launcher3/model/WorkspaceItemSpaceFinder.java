@@ -17,8 +17,6 @@ package com.android.launcher3.model;
 
 import static com.android.launcher3.WorkspaceLayoutManager.FIRST_SCREEN_ID;
 
-import android.util.LongSparseArray;
-
 import com.android.launcher3.InvariantDeviceProfile;
 import com.android.launcher3.LauncherAppState;
 import com.android.launcher3.LauncherSettings;
@@ -29,9 +27,18 @@ import com.android.launcher3.util.IntArray;
 import com.android.launcher3.util.IntSet;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
- * Utility class to help find space for new workspace items
+ * Utility class to help find space for new workspace items.
+ * <p>
+ * Space is looked up in {@link BgDataModel#workspaceOccupancy} and reserved there for the item,
+ * so the next lookup does not return the same cells before the item is added to the model. Callers
+ * must release the reservations of items which were not added, see
+ * {@link WorkspaceOccupancyIndex#release}.
  */
 public class WorkspaceItemSpaceFinder {
 
@@ -42,74 +49,120 @@ public class WorkspaceItemSpaceFinder {
      */
     public int[] findSpaceForItem(LauncherAppState app, BgDataModel dataModel,
                                   IntArray workspaceScreens, IntArray addedWorkspaceScreensFinal, int spanX, int spanY) {
-        LongSparseArray<ArrayList<ItemInfo>> screenItems = new LongSparseArray<>();
+        synchronized (dataModel) {
+            return new Placement(app, dataModel, workspaceScreens, addedWorkspaceScreensFinal)
+                    .findSpace(spanX, spanY);
+        }
+    }
 
-        // Use sBgItemsIdMap as all the items are already loaded.
+    /**
+     * Finds positions for all the items in a single pass, in order, adding new screens as
+     * needed. Each item is placed as {@link #findSpaceForItem} would after the previous items
+     * were added. If an item can't be placed, the space reserved for the previous items is
+     * released.
+     *
+     * @return screenId and the coordinates of every item, in the order of the items.
+     */
+    public List<int[]> findSpaceForItems(LauncherAppState app, BgDataModel dataModel,
+            IntArray workspaceScreens, IntArray addedWorkspaceScreensFinal,
+            List<? extends ItemInfo> items) {
+        if (items.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<int[]> result = new ArrayList<>(items.size());
         synchronized (dataModel) {
-            for (ItemInfo info : dataModel.itemsIdMap) {
-                if (info.container == LauncherSettings.Favorites.CONTAINER_DESKTOP) {
-                    ArrayList<ItemInfo> items = screenItems.get(info.screenId);
-                    if (items == null) {
-                        items = new ArrayList<>();
-                        screenItems.put(info.screenId, items);
-                    }
-                    items.add(info);
+            Placement placement = new Placement(app, dataModel, workspaceScreens,
+                    addedWorkspaceScreensFinal);
+            try {
+                for (ItemInfo item : items) {
+                    result.add(placement.findSpace(item.spanX, item.spanY));
+                }
+            } catch (RuntimeException e) {
+                for (int i = 0; i < result.size(); i++) {
+                    int[] coords = result.get(i);
+                    ItemInfo item = items.get(i);
+                    dataModel.workspaceOccupancy.release(coords[0], coords[1], coords[2],
+                            item.spanX, item.spanY);
                 }
+                throw e;
             }
         }
+        return result;
+    }
+
+    /**
+     * State of a placement pass. Screens only fill up during a pass, so a screen which had no
+     * space for a size is not checked again for that size.
+     */
+    private static class Placement {
 
-        // Find appropriate space for the item.
-        int screenId = 0;
-        int[] coordinates = new int[2];
-        boolean found = false;
+        private final LauncherAppState mApp;
+        private final WorkspaceOccupancyIndex mOccupancy;
+        private final IntArray mWorkspaceScreens;
+        private final IntArray mAddedWorkspaceScreens;
+        private final IntSet mScreensToExclude = new IntSet();
+        private final int mCountX;
+        private final int mCountY;
 
-        int screenCount = workspaceScreens.size();
-        // First check the preferred screen.
-        IntSet screensToExclude = new IntSet();
-        if (FeatureFlags.QSbOnFirstScreen(app.getContext())) {
-            screensToExclude.add(FIRST_SCREEN_ID);
-        }
+        // First screen index which may have space, by packed span
+        private final Map<Integer, Integer> mFirstCandidate = new HashMap<>();
 
-        for (int screen = 0; screen < screenCount; screen++) {
-            screenId = workspaceScreens.get(screen);
-            if (!screensToExclude.contains(screenId) && findNextAvailableIconSpaceInScreen(
-                    app, screenItems.get(screenId), coordinates, spanX, spanY)) {
-                // We found a space for it
-                found = true;
-                break;
+        Placement(LauncherAppState app, BgDataModel dataModel, IntArray workspaceScreens,
+                IntArray addedWorkspaceScreens) {
+            mApp = app;
+            mOccupancy = dataModel.workspaceOccupancy;
+            mWorkspaceScreens = workspaceScreens;
+            mAddedWorkspaceScreens = addedWorkspaceScreens;
+            if (FeatureFlags.QSbOnFirstScreen(app.getContext())) {
+                mScreensToExclude.add(FIRST_SCREEN_ID);
             }
+            InvariantDeviceProfile profile = app.getInvariantDeviceProfile();
+            mCountX = profile.numColumns;
+            mCountY = profile.numRows;
         }
 
-        if (!found) {
-            // Still no position found. Add a new screen to the end.
-            screenId = LauncherSettings.Settings.call(app.getContext().getContentResolver(),
-                            LauncherSettings.Settings.METHOD_NEW_SCREEN_ID)
-                    .getInt(LauncherSettings.Settings.EXTRA_VALUE);
+        int[] findSpace(int spanX, int spanY) {
+            int spanKey = (spanX << 16) | spanY;
+            int[] coordinates = new int[2];
+            int screenId = -1;
+            boolean found = false;
 
-            // Save the screen id for binding in the workspace
-            workspaceScreens.add(screenId);
-            addedWorkspaceScreensFinal.add(screenId);
-
-            // If we still can't find an empty space, then God help us all!!!
-            if (!findNextAvailableIconSpaceInScreen(
-                    app, screenItems.get(screenId), coordinates, spanX, spanY)) {
-                throw new RuntimeException("Can't find space to add the item");
+            int screenCount = mWorkspaceScreens.size();
+            int screen = mFirstCandidate.getOrDefault(spanKey, 0);
+            for (; screen < screenCount; screen++) {
+                screenId = mWorkspaceScreens.get(screen);
+                if (!mScreensToExclude.contains(screenId)
+                        && getOccupancy(screenId).findVacantCell(coordinates, spanX, spanY)) {
+                    // We found a space for it
+                    found = true;
+                    break;
+                }
             }
-        }
-        return new int[]{screenId, coordinates[0], coordinates[1]};
-    }
 
-    private boolean findNextAvailableIconSpaceInScreen(
-            LauncherAppState app, ArrayList<ItemInfo> occupiedPos,
-            int[] xy, int spanX, int spanY) {
-        InvariantDeviceProfile profile = app.getInvariantDeviceProfile();
+            if (!found) {
+                // Still no position found. Add a new screen to the end.
+                screenId = LauncherSettings.Settings.call(
+                                mApp.getContext().getContentResolver(),
+                                LauncherSettings.Settings.METHOD_NEW_SCREEN_ID)
+                        .getInt(LauncherSettings.Settings.EXTRA_VALUE);
+
+                // Save the screen id for binding in the workspace
+                mWorkspaceScreens.add(screenId);
+                mAddedWorkspaceScreens.add(screenId);
+                screen = mWorkspaceScreens.size() - 1;
 
-        GridOccupancy occupied = new GridOccupancy(profile.numColumns, profile.numRows);
-        if (occupiedPos != null) {
-            for (ItemInfo r : occupiedPos) {
-                occupied.markCells(r, true);
+                // If we still can't find an empty space, then God help us all!!!
+                if (!getOccupancy(screenId).findVacantCell(coordinates, spanX, spanY)) {
+                    throw new RuntimeException("Can't find space to add the item");
+                }
             }
+            mFirstCandidate.put(spanKey, screen);
+            mOccupancy.reserve(screenId, coordinates[0], coordinates[1], spanX, spanY);
+            return new int[]{screenId, coordinates[0], coordinates[1]};
+        }
+
+        private GridOccupancy getOccupancy(int screenId) {
+            return mOccupancy.getScreenOccupancy(screenId, mCountX, mCountY);
         }
-        return occupied.findVacantCell(xy, spanX, spanY);
     }
 }
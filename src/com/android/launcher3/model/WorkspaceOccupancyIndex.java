@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model;
+
+import static com.android.launcher3.LauncherSettings.Favorites.CONTAINER_DESKTOP;
+
+import com.android.launcher3.model.data.ItemInfo;
+import com.android.launcher3.util.CellAndSpan;
+import com.android.launcher3.util.GridOccupancy;
+import com.android.launcher3.util.IntSparseArrayMap;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+
+/**
+ * Occupancy of the desktop screens, kept up to date by {@link BgDataModel} as items are added,
+ * moved and removed, so that finding space for new items does not walk every item of the model.
+ * <p>
+ * Regions can also be reserved for items which are about to be added. An item with the same
+ * position takes over the reservation when it is indexed, reservations which are not taken over
+ * must be released with {@link #release}.
+ * <p>
+ * All methods must be called while holding the lock of the owning {@link BgDataModel}.
+ */
+public class WorkspaceOccupancyIndex {
+
+    // Position of every indexed desktop item, by item id
+    private final IntSparseArrayMap<Entry> mEntries = new IntSparseArrayMap<>();
+    // Items and reservations of every screen
+    private final IntSparseArrayMap<ArrayList<Entry>> mScreenEntries = new IntSparseArrayMap<>();
+    // Occupancy of the screens, built on demand and dropped when a region is released
+    private final IntSparseArrayMap<GridOccupancy> mScreenGrids = new IntSparseArrayMap<>();
+
+    private int mCountX;
+    private int mCountY;
+
+    /**
+     * Indexes the current position of the item, or removes it if it is no longer on the desktop
+     */
+    void update(ItemInfo item) {
+        boolean onDesktop = item.container == CONTAINER_DESKTOP && item.id != ItemInfo.NO_ID;
+        Entry entry = mEntries.get(item.id);
+        if (entry != null) {
+            if (onDesktop && entry.screenId == item.screenId && entry.matches(item.cellX,
+                    item.cellY, item.spanX, item.spanY)) {
+                return;
+            }
+            removeEntry(entry);
+        }
+        if (onDesktop) {
+            addEntry(new Entry(item.id, item.screenId, item.cellX, item.cellY, item.spanX,
+                    item.spanY));
+        }
+    }
+
+    void remove(ItemInfo item) {
+        Entry entry = mEntries.get(item.id);
+        if (entry != null) {
+            removeEntry(entry);
+        }
+    }
+
+    void clear() {
+        mEntries.clear();
+        mScreenEntries.clear();
+        mScreenGrids.clear();
+    }
+
+    /**
+     * Marks a region as occupied for an item which will be added to the model later
+     */
+    public void reserve(int screenId, int cellX, int cellY, int spanX, int spanY) {
+        addEntry(new Entry(ItemInfo.NO_ID, screenId, cellX, cellY, spanX, spanY));
+    }
+
+    /**
+     * Releases a region reserved with {@link #reserve}, unless an item has taken it over
+     */
+    public void release(int screenId, int cellX, int cellY, int spanX, int spanY) {
+        ArrayList<Entry> entries = mScreenEntries.get(screenId);
+        if (entries == null) {
+            return;
+        }
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            if (entry.id == ItemInfo.NO_ID && entry.matches(cellX, cellY, spanX, spanY)) {
+                entries.remove(i);
+                // Items can overlap, so the grid is rebuilt instead of clearing the cells
+                mScreenGrids.remove(screenId);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the occupancy of the screen for a grid of the given size. The returned grid is
+     * owned by the index and must not be modified.
+     */
+    public GridOccupancy getScreenOccupancy(int screenId, int countX, int countY) {
+        if (countX != mCountX || countY != mCountY) {
+            mScreenGrids.clear();
+            mCountX = countX;
+            mCountY = countY;
+        }
+        GridOccupancy grid = mScreenGrids.get(screenId);
+        if (grid == null) {
+            grid = new GridOccupancy(countX, countY);
+            ArrayList<Entry> entries = mScreenEntries.get(screenId);
+            if (entries != null) {
+                for (Entry entry : entries) {
+                    grid.markCells(entry, true);
+                }
+            }
+            mScreenGrids.put(screenId, grid);
+        }
+        return grid;
+    }
+
+    private void addEntry(Entry entry) {
+        ArrayList<Entry> entries = mScreenEntries.get(entry.screenId);
+        if (entries == null) {
+            entries = new ArrayList<>();
+            mScreenEntries.put(entry.screenId, entries);
+        }
+        if (entry.id != ItemInfo.NO_ID) {
+            mEntries.put(entry.id, entry);
+            // The item takes over the reservation made for it, its cells are already marked
+            for (int i = 0; i < entries.size(); i++) {
+                Entry reserved = entries.get(i);
+                if (reserved.id == ItemInfo.NO_ID && reserved.matches(entry.cellX, entry.cellY,
+                        entry.spanX, entry.spanY)) {
+                    entries.set(i, entry);
+                    return;
+                }
+            }
+        }
+        entries.add(entry);
+        GridOccupancy grid = mScreenGrids.get(entry.screenId);
+        if (grid != null) {
+            grid.markCells(entry, true);
+        }
+    }
+
+    private void removeEntry(Entry entry) {
+        mEntries.remove(entry.id);
+        ArrayList<Entry> entries = mScreenEntries.get(entry.screenId);
+        if (entries != null) {
+            entries.remove(entry);
+        }
+        // Items can overlap, so the grid is rebuilt instead of clearing the cells of the entry
+        mScreenGrids.remove(entry.screenId);
+    }
+
+    void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "Workspace occupancy: " + mEntries.size() + " items on "
+                + mScreenEntries.size() + " screens, " + mScreenGrids.size() + " grids built");
+    }
+
+    private static class Entry extends CellAndSpan {
+
+        final int id;
+        final int screenId;
+
+        Entry(int id, int screenId, int cellX, int cellY, int spanX, int spanY) {
+            super(cellX, cellY, spanX, spanY);
+            this.id = id;
+            this.screenId = screenId;
+        }
+
+        boolean matches(int cellX, int cellY, int spanX, int spanY) {
+            return this.cellX == cellX && this.cellY == cellY && this.spanX == spanX
+                    && this.spanY == spanY;
+        }
+    }
+}
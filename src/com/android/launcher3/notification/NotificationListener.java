@@ -17,7 +17,7 @@
 package com.android.launcher3.notification;
 
 import static com.android.launcher3.util.Executors.MAIN_EXECUTOR;
-import static com.android.launcher3.util.Executors.MODEL_EXECUTOR;
+import static com.android.launcher3.util.Executors.NOTIFICATION_EXECUTOR;
 import static com.android.launcher3.util.SettingsCache.NOTIFICATION_BADGING_URI;
 
 import android.app.Notification;
@@ -42,12 +42,14 @@ import com.android.launcher3.util.PackageUserKey;
 import com.android.launcher3.util.SettingsCache;
 import com.saggitt.omega.smartspace.provider.NotificationsManager;
 
+import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 /**
@@ -65,6 +67,13 @@ public class NotificationListener extends NotificationListenerService {
     private static final int MSG_NOTIFICATION_FULL_REFRESH = 3;
     private static final int MSG_CANCEL_NOTIFICATION = 4;
     private static final int MSG_RANKING_UPDATE = 5;
+    private static final int MSG_DELIVER_BATCH = 6;
+
+    // Window within which notification changes are merged before being sent to the UI
+    private static final long BATCH_WINDOW_MS = 16;
+
+    private static final AtomicLong sEventsIn = new AtomicLong();
+    private static final AtomicLong sBatchesOut = new AtomicLong();
 
     private static NotificationListener sNotificationListenerInstance = null;
     private static StatusBarNotificationsChangedListener sStatusBarNotificationsChangedListener;
@@ -75,6 +84,11 @@ public class NotificationListener extends NotificationListenerService {
     private final Handler mUiHandler;
     private final Ranking mTempRanking = new Ranking();
 
+    /**
+     * Changes waiting to be sent to the UI, only accessed on the worker thread
+     */
+    private NotificationUpdateBatch mPendingBatch;
+
     /**
      * Maps groupKey's to the corresponding group of notifications.
      */
@@ -93,7 +107,7 @@ public class NotificationListener extends NotificationListenerService {
     private SettingsCache.OnChangeListener mNotificationSettingsChangedListener;
     private NotificationsManager mNotificationManager;
     public NotificationListener() {
-        mWorkerHandler = new Handler(MODEL_EXECUTOR.getLooper(), this::handleWorkerMessage);
+        mWorkerHandler = new Handler(NOTIFICATION_EXECUTOR.getLooper(), this::handleWorkerMessage);
         mUiHandler = new Handler(Looper.getMainLooper(), this::handleUiMessage);
         sNotificationListenerInstance = this;
     }
@@ -114,7 +128,7 @@ public class NotificationListener extends NotificationListenerService {
         } else {
             // User turned off dots globally, so we unbound this service;
             // tell the listener that there are no notifications to remove dots.
-            MODEL_EXECUTOR.submit(() -> MAIN_EXECUTOR.submit(() ->
+            NOTIFICATION_EXECUTOR.submit(() -> MAIN_EXECUTOR.submit(() ->
                     listener.onNotificationFullRefresh(Collections.emptyList())));
         }
     }
@@ -140,15 +154,12 @@ public class NotificationListener extends NotificationListenerService {
         switch (message.what) {
             case MSG_NOTIFICATION_POSTED: {
                 StatusBarNotification sbn = (StatusBarNotification) message.obj;
-                mUiHandler.obtainMessage(notificationIsValidForUI(sbn)
-                                ? MSG_NOTIFICATION_POSTED : MSG_NOTIFICATION_REMOVED,
-                        toKeyPair(sbn)).sendToTarget();
+                getPendingBatch().onPosted(sbn, notificationIsValidForUI(sbn));
                 return true;
             }
             case MSG_NOTIFICATION_REMOVED: {
                 StatusBarNotification sbn = (StatusBarNotification) message.obj;
-                mUiHandler.obtainMessage(MSG_NOTIFICATION_REMOVED,
-                        toKeyPair(sbn)).sendToTarget();
+                getPendingBatch().onRemoved(sbn);
 
                 NotificationGroup notificationGroup = mNotificationGroupMap.get(sbn.getGroupKey());
                 String key = sbn.getKey();
@@ -168,18 +179,21 @@ public class NotificationListener extends NotificationListenerService {
                 }
                 return true;
             }
-            case MSG_NOTIFICATION_FULL_REFRESH:
-                List<StatusBarNotification> activeNotifications = null;
+            case MSG_NOTIFICATION_FULL_REFRESH: {
+                List<StatusBarNotification> allNotifications;
+                List<StatusBarNotification> activeNotifications;
                 if (sIsConnected) {
-                    activeNotifications = Arrays.stream(getActiveNotificationsSafely(null))
+                    allNotifications = Arrays.asList(getActiveNotificationsSafely(null));
+                    activeNotifications = allNotifications.stream()
                             .filter(this::notificationIsValidForUI)
                             .collect(Collectors.toList());
                 } else {
+                    allNotifications = new ArrayList<>();
                     activeNotifications = new ArrayList<>();
                 }
-
-                mUiHandler.obtainMessage(message.what, activeNotifications).sendToTarget();
+                getPendingBatch().onFullRefresh(allNotifications, activeNotifications);
                 return true;
+            }
             case MSG_CANCEL_NOTIFICATION: {
                 mLastKeyDismissedByLauncher = (String) message.obj;
                 cancelNotification(mLastKeyDismissedByLauncher);
@@ -192,36 +206,39 @@ public class NotificationListener extends NotificationListenerService {
                 }
                 return true;
             }
+            case MSG_DELIVER_BATCH: {
+                NotificationUpdateBatch batch = mPendingBatch;
+                mPendingBatch = null;
+                if (batch != null) {
+                    sBatchesOut.incrementAndGet();
+                    mUiHandler.obtainMessage(MSG_DELIVER_BATCH, batch).sendToTarget();
+                }
+                return true;
+            }
         }
         return false;
     }
 
+    /**
+     * Returns the batch collecting the changes to send to the UI, scheduling its delivery when
+     * a new batch is started
+     */
+    @WorkerThread
+    private NotificationUpdateBatch getPendingBatch() {
+        if (mPendingBatch == null) {
+            mPendingBatch = new NotificationUpdateBatch();
+            mWorkerHandler.sendEmptyMessageDelayed(MSG_DELIVER_BATCH, BATCH_WINDOW_MS);
+        }
+        return mPendingBatch;
+    }
+
     private boolean handleUiMessage(Message message) {
-        switch (message.what) {
-            case MSG_NOTIFICATION_POSTED:
-                if (sNotificationsChangedListeners.size() > 0) {
-                    Pair<PackageUserKey, NotificationKeyData> msg = (Pair) message.obj;
-                    for (NotificationsChangedListener listener : sNotificationsChangedListeners) {
-                        listener.onNotificationPosted(msg.first, msg.second);
-                    }
-                }
-                break;
-            case MSG_NOTIFICATION_REMOVED:
-                if (sNotificationsChangedListeners.size() > 0) {
-                    Pair<PackageUserKey, NotificationKeyData> msg = (Pair) message.obj;
-                    for (NotificationsChangedListener listener : sNotificationsChangedListeners) {
-                        listener.onNotificationRemoved(msg.first, msg.second);
-                    }
-                }
-                break;
-            case MSG_NOTIFICATION_FULL_REFRESH:
-                if (sNotificationsChangedListeners.size() > 0) {
-                    for (NotificationsChangedListener listener : sNotificationsChangedListeners) {
-                        listener.onNotificationFullRefresh(
-                                (List<StatusBarNotification>) message.obj);
-                    }
-                }
-                break;
+        if (message.what == MSG_DELIVER_BATCH) {
+            NotificationUpdateBatch batch = (NotificationUpdateBatch) message.obj;
+            for (NotificationsChangedListener listener : sNotificationsChangedListeners) {
+                listener.onNotificationsChanged(batch);
+            }
+            mNotificationManager.onNotificationsChanged(batch);
         }
         return true;
     }
@@ -259,8 +276,8 @@ public class NotificationListener extends NotificationListenerService {
     }
 
     private void onNotificationFullRefresh() {
+        sEventsIn.incrementAndGet();
         mWorkerHandler.obtainMessage(MSG_NOTIFICATION_FULL_REFRESH).sendToTarget();
-        mNotificationManager.onNotificationFullRefresh();
         if (sStatusBarNotificationsChangedListener != null) {
             sStatusBarNotificationsChangedListener.onNotificationFullRefresh();
         }
@@ -277,8 +294,8 @@ public class NotificationListener extends NotificationListenerService {
     @Override
     public void onNotificationPosted(final StatusBarNotification sbn) {
         if (sbn != null) {
+            sEventsIn.incrementAndGet();
             mWorkerHandler.obtainMessage(MSG_NOTIFICATION_POSTED, sbn).sendToTarget();
-            mNotificationManager.onNotificationPosted(sbn);
         }
         if (sStatusBarNotificationsChangedListener != null) {
             sStatusBarNotificationsChangedListener.onNotificationPosted(sbn);
@@ -288,8 +305,8 @@ public class NotificationListener extends NotificationListenerService {
     @Override
     public void onNotificationRemoved(final StatusBarNotification sbn) {
         if (sbn != null) {
+            sEventsIn.incrementAndGet();
             mWorkerHandler.obtainMessage(MSG_NOTIFICATION_REMOVED, sbn).sendToTarget();
-            mNotificationManager.onNotificationRemoved(sbn);
         }
         if (sStatusBarNotificationsChangedListener != null) {
             sStatusBarNotificationsChangedListener.onNotificationRemoved(sbn);
@@ -298,6 +315,7 @@ public class NotificationListener extends NotificationListenerService {
 
     @Override
     public void onNotificationRankingUpdate(RankingMap rankingMap) {
+        sEventsIn.incrementAndGet();
         mWorkerHandler.obtainMessage(MSG_RANKING_UPDATE, rankingMap).sendToTarget();
     }
 
@@ -379,9 +397,12 @@ public class NotificationListener extends NotificationListenerService {
         return !isGroupHeader && !missingTitleAndText;
     }
 
-    private static Pair<PackageUserKey, NotificationKeyData> toKeyPair(StatusBarNotification sbn) {
-        return Pair.create(PackageUserKey.fromNotification(sbn),
-                NotificationKeyData.fromNotification(sbn));
+    /**
+     * Dumps the number of notification events received and of batches sent to the UI
+     */
+    public static void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "NotificationListener: connected=" + sIsConnected
+                + ", eventsIn=" + sEventsIn.get() + ", batchesOut=" + sBatchesOut.get());
     }
 
     public interface NotificationsChangedListener {
@@ -392,6 +413,21 @@ public class NotificationListener extends NotificationListenerService {
                                    NotificationKeyData notificationKey);
 
         void onNotificationFullRefresh(List<StatusBarNotification> activeNotifications);
+
+        /**
+         * Called with the changes received within a short window, instead of once per change
+         */
+        default void onNotificationsChanged(NotificationUpdateBatch batch) {
+            if (batch.getFullRefresh() != null) {
+                onNotificationFullRefresh(batch.getFullRefresh());
+            }
+            for (Pair<PackageUserKey, NotificationKeyData> removed : batch.getRemoved()) {
+                onNotificationRemoved(removed.first, removed.second);
+            }
+            for (Pair<PackageUserKey, NotificationKeyData> posted : batch.getPosted()) {
+                onNotificationPosted(posted.first, posted.second);
+            }
+        }
     }
 
     public interface StatusBarNotificationsChangedListener {
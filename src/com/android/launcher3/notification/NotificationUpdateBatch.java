@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.notification;
+
+import android.service.notification.StatusBarNotification;
+import android.util.ArrayMap;
+import android.util.ArraySet;
+import android.util.Pair;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.android.launcher3.util.PackageUserKey;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The notification changes received by {@link NotificationListener} within a short window,
+ * delivered to the UI at once. Only the last change of every notification is kept, and a full
+ * refresh drops the changes received before it.
+ * <p>
+ * Changes are applied in order: the full refresh if any, then the removed notifications, then
+ * the posted ones.
+ */
+public class NotificationUpdateBatch {
+
+    // Notifications which can be shown in launcher UI, as used for dots and popups
+    @Nullable
+    private List<StatusBarNotification> mFullRefresh;
+    private final ArrayMap<String, Pair<PackageUserKey, NotificationKeyData>> mPosted =
+            new ArrayMap<>();
+    private final ArrayMap<String, Pair<PackageUserKey, NotificationKeyData>> mRemoved =
+            new ArrayMap<>();
+
+    // All active notifications, regardless of whether they can be shown in launcher UI
+    @Nullable
+    private List<StatusBarNotification> mAllActive;
+    private final ArrayMap<String, StatusBarNotification> mAllPosted = new ArrayMap<>();
+    private final ArraySet<String> mAllRemoved = new ArraySet<>();
+
+    private int mEventCount;
+
+    @WorkerThread
+    void onFullRefresh(List<StatusBarNotification> allActive,
+            List<StatusBarNotification> validForUi) {
+        mEventCount++;
+        mAllActive = allActive;
+        mFullRefresh = validForUi;
+        mPosted.clear();
+        mRemoved.clear();
+        mAllPosted.clear();
+        mAllRemoved.clear();
+    }
+
+    @WorkerThread
+    void onPosted(StatusBarNotification sbn, boolean validForUi) {
+        mEventCount++;
+        String key = sbn.getKey();
+        if (validForUi) {
+            mRemoved.remove(key);
+            mPosted.put(key, toKeyPair(sbn));
+        } else {
+            mPosted.remove(key);
+            mRemoved.put(key, toKeyPair(sbn));
+        }
+        mAllRemoved.remove(key);
+        mAllPosted.put(key, sbn);
+    }
+
+    @WorkerThread
+    void onRemoved(StatusBarNotification sbn) {
+        mEventCount++;
+        String key = sbn.getKey();
+        mPosted.remove(key);
+        mRemoved.put(key, toKeyPair(sbn));
+        mAllPosted.remove(key);
+        mAllRemoved.add(key);
+    }
+
+    /**
+     * Returns the notifications shown in launcher UI replacing all the previous ones, or null if
+     * this batch only holds incremental changes
+     */
+    @Nullable
+    public List<StatusBarNotification> getFullRefresh() {
+        return mFullRefresh;
+    }
+
+    public Collection<Pair<PackageUserKey, NotificationKeyData>> getPosted() {
+        return mPosted.values();
+    }
+
+    public Collection<Pair<PackageUserKey, NotificationKeyData>> getRemoved() {
+        return mRemoved.values();
+    }
+
+    /**
+     * Returns all the active notifications replacing the previous ones, or null if this batch
+     * only holds incremental changes
+     */
+    @Nullable
+    public List<StatusBarNotification> getAllActive() {
+        return mAllActive;
+    }
+
+    public Collection<StatusBarNotification> getAllPosted() {
+        return mAllPosted.values();
+    }
+
+    public Collection<String> getAllRemovedKeys() {
+        return mAllRemoved;
+    }
+
+    /**
+     * Returns the number of notification events merged into this batch
+     */
+    public int getEventCount() {
+        return mEventCount;
+    }
+
+    private static Pair<PackageUserKey, NotificationKeyData> toKeyPair(StatusBarNotification sbn) {
+        return Pair.create(PackageUserKey.fromNotification(sbn),
+                NotificationKeyData.fromNotification(sbn));
+    }
+}
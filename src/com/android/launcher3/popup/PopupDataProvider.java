@@ -19,6 +19,7 @@ package com.android.launcher3.popup;
 import android.content.ComponentName;
 import android.service.notification.StatusBarNotification;
 import android.util.Log;
+import android.util.Pair;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -28,6 +29,7 @@ import com.android.launcher3.model.WidgetItem;
 import com.android.launcher3.model.data.ItemInfo;
 import com.android.launcher3.notification.NotificationKeyData;
 import com.android.launcher3.notification.NotificationListener;
+import com.android.launcher3.notification.NotificationUpdateBatch;
 import com.android.launcher3.util.ComponentKey;
 import com.android.launcher3.util.PackageUserKey;
 import com.android.launcher3.util.ShortcutUtil;
@@ -38,9 +40,11 @@ import java.io.PrintWriter;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -53,7 +57,7 @@ public class PopupDataProvider implements NotificationListener.NotificationsChan
     private static final boolean LOGD = false;
     private static final String TAG = "PopupDataProvider";
 
-    private final Consumer<Predicate<PackageUserKey>> mNotificationDotsChangeListener;
+    private final Consumer<Set<PackageUserKey>> mNotificationDotsChangeListener;
 
     /**
      * Maps launcher activity components to a count of how many shortcuts they have.
@@ -71,37 +75,28 @@ public class PopupDataProvider implements NotificationListener.NotificationsChan
 
     private PopupDataChangeListener mChangeListener = PopupDataChangeListener.INSTANCE;
 
-    public PopupDataProvider(Consumer<Predicate<PackageUserKey>> notificationDotsChangeListener) {
+    public PopupDataProvider(Consumer<Set<PackageUserKey>> notificationDotsChangeListener) {
         mNotificationDotsChangeListener = notificationDotsChangeListener;
     }
 
-    private void updateNotificationDots(Predicate<PackageUserKey> updatedDots) {
+    private void updateNotificationDots(Set<PackageUserKey> updatedDots) {
         mNotificationDotsChangeListener.accept(updatedDots);
-        mChangeListener.onNotificationDotsUpdated(updatedDots);
+        mChangeListener.onNotificationDotsUpdated(updatedDots::contains);
     }
 
     @Override
     public void onNotificationPosted(PackageUserKey postedPackageUserKey,
                                      NotificationKeyData notificationKey) {
-        DotInfo dotInfo = mPackageUserToDotInfos.get(postedPackageUserKey);
-        if (dotInfo == null) {
-            dotInfo = new DotInfo();
-            mPackageUserToDotInfos.put(postedPackageUserKey, dotInfo);
-        }
-        if (dotInfo.addOrUpdateNotificationKey(notificationKey)) {
-            updateNotificationDots(postedPackageUserKey::equals);
+        if (addNotification(postedPackageUserKey, notificationKey)) {
+            updateNotificationDots(Collections.singleton(postedPackageUserKey));
         }
     }
 
     @Override
     public void onNotificationRemoved(PackageUserKey removedPackageUserKey,
                                       NotificationKeyData notificationKey) {
-        DotInfo oldDotInfo = mPackageUserToDotInfos.get(removedPackageUserKey);
-        if (oldDotInfo != null && oldDotInfo.removeNotificationKey(notificationKey)) {
-            if (oldDotInfo.getNotificationKeys().size() == 0) {
-                mPackageUserToDotInfos.remove(removedPackageUserKey);
-            }
-            updateNotificationDots(removedPackageUserKey::equals);
+        if (removeNotification(removedPackageUserKey, notificationKey)) {
+            updateNotificationDots(Collections.singleton(removedPackageUserKey));
             trimNotifications(mPackageUserToDotInfos);
         }
     }
@@ -109,6 +104,75 @@ public class PopupDataProvider implements NotificationListener.NotificationsChan
     @Override
     public void onNotificationFullRefresh(List<StatusBarNotification> activeNotifications) {
         if (activeNotifications == null) return;
+        Map<PackageUserKey, DotInfo> updatedDots = refreshNotifications(activeNotifications);
+        if (!updatedDots.isEmpty()) {
+            updateNotificationDots(updatedDots.keySet());
+        }
+        trimNotifications(updatedDots);
+    }
+
+    @Override
+    public void onNotificationsChanged(NotificationUpdateBatch batch) {
+        // Apply all the changes first, so that the dots and popup are only updated once
+        Set<PackageUserKey> updatedDots = new HashSet<>();
+        boolean removed = false;
+        if (batch.getFullRefresh() != null) {
+            updatedDots.addAll(refreshNotifications(batch.getFullRefresh()).keySet());
+            removed = true;
+        }
+        for (Pair<PackageUserKey, NotificationKeyData> notification : batch.getRemoved()) {
+            if (removeNotification(notification.first, notification.second)) {
+                updatedDots.add(notification.first);
+                removed = true;
+            }
+        }
+        for (Pair<PackageUserKey, NotificationKeyData> notification : batch.getPosted()) {
+            if (addNotification(notification.first, notification.second)) {
+                updatedDots.add(notification.first);
+            }
+        }
+
+        if (!updatedDots.isEmpty()) {
+            updateNotificationDots(updatedDots);
+        }
+        if (removed) {
+            trimNotifications(mPackageUserToDotInfos);
+        }
+    }
+
+    /**
+     * Adds or updates the notification, returning true if the dot of the package changed
+     */
+    private boolean addNotification(PackageUserKey packageUserKey,
+            NotificationKeyData notificationKey) {
+        DotInfo dotInfo = mPackageUserToDotInfos.get(packageUserKey);
+        if (dotInfo == null) {
+            dotInfo = new DotInfo();
+            mPackageUserToDotInfos.put(packageUserKey, dotInfo);
+        }
+        return dotInfo.addOrUpdateNotificationKey(notificationKey);
+    }
+
+    /**
+     * Removes the notification, returning true if the dot of the package changed
+     */
+    private boolean removeNotification(PackageUserKey packageUserKey,
+            NotificationKeyData notificationKey) {
+        DotInfo oldDotInfo = mPackageUserToDotInfos.get(packageUserKey);
+        if (oldDotInfo != null && oldDotInfo.removeNotificationKey(notificationKey)) {
+            if (oldDotInfo.getNotificationKeys().size() == 0) {
+                mPackageUserToDotInfos.remove(packageUserKey);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Replaces all the notifications, returning the dots which changed
+     */
+    private Map<PackageUserKey, DotInfo> refreshNotifications(
+            List<StatusBarNotification> activeNotifications) {
         // This will contain the PackageUserKeys which have updated dots.
         HashMap<PackageUserKey, DotInfo> updatedDots = new HashMap<>(mPackageUserToDotInfos);
         mPackageUserToDotInfos.clear();
@@ -136,11 +200,7 @@ public class PopupDataProvider implements NotificationListener.NotificationsChan
                 updatedDots.remove(packageUserKey);
             }
         }
-
-        if (!updatedDots.isEmpty()) {
-            updateNotificationDots(updatedDots::containsKey);
-        }
-        trimNotifications(updatedDots);
+        return updatedDots;
     }
 
     private void trimNotifications(Map<PackageUserKey, DotInfo> updatedDots) {
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.search;
+
+import static com.android.launcher3.util.Executors.MAIN_EXECUTOR;
+import static com.android.launcher3.util.Executors.THREAD_POOL_EXECUTOR;
+
+import android.os.Handler;
+import android.util.Log;
+
+import androidx.annotation.WorkerThread;
+
+import java.util.ArrayList;
+import java.util.concurrent.Future;
+
+/**
+ * A {@link SearchAlgorithm} for sources which block while searching, like databases and network
+ * services. Searches run on the thread pool and the results are posted to the main thread. A new
+ * search cancels the previous one, whose results are dropped.
+ *
+ * @param <T> Search Result type
+ */
+public abstract class BackgroundSearchAlgorithm<T> implements SearchAlgorithm<T> {
+
+    private static final String TAG = "BackgroundSearchAlgorithm";
+
+    private final Handler mResultHandler = new Handler(MAIN_EXECUTOR.getLooper());
+    private Future<?> mActiveRequest;
+    // Incremented on the main thread by every search and interrupting cancellation
+    private int mRequestId;
+
+    /**
+     * Returns the results for the query
+     */
+    @WorkerThread
+    protected abstract ArrayList<T> search(String query) throws Exception;
+
+    @Override
+    public void doSearch(String query, SearchCallback<T> callback) {
+        cancel(true);
+        int requestId = mRequestId;
+        mActiveRequest = THREAD_POOL_EXECUTOR.submit(() -> {
+            ArrayList<T> results;
+            try {
+                results = search(query);
+            } catch (Exception e) {
+                Log.e(TAG, "Search failed in " + getClass().getSimpleName(), e);
+                results = new ArrayList<>();
+            }
+            if (!Thread.currentThread().isInterrupted()) {
+                ArrayList<T> finalResults = results;
+                mResultHandler.post(() -> {
+                    if (requestId == mRequestId) {
+                        callback.onSearchResult(query, finalResults);
+                    }
+                });
+            }
+        });
+    }
+
+    @Override
+    public void cancel(boolean interruptActiveRequests) {
+        if (interruptActiveRequests) {
+            mRequestId++;
+        }
+        if (mActiveRequest != null) {
+            mActiveRequest.cancel(interruptActiveRequests);
+            mActiveRequest = null;
+        }
+        if (interruptActiveRequests) {
+            mResultHandler.removeCallbacksAndMessages(null);
+        }
+    }
+}
@@ -129,8 +129,8 @@ public class SecondaryDisplayLauncher extends BaseDraggingActivity
         mAppsButton = findViewById(R.id.all_apps_button);
 
         mDragController.addDragListener(this);
-        mPopupDataProvider = new PopupDataProvider(
-                mAppsView.getAppsStore()::updateNotificationDots);
+        mPopupDataProvider = new PopupDataProvider(updatedDots ->
+                mAppsView.getAppsStore().updateNotificationDots(updatedDots::contains));
 
         mModel.addCallbacksAndLoad(this);
     }
@@ -213,6 +213,18 @@ public class TestInformationHandler implements ResourceBasedOverride {
                 });
             }
 
+            case TestProtocol.REQUEST_GET_FRAME_STATS: {
+                return getLauncherUIProperty(Bundle::putBundle,
+                        l -> l.getFrameStatsTracker().getStats());
+            }
+
+            case TestProtocol.REQUEST_CLEAR_FRAME_STATS: {
+                return getLauncherUIProperty(Bundle::putBoolean, l -> {
+                    l.getFrameStatsTracker().reset();
+                    return true;
+                });
+            }
+
             case TestProtocol.REQUEST_HAS_TIS: {
                 response.putBoolean(
                         TestProtocol.REQUEST_HAS_TIS, false);
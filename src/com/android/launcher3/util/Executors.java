@@ -82,6 +82,14 @@ public class Executors {
     public static final LooperExecutor MODEL_EXECUTOR =
             new LooperExecutor(createAndStartNewLooper("launcher-loader"));
 
+    /**
+     * Low priority executor for processing notification events, so that bursts of notifications
+     * do not delay model tasks
+     */
+    public static final LooperExecutor NOTIFICATION_EXECUTOR =
+            new LooperExecutor(createAndStartNewLooper(
+                    "launcher-notifications", Process.THREAD_PRIORITY_BACKGROUND));
+
     /**
      * Returns and caches a single thread executor for a given package.
      *
@@ -2,22 +2,42 @@ package com.android.launcher3.util;
 
 import android.graphics.Rect;
 
+import androidx.annotation.Nullable;
+
 import com.android.launcher3.model.data.ItemInfo;
 
+import java.util.Arrays;
+
 /**
  * Utility object to manage the occupancy in a grid.
+ * <p>
+ * Each row is stored as a bitmask in a single long, with bit x set when the cell (x, y) is
+ * occupied, so span checks are a shift and a mask per row. Grids are limited to 64 columns.
  */
 public class GridOccupancy extends AbsGridOccupancy {
 
+    private static final int MAX_COLUMNS = Long.SIZE;
+
     private final int mCountX;
     private final int mCountY;
 
-    public final boolean[][] cells;
+    private final long[] mRows;
 
     public GridOccupancy(int countX, int countY) {
+        if (countX > MAX_COLUMNS) {
+            throw new IllegalArgumentException("Grid has more than " + MAX_COLUMNS + " columns");
+        }
         mCountX = countX;
         mCountY = countY;
-        cells = new boolean[countX][countY];
+        mRows = new long[countY];
+    }
+
+    public int getCountX() {
+        return mCountX;
+    }
+
+    public int getCountY() {
+        return mCountY;
     }
 
     /**
@@ -30,28 +50,66 @@ public class GridOccupancy extends AbsGridOccupancy {
      * @return true if a vacant cell was found
      */
     public boolean findVacantCell(int[] vacantOut, int spanX, int spanY) {
-        return super.findVacantCell(vacantOut, cells, mCountX, mCountY, spanX, spanY);
+        return super.findVacantCell(vacantOut, mRows, mCountX, mCountY, spanX, spanY);
     }
 
     public void copyTo(GridOccupancy dest) {
-        for (int i = 0; i < mCountX; i++) {
-            for (int j = 0; j < mCountY; j++) {
-                dest.cells[i][j] = cells[i][j];
+        if (dest.mCountX == mCountX) {
+            System.arraycopy(mRows, 0, dest.mRows, 0, mCountY);
+        } else {
+            long rowMask = spanMask(0, mCountX);
+            for (int y = 0; y < mCountY; y++) {
+                dest.mRows[y] = (dest.mRows[y] & ~rowMask) | mRows[y];
             }
         }
     }
 
+    /**
+     * Returns a new grid with the same size and occupancy as this one
+     */
+    public GridOccupancy copy() {
+        GridOccupancy copy = new GridOccupancy(mCountX, mCountY);
+        copyTo(copy);
+        return copy;
+    }
+
+    /**
+     * Copies this grid into {@param dest}, which is one column wider, shifting the cells at or
+     * after {@param column} by one and marking that column as occupied.
+     */
+    public void copyToInsertingColumn(GridOccupancy dest, int column) {
+        long low = spanMask(0, column);
+        long inserted = 1L << column;
+        for (int y = 0; y < mCountY; y++) {
+            long row = mRows[y];
+            dest.mRows[y] = (row & low) | inserted | ((row & ~low) << 1);
+        }
+    }
+
+    public boolean isOccupied(int x, int y) {
+        return (mRows[y] & (1L << x)) != 0;
+    }
+
     public boolean isRegionVacant(int x, int y, int spanX, int spanY) {
+        return isRegionVacant(x, y, spanX, spanY, null);
+    }
+
+    /**
+     * Returns true if the region is inside the grid and vacant. When {@param block} is provided,
+     * only the cells occupied in the block, with its origin placed at (x, y), are checked.
+     */
+    public boolean isRegionVacant(int x, int y, int spanX, int spanY,
+            @Nullable GridOccupancy block) {
         int x2 = x + spanX - 1;
         int y2 = y + spanY - 1;
         if (x < 0 || y < 0 || x2 >= mCountX || y2 >= mCountY) {
             return false;
         }
-        for (int i = x; i <= x2; i++) {
-            for (int j = y; j <= y2; j++) {
-                if (cells[i][j]) {
-                    return false;
-                }
+        long mask = spanMask(0, spanX);
+        for (int j = 0; j < spanY; j++) {
+            long blockMask = block == null ? mask : block.mRows[j] & mask;
+            if (((mRows[y + j] >>> x) & blockMask) != 0) {
+                return false;
             }
         }
         return true;
@@ -59,10 +117,12 @@ public class GridOccupancy extends AbsGridOccupancy {
 
     public void markCells(int cellX, int cellY, int spanX, int spanY, boolean value) {
         if (cellX < 0 || cellY < 0) return;
-        for (int x = cellX; x < cellX + spanX && x < mCountX; x++) {
-            for (int y = cellY; y < cellY + spanY && y < mCountY; y++) {
-                cells[x][y] = value;
-            }
+        int x2 = Math.min(cellX + spanX, mCountX);
+        int y2 = Math.min(cellY + spanY, mCountY);
+        if (x2 <= cellX || y2 <= cellY) return;
+        long mask = spanMask(cellX, x2 - cellX);
+        for (int y = cellY; y < y2; y++) {
+            mRows[y] = value ? mRows[y] | mask : mRows[y] & ~mask;
         }
     }
 
@@ -79,6 +139,16 @@ public class GridOccupancy extends AbsGridOccupancy {
     }
 
     public void clear() {
-        markCells(0, 0, mCountX, mCountY, false);
+        Arrays.fill(mRows, 0);
+    }
+
+    /**
+     * Returns a row mask with {@param span} bits set starting at bit {@param x}
+     */
+    static long spanMask(int x, int span) {
+        if (span <= 0) {
+            return 0;
+        }
+        return (span >= Long.SIZE ? -1L : (1L << span) - 1) << x;
     }
 }
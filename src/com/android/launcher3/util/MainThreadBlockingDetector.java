@@ -0,0 +1,274 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import static com.android.launcher3.util.Executors.MAIN_EXECUTOR;
+
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.ArrayMap;
+
+import androidx.annotation.Nullable;
+
+import com.android.launcher3.config.FeatureFlags;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Debug build detector of the work blocking the main thread, to find and keep out main thread
+ * stalls.
+ * <p>
+ * Entry points known to block, such as preference reads, database queries and package manager
+ * calls, are wrapped with {@link #begin(String)} and {@link #end(Object)}, and their time on the
+ * main thread is attributed to the entry point and to the code calling it. The messages of the
+ * main looper running longer than a frame are attributed to their target. Both are aggregated
+ * into a report printed in the dump, and tests can fail when an entry point blocked the main
+ * thread for longer than a budget, see {@link #getCallSitesOverBudget(long)}.
+ */
+public class MainThreadBlockingDetector {
+
+    public static final boolean ENABLED = FeatureFlags.IS_STUDIO_BUILD;
+
+    // Callers are only looked up for the calls blocking for longer than this, as it needs a stack
+    private static final long SLOW_CALL_NANOS = TimeUnit.MILLISECONDS.toNanos(4);
+    // Looper messages are only reported when running for longer than this
+    private static final long SLOW_MESSAGE_NANOS = TimeUnit.MILLISECONDS.toNanos(16);
+
+    private static final String DISPATCHING_PREFIX = ">>>>> Dispatching to ";
+    // Object hashes and ids which would prevent aggregating the messages of a target
+    private static final Pattern INSTANCE_ID = Pattern.compile("\\{[0-9a-f]+\\}|@[0-9a-f]+");
+
+    private static final Object sLock = new Object();
+    // Guarded by sLock
+    private static final ArrayMap<String, CallSite> sCallSites = new ArrayMap<>();
+    private static final ArrayMap<String, Stats> sSlowMessages = new ArrayMap<>();
+
+    private static boolean sMonitoringLooper;
+    // Accessed on the main thread only
+    private static String sDispatchingMessage;
+    private static long sDispatchStartNanos;
+
+    /**
+     * Starts attributing the slow messages of the main looper to their target
+     */
+    public static void monitorMainLooper() {
+        if (!ENABLED || sMonitoringLooper) {
+            return;
+        }
+        sMonitoringLooper = true;
+        MAIN_EXECUTOR.getLooper().setMessageLogging(MainThreadBlockingDetector::onLooperLog);
+    }
+
+    private static void onLooperLog(String log) {
+        if (log.startsWith(DISPATCHING_PREFIX)) {
+            sDispatchingMessage = log;
+            sDispatchStartNanos = SystemClock.elapsedRealtimeNanos();
+            return;
+        }
+        if (sDispatchingMessage == null) {
+            return;
+        }
+        long duration = SystemClock.elapsedRealtimeNanos() - sDispatchStartNanos;
+        if (duration >= SLOW_MESSAGE_NANOS) {
+            String target = INSTANCE_ID.matcher(
+                    sDispatchingMessage.substring(DISPATCHING_PREFIX.length())).replaceAll("");
+            synchronized (sLock) {
+                Stats stats = sSlowMessages.get(target);
+                if (stats == null) {
+                    stats = new Stats();
+                    sSlowMessages.put(target, stats);
+                }
+                stats.add(duration);
+            }
+        }
+        sDispatchingMessage = null;
+    }
+
+    /**
+     * Starts timing a blocking call made from the entry point
+     * @return a token to pass into {@link #end(Object)}, null when not on the main thread
+     */
+    @Nullable
+    public static Object begin(String entryPoint) {
+        if (!ENABLED || Looper.myLooper() != Looper.getMainLooper()) {
+            return null;
+        }
+        return new Token(entryPoint, SystemClock.elapsedRealtimeNanos());
+    }
+
+    /**
+     * @param token the token returned from {@link #begin(String)}
+     */
+    public static void end(@Nullable Object token) {
+        if (token == null) {
+            return;
+        }
+        Token t = (Token) token;
+        long duration = SystemClock.elapsedRealtimeNanos() - t.startNanos;
+        String caller = duration >= SLOW_CALL_NANOS ? findCaller() : null;
+        synchronized (sLock) {
+            CallSite callSite = sCallSites.get(t.entryPoint);
+            if (callSite == null) {
+                callSite = new CallSite();
+                sCallSites.put(t.entryPoint, callSite);
+            }
+            callSite.add(duration);
+            if (caller != null) {
+                Stats stats = callSite.slowCallers.get(caller);
+                if (stats == null) {
+                    stats = new Stats();
+                    callSite.slowCallers.put(caller, stats);
+                }
+                stats.add(duration);
+            }
+        }
+    }
+
+    /**
+     * Times the blocking call made from the entry point, see {@link #begin(String)}
+     */
+    public static <T> T track(String entryPoint, Supplier<T> call) {
+        Object token = begin(entryPoint);
+        try {
+            return call.get();
+        } finally {
+            end(token);
+        }
+    }
+
+    /**
+     * Returns the first frame calling into the class of the entry point, skipping the frames of
+     * this class and of the entry point itself
+     */
+    private static String findCaller() {
+        StackTraceElement[] stack = new Throwable().getStackTrace();
+        String entryClass = null;
+        for (StackTraceElement frame : stack) {
+            String frameClass = getOuterClassName(frame.getClassName());
+            if (frameClass.equals(MainThreadBlockingDetector.class.getName())) {
+                continue;
+            }
+            if (entryClass == null) {
+                entryClass = frameClass;
+            } else if (!frameClass.equals(entryClass)) {
+                return frame.toString();
+            }
+        }
+        return "unknown";
+    }
+
+    private static String getOuterClassName(String className) {
+        int index = className.indexOf('$');
+        return index < 0 ? className : className.substring(0, index);
+    }
+
+    /**
+     * Returns the entry points which blocked the main thread for longer than the budget in a
+     * single call, with their slow callers
+     */
+    public static List<String> getCallSitesOverBudget(long budgetMs) {
+        long budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMs);
+        ArrayList<String> result = new ArrayList<>();
+        synchronized (sLock) {
+            for (int i = 0; i < sCallSites.size(); i++) {
+                CallSite callSite = sCallSites.valueAt(i);
+                if (callSite.maxNanos > budgetNanos) {
+                    StringBuilder sb = new StringBuilder(sCallSites.keyAt(i))
+                            .append(": ").append(callSite);
+                    for (int j = 0; j < callSite.slowCallers.size(); j++) {
+                        sb.append("\n\t<- ").append(callSite.slowCallers.keyAt(j))
+                                .append(": ").append(callSite.slowCallers.valueAt(j));
+                    }
+                    result.add(sb.toString());
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Clears the aggregated blocking calls and slow messages
+     */
+    public static void reset() {
+        synchronized (sLock) {
+            sCallSites.clear();
+            sSlowMessages.clear();
+        }
+    }
+
+    public static void dump(String prefix, PrintWriter writer) {
+        if (!ENABLED) {
+            return;
+        }
+        synchronized (sLock) {
+            writer.println(prefix + "MainThreadBlockingDetector: " + sCallSites.size()
+                    + " entry points, " + sSlowMessages.size() + " slow message targets");
+            for (int i = 0; i < sCallSites.size(); i++) {
+                CallSite callSite = sCallSites.valueAt(i);
+                writer.println(prefix + "\t" + sCallSites.keyAt(i) + ": " + callSite);
+                for (int j = 0; j < callSite.slowCallers.size(); j++) {
+                    writer.println(prefix + "\t\t<- " + callSite.slowCallers.keyAt(j) + ": "
+                            + callSite.slowCallers.valueAt(j));
+                }
+            }
+            for (int i = 0; i < sSlowMessages.size(); i++) {
+                writer.println(prefix + "\tmessage " + sSlowMessages.keyAt(i) + ": "
+                        + sSlowMessages.valueAt(i));
+            }
+        }
+    }
+
+    private static class Token {
+
+        final String entryPoint;
+        final long startNanos;
+
+        Token(String entryPoint, long startNanos) {
+            this.entryPoint = entryPoint;
+            this.startNanos = startNanos;
+        }
+    }
+
+    private static class Stats {
+
+        int count;
+        long totalNanos;
+        long maxNanos;
+
+        void add(long durationNanos) {
+            count++;
+            totalNanos += durationNanos;
+            maxNanos = Math.max(maxNanos, durationNanos);
+        }
+
+        @Override
+        public String toString() {
+            return count + " calls, " + TimeUnit.NANOSECONDS.toMillis(totalNanos) + "ms total, "
+                    + TimeUnit.NANOSECONDS.toMillis(maxNanos) + "ms max";
+        }
+    }
+
+    private static class CallSite extends Stats {
+
+        // Calls slower than SLOW_CALL_NANOS, by calling frame
+        final ArrayMap<String, Stats> slowCallers = new ArrayMap<>();
+    }
+}
@@ -59,6 +59,7 @@ import com.android.launcher3.Utilities;
 import com.android.launcher3.allapps.ActivityAllAppsContainerView;
 import com.android.launcher3.celllayout.CellPosMapper;
 import com.android.launcher3.dot.DotInfo;
+import com.android.launcher3.dot.DotViewIndex;
 import com.android.launcher3.dragndrop.DragController;
 import com.android.launcher3.folder.FolderIcon;
 import com.android.launcher3.logger.LauncherAtom;
@@ -246,6 +247,15 @@ public interface ActivityContext {
         return null;
     }
 
+    /**
+     * Returns the index used to update the notification dots of the icons of this context, or
+     * null if the icons are updated by walking the views.
+     */
+    @Nullable
+    default DotViewIndex getDotViewIndex() {
+        return null;
+    }
+
     @Nullable
     default StringCache getStringCache() {
         return null;
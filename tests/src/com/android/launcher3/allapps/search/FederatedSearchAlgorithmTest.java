@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.allapps.search;
+
+import static com.android.launcher3.allapps.BaseAllAppsAdapter.VIEW_TYPE_EMPTY_SEARCH;
+import static com.android.launcher3.allapps.BaseAllAppsAdapter.VIEW_TYPE_ICON;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.android.launcher3.allapps.BaseAllAppsAdapter.AdapterItem;
+import com.android.launcher3.allapps.search.FederatedSearchAlgorithm.Source;
+import com.android.launcher3.search.SearchAlgorithm;
+import com.android.launcher3.search.SearchCallback;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link FederatedSearchAlgorithm}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class FederatedSearchAlgorithmTest {
+
+    private static final long LONG_DEADLINE_MS = 60_000;
+    private static final long SHORT_DEADLINE_MS = 50;
+
+    private final ManualSource mApps = new ManualSource();
+    private final ManualSource mSlow = new ManualSource();
+    private final RecordingCallback mCallback = new RecordingCallback();
+
+    @Test
+    public void doSearch_streamsResultsAsSourcesComplete() {
+        FederatedSearchAlgorithm algorithm = create(LONG_DEADLINE_MS);
+        AdapterItem app = new AdapterItem(VIEW_TYPE_ICON);
+        AdapterItem other = new AdapterItem(VIEW_TYPE_ICON);
+
+        runOnMainSync(() -> {
+            algorithm.doSearch("q", mCallback);
+            mApps.deliver(app);
+        });
+        assertThat(mCallback.mResults).containsExactly(Arrays.asList(app));
+
+        runOnMainSync(() -> mSlow.deliver(other));
+        assertThat(mCallback.mResults).containsExactly(Arrays.asList(app),
+                Arrays.asList(app, other)).inOrder();
+    }
+
+    @Test
+    public void doSearch_mergesResultsInSourceOrder() {
+        FederatedSearchAlgorithm algorithm = create(LONG_DEADLINE_MS);
+        AdapterItem app = new AdapterItem(VIEW_TYPE_ICON);
+        AdapterItem other = new AdapterItem(VIEW_TYPE_ICON);
+
+        runOnMainSync(() -> {
+            algorithm.doSearch("q", mCallback);
+            mSlow.deliver(other);
+            mApps.deliver(app);
+        });
+
+        assertThat(mCallback.mResults.get(1)).containsExactly(app, other).inOrder();
+    }
+
+    @Test
+    public void doSearch_doesNotPublishEmptyPartialResults() {
+        FederatedSearchAlgorithm algorithm = create(LONG_DEADLINE_MS);
+
+        runOnMainSync(() -> {
+            algorithm.doSearch("q", mCallback);
+            mApps.deliver();
+        });
+        assertThat(mCallback.mResults).isEmpty();
+
+        runOnMainSync(() -> mSlow.deliver());
+        assertThat(mCallback.mResults).hasSize(1);
+        assertThat(mCallback.mResults.get(0).get(0).viewType).isEqualTo(VIEW_TYPE_EMPTY_SEARCH);
+    }
+
+    @Test
+    public void doSearch_completesWhenSourceMissesDeadline() throws Exception {
+        FederatedSearchAlgorithm algorithm = create(SHORT_DEADLINE_MS);
+        AdapterItem app = new AdapterItem(VIEW_TYPE_ICON);
+
+        runOnMainSync(() -> {
+            algorithm.doSearch("q", mCallback);
+            mApps.deliver();
+        });
+        assertThat(mCallback.mLatch.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Late results are dropped
+        runOnMainSync(() -> mSlow.deliver(app));
+        assertThat(mCallback.mResults).hasSize(1);
+        assertThat(mCallback.mResults.get(0).get(0).viewType).isEqualTo(VIEW_TYPE_EMPTY_SEARCH);
+    }
+
+    @Test
+    public void doSearch_dropsResultsOfStaleQueries() {
+        FederatedSearchAlgorithm algorithm = create(LONG_DEADLINE_MS);
+        AdapterItem app = new AdapterItem(VIEW_TYPE_ICON);
+
+        runOnMainSync(() -> {
+            algorithm.doSearch("a", mCallback);
+            SearchCallback<AdapterItem> staleCallback = mApps.mCallback;
+            algorithm.doSearch("ab", mCallback);
+            staleCallback.onSearchResult("a", new ArrayList<>(Arrays.asList(app)));
+        });
+        assertThat(mCallback.mResults).isEmpty();
+
+        runOnMainSync(() -> mApps.deliver(app));
+        assertThat(mCallback.mQueries).containsExactly("ab");
+    }
+
+    @Test
+    public void doSearch_cancelsRequestsOfPreviousQuery() {
+        FederatedSearchAlgorithm algorithm = create(LONG_DEADLINE_MS);
+
+        runOnMainSync(() -> {
+            algorithm.doSearch("a", mCallback);
+            algorithm.doSearch("ab", mCallback);
+        });
+
+        assertThat(mApps.mInterruptCount).isEqualTo(1);
+        assertThat(mSlow.mInterruptCount).isEqualTo(1);
+    }
+
+    @Test
+    public void doSearch_publishesRefinedResultsOfSource() {
+        FederatedSearchAlgorithm algorithm = create(LONG_DEADLINE_MS);
+        AdapterItem app = new AdapterItem(VIEW_TYPE_ICON);
+        AdapterItem prefix = new AdapterItem(VIEW_TYPE_ICON);
+        AdapterItem full = new AdapterItem(VIEW_TYPE_ICON);
+
+        runOnMainSync(() -> {
+            algorithm.doSearch("q", mCallback);
+            mApps.deliver(app);
+            mSlow.deliver(prefix);
+            mSlow.deliver(full);
+        });
+
+        assertThat(mCallback.mResults).containsExactly(Arrays.asList(app),
+                Arrays.asList(app, prefix), Arrays.asList(app, full)).inOrder();
+    }
+
+    private FederatedSearchAlgorithm create(long slowDeadlineMs) {
+        return new FederatedSearchAlgorithm(true /* addNoResultsMessage */,
+                new Source(mApps, LONG_DEADLINE_MS), new Source(mSlow, slowDeadlineMs));
+    }
+
+    private static void runOnMainSync(Runnable runnable) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(runnable);
+    }
+
+    /**
+     * A source which answers when told to
+     */
+    private static class ManualSource implements SearchAlgorithm<AdapterItem> {
+
+        private String mQuery;
+        private SearchCallback<AdapterItem> mCallback;
+        private int mInterruptCount;
+
+        @Override
+        public void doSearch(String query, SearchCallback<AdapterItem> callback) {
+            mQuery = query;
+            mCallback = callback;
+        }
+
+        @Override
+        public void cancel(boolean interruptActiveRequests) {
+            if (interruptActiveRequests) {
+                mInterruptCount++;
+            }
+        }
+
+        void deliver(AdapterItem... items) {
+            mCallback.onSearchResult(mQuery, new ArrayList<>(Arrays.asList(items)));
+        }
+    }
+
+    private static class RecordingCallback implements SearchCallback<AdapterItem> {
+
+        private final List<String> mQueries = new ArrayList<>();
+        private final List<List<AdapterItem>> mResults = new ArrayList<>();
+        private final CountDownLatch mLatch = new CountDownLatch(1);
+
+        @Override
+        public void onSearchResult(String query, ArrayList<AdapterItem> items) {
+            mQueries.add(query);
+            mResults.add(items);
+            mLatch.countDown();
+        }
+
+        @Override
+        public void clearSearchResult() { }
+    }
+}
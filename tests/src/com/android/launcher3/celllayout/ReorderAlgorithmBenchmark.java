@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.celllayout;
+
+import static androidx.test.platform.app.InstrumentationRegistry.getInstrumentation;
+
+import static org.junit.Assert.assertNotNull;
+
+import android.content.Context;
+import android.graphics.Point;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.View;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import com.android.launcher3.CellLayout;
+import com.android.launcher3.celllayout.testcases.FullReorderCase;
+import com.android.launcher3.celllayout.testcases.MoveOutReorderCase;
+import com.android.launcher3.celllayout.testcases.PushReorderCase;
+import com.android.launcher3.celllayout.testcases.ReorderTestCase;
+import com.android.launcher3.celllayout.testcases.SimpleReorderCase;
+import com.android.launcher3.util.ActivityContextWrapper;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Map;
+
+/**
+ * Measures {@link ReorderAlgorithm#calculateReorder} on the reorder test boards, for the first
+ * call over a board and for the repeated calls made while the drag stays over the same cell.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class ReorderAlgorithmBenchmark {
+
+    private static final String TAG = "ReorderAlgorithmBenchmark";
+    private static final int ITERATIONS = 500;
+    private static final int LAYOUT_SIZE_PX = 1000;
+
+    private final Context mContext = new ActivityContextWrapper(
+            getInstrumentation().getTargetContext());
+
+    @Test
+    public void benchmarkSimpleReorder() {
+        benchmark("simple", SimpleReorderCase.TEST_BY_GRID_SIZE);
+    }
+
+    @Test
+    public void benchmarkPushReorder() {
+        benchmark("push", PushReorderCase.TEST_BY_GRID_SIZE);
+    }
+
+    @Test
+    public void benchmarkFullReorder() {
+        benchmark("full", FullReorderCase.TEST_BY_GRID_SIZE);
+    }
+
+    @Test
+    public void benchmarkMoveOutReorder() {
+        benchmark("moveOut", MoveOutReorderCase.TEST_BY_GRID_SIZE);
+    }
+
+    private void benchmark(String name, Map<Point, ReorderTestCase> cases) {
+        getInstrumentation().runOnMainSync(() -> cases.forEach((size, testCase) -> {
+            CellLayout cellLayout = createCellLayout(size, testCase.mStart);
+            View mainView = findMainView(cellLayout);
+            CellLayoutLayoutParams lp = (CellLayoutLayoutParams) mainView.getLayoutParams();
+            int pixelX = cellLayout.getPaddingLeft() + (int) ((testCase.moveMainTo.x
+                    + lp.cellHSpan / 2f) * cellLayout.getCellWidth());
+            int pixelY = cellLayout.getPaddingTop() + (int) ((testCase.moveMainTo.y
+                    + lp.cellVSpan / 2f) * cellLayout.getCellHeight());
+
+            ReorderAlgorithm algorithm = cellLayout.getReorderAlgorithm();
+            long start = SystemClock.elapsedRealtimeNanos();
+            CellLayout.ItemConfiguration solution = algorithm.calculateReorder(pixelX, pixelY,
+                    lp.cellHSpan, lp.cellVSpan, lp.cellHSpan, lp.cellVSpan, mainView);
+            long firstTime = SystemClock.elapsedRealtimeNanos() - start;
+            assertNotNull(solution);
+
+            start = SystemClock.elapsedRealtimeNanos();
+            for (int i = 0; i < ITERATIONS; i++) {
+                algorithm.calculateReorder(pixelX, pixelY, lp.cellHSpan, lp.cellVSpan,
+                        lp.cellHSpan, lp.cellVSpan, mainView);
+            }
+            long repeatedTime = SystemClock.elapsedRealtimeNanos() - start;
+
+            Log.d(TAG, name + " " + size.x + "x" + size.y + ": first " + firstTime / 1000
+                    + "us, repeated " + repeatedTime / ITERATIONS / 1000 + "us");
+        }));
+    }
+
+    private CellLayout createCellLayout(Point size, CellLayoutBoard board) {
+        CellLayout cellLayout = new CellLayout(mContext);
+        cellLayout.setGridSize(size.x, size.y);
+        for (CellLayoutBoard.WidgetRect widget : board.getWidgets()) {
+            CellLayoutLayoutParams lp = new CellLayoutLayoutParams(widget.getCellX(),
+                    widget.getCellY(), widget.getSpanX(), widget.getSpanY());
+            lp.canReorder = !widget.shouldIgnore();
+            View view = new View(mContext);
+            view.setTag(widget.mType);
+            cellLayout.addViewToCellLayout(view, -1, View.generateViewId(), lp, true);
+        }
+        for (CellLayoutBoard.IconPoint icon : board.getIcons()) {
+            CellLayoutLayoutParams lp = new CellLayoutLayoutParams(icon.getCoord().x,
+                    icon.getCoord().y, 1, 1);
+            cellLayout.addViewToCellLayout(new View(mContext), -1, View.generateViewId(), lp,
+                    true);
+        }
+        int spec = View.MeasureSpec.makeMeasureSpec(LAYOUT_SIZE_PX, View.MeasureSpec.EXACTLY);
+        cellLayout.measure(spec, spec);
+        cellLayout.layout(0, 0, LAYOUT_SIZE_PX, LAYOUT_SIZE_PX);
+        return cellLayout;
+    }
+
+    private static View findMainView(CellLayout cellLayout) {
+        for (int i = 0; i < cellLayout.getShortcutsAndWidgets().getChildCount(); i++) {
+            View child = cellLayout.getShortcutsAndWidgets().getChildAt(i);
+            if (Character.valueOf(CellLayoutBoard.CellType.MAIN_WIDGET).equals(child.getTag())) {
+                return child;
+            }
+        }
+        throw new IllegalStateException("Board has no main widget");
+    }
+}
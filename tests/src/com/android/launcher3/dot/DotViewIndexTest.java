@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.dot;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import android.content.ComponentName;
+import android.content.Intent;
+import android.os.Process;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import com.android.launcher3.BubbleTextView;
+import com.android.launcher3.folder.FolderIcon;
+import com.android.launcher3.model.data.AppInfo;
+import com.android.launcher3.model.data.FolderInfo;
+import com.android.launcher3.model.data.WorkspaceItemInfo;
+import com.android.launcher3.util.PackageUserKey;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Tests for {@link DotViewIndex}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class DotViewIndexTest {
+
+    private final DotViewIndex mIndex = new DotViewIndex();
+
+    @Test
+    public void updateNotificationDots_onlyUpdatesMatchingIcons() {
+        AppInfo first = createApp("com.example.first");
+        AppInfo second = createApp("com.example.second");
+        BubbleTextView firstIcon = createIcon(first);
+        BubbleTextView secondIcon = createIcon(second);
+
+        mIndex.updateNotificationDots(keysOf(first));
+
+        verify(firstIcon).applyDotState(first, true);
+        verify(secondIcon, never()).applyDotState(any(), anyBoolean());
+    }
+
+    @Test
+    public void updateNotificationDots_skipsRemovedIcons() {
+        AppInfo app = createApp("com.example.app");
+        BubbleTextView icon = createIcon(app);
+
+        mIndex.remove(icon);
+        mIndex.updateNotificationDots(keysOf(app));
+
+        verify(icon, never()).applyDotState(any(), anyBoolean());
+    }
+
+    @Test
+    public void updateNotificationDots_updatesFolderOfMatchingContent() {
+        AppInfo inFolder = createApp("com.example.folder");
+        AppInfo other = createApp("com.example.other");
+        FolderInfo folderInfo = new FolderInfo();
+        folderInfo.contents.add(new WorkspaceItemInfo(inFolder));
+        FolderIcon folderIcon = mock(FolderIcon.class);
+        mIndex.add(folderIcon, folderInfo);
+
+        mIndex.updateNotificationDots(keysOf(other));
+        verify(folderIcon, never()).updateIconDots(any(), any());
+
+        mIndex.updateNotificationDots(keysOf(inFolder));
+        verify(folderIcon).updateIconDots(any(), any());
+    }
+
+    private BubbleTextView createIcon(AppInfo app) {
+        BubbleTextView icon = mock(BubbleTextView.class);
+        doReturn(app).when(icon).getTag();
+        mIndex.add(icon, app);
+        return icon;
+    }
+
+    private static AppInfo createApp(String packageName) {
+        ComponentName cn = new ComponentName(packageName, packageName + ".Main");
+        return new AppInfo(cn, packageName, Process.myUserHandle(),
+                new Intent(Intent.ACTION_MAIN).setComponent(cn));
+    }
+
+    private static Set<PackageUserKey> keysOf(AppInfo app) {
+        return Collections.singleton(PackageUserKey.fromItemInfo(app));
+    }
+}
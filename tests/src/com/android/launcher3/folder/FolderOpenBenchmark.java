@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.folder;
+
+import static com.android.launcher3.util.Executors.MAIN_EXECUTOR;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.Choreographer;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import com.android.launcher3.CellLayout;
+import com.android.launcher3.Launcher;
+import com.android.launcher3.LauncherSettings;
+import com.android.launcher3.R;
+import com.android.launcher3.model.data.AppInfo;
+import com.android.launcher3.model.data.FolderInfo;
+import com.android.launcher3.model.data.WorkspaceItemInfo;
+import com.android.launcher3.tapl.TestHelpers;
+import com.android.launcher3.ui.AbstractLauncherUiTest;
+import com.android.launcher3.ui.TaplTestsLauncher3;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time from opening a folder to its first frame, for folders of different sizes.
+ * <p>
+ * Note running these tests will clear the workspace on the device.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class FolderOpenBenchmark extends AbstractLauncherUiTest {
+
+    private static final String TAG = "FolderOpenBenchmark";
+    private static final int ITERATIONS = 10;
+    private static final long FRAME_TIMEOUT_MS = 5000;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        assumeTrue(TestHelpers.isInLauncherProcess());
+        TaplTestsLauncher3.initialize(this);
+    }
+
+    @Test
+    public void benchmarkOpen10Items() throws Exception {
+        benchmark(10);
+    }
+
+    @Test
+    public void benchmarkOpen50Items() throws Exception {
+        benchmark(50);
+    }
+
+    @Test
+    public void benchmarkOpen150Items() throws Exception {
+        benchmark(150);
+    }
+
+    private void benchmark(int itemCount) throws Exception {
+        Folder folder = getFromLauncher(l -> createFolder(l, itemCount));
+        long totalTime = 0;
+        long maxTime = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long time = measureFirstFrame(folder);
+            totalTime += time;
+            maxTime = Math.max(maxTime, time);
+            executeOnLauncher(l -> folder.close(false));
+        }
+        Log.d(TAG, itemCount + " items: first frame " + totalTime / ITERATIONS / 1000
+                + "us, max " + maxTime / 1000 + "us");
+    }
+
+    private long measureFirstFrame(Folder folder) throws InterruptedException {
+        CountDownLatch drawn = new CountDownLatch(1);
+        long[] time = new long[1];
+        MAIN_EXECUTOR.execute(() -> {
+            long start = SystemClock.elapsedRealtimeNanos();
+            folder.animateOpen();
+            // Frame callbacks run before the traversal, the message posted from it runs once
+            // the frame is drawn
+            Choreographer.getInstance().postFrameCallback(frameTimeNanos ->
+                    MAIN_EXECUTOR.getHandler().post(() -> {
+                        time[0] = SystemClock.elapsedRealtimeNanos() - start;
+                        drawn.countDown();
+                    }));
+        });
+        assertTrue("Folder was not drawn", drawn.await(FRAME_TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        return time[0];
+    }
+
+    private static Folder createFolder(Launcher launcher, int itemCount) {
+        AppInfo[] apps = launcher.getAppsView().getAppsStore().getApps();
+        FolderInfo info = new FolderInfo();
+        info.container = LauncherSettings.Favorites.CONTAINER_DESKTOP;
+        FolderGridOrganizer organizer = new FolderGridOrganizer(
+                launcher.getDeviceProfile().inv).setContentSize(itemCount);
+        for (int rank = 0; rank < itemCount; rank++) {
+            WorkspaceItemInfo item = new WorkspaceItemInfo(apps[rank % apps.length]);
+            // Ranked upfront, so that binding the folder does not write to the database
+            organizer.updateRankAndPos(item, rank);
+            info.contents.add(item);
+        }
+        CellLayout page = (CellLayout) launcher.getWorkspace().getPageAt(
+                launcher.getWorkspace().getCurrentPage());
+        return FolderIcon.inflateFolderAndIcon(R.layout.folder_icon, launcher, page, info)
+                .getFolder();
+    }
+}
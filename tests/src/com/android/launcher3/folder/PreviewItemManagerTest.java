@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.folder;
+
+import static android.view.View.MeasureSpec.EXACTLY;
+import static android.view.View.MeasureSpec.makeMeasureSpec;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.junit.Assume.assumeTrue;
+
+import android.graphics.RenderNode;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import com.android.launcher3.CellLayout;
+import com.android.launcher3.DeviceProfile;
+import com.android.launcher3.Launcher;
+import com.android.launcher3.LauncherSettings;
+import com.android.launcher3.R;
+import com.android.launcher3.Utilities;
+import com.android.launcher3.config.FeatureFlags;
+import com.android.launcher3.model.data.AppInfo;
+import com.android.launcher3.model.data.FolderInfo;
+import com.android.launcher3.model.data.WorkspaceItemInfo;
+import com.android.launcher3.tapl.TestHelpers;
+import com.android.launcher3.ui.AbstractLauncherUiTest;
+import com.android.launcher3.ui.TaplTestsLauncher3;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Tests for the recording of the preview items of {@link PreviewItemManager}
+ * <p>
+ * Note running these tests will clear the workspace on the device.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class PreviewItemManagerTest extends AbstractLauncherUiTest {
+
+    private static final int ITEM_COUNT = 4;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        assumeTrue(TestHelpers.isInLauncherProcess());
+        assumeTrue(Utilities.ATLEAST_Q && FeatureFlags.ENABLE_FOLDER_PREVIEW_CACHE.get());
+        TaplTestsLauncher3.initialize(this);
+    }
+
+    @Test
+    public void onFolderClose_invalidatesPreviewCache() {
+        boolean[] valid = getFromLauncher(l -> {
+            FolderIcon icon = createFolderIcon(l);
+            boolean validAfterDraw = draw(icon);
+            icon.onFolderClose(0);
+            return new boolean[]{validAfterDraw, icon.getPreviewItemManager()
+                    .isPreviewCacheValid()};
+        });
+
+        assertThat(valid[0]).isTrue();
+        assertThat(valid[1]).isFalse();
+    }
+
+    @Test
+    public void previewItemsUpdated_invalidatesPreviewCache() {
+        boolean[] valid = getFromLauncher(l -> {
+            FolderIcon icon = createFolderIcon(l);
+            boolean validAfterDraw = draw(icon);
+            icon.updatePreviewItems(item -> true);
+            return new boolean[]{validAfterDraw, icon.getPreviewItemManager()
+                    .isPreviewCacheValid()};
+        });
+
+        assertThat(valid[0]).isTrue();
+        assertThat(valid[1]).isFalse();
+    }
+
+    @Test
+    public void previewDrawn_afterFolderClose_recordsAgain() {
+        Boolean valid = getFromLauncher(l -> {
+            FolderIcon icon = createFolderIcon(l);
+            draw(icon);
+            icon.onFolderClose(0);
+            return draw(icon);
+        });
+
+        assertThat(valid).isTrue();
+    }
+
+    /**
+     * Draws the icon into a hardware accelerated canvas and returns whether the preview items
+     * were recorded
+     */
+    private static boolean draw(FolderIcon icon) {
+        RenderNode node = new RenderNode("PreviewItemManagerTest");
+        node.setPosition(0, 0, icon.getWidth(), icon.getHeight());
+        icon.draw(node.beginRecording());
+        node.endRecording();
+        return icon.getPreviewItemManager().isPreviewCacheValid();
+    }
+
+    private static FolderIcon createFolderIcon(Launcher launcher) {
+        AppInfo[] apps = launcher.getAppsView().getAppsStore().getApps();
+        FolderInfo info = new FolderInfo();
+        info.container = LauncherSettings.Favorites.CONTAINER_DESKTOP;
+        FolderGridOrganizer organizer = new FolderGridOrganizer(
+                launcher.getDeviceProfile().inv).setContentSize(ITEM_COUNT);
+        for (int rank = 0; rank < ITEM_COUNT; rank++) {
+            WorkspaceItemInfo item = new WorkspaceItemInfo(apps[rank % apps.length]);
+            // Ranked upfront, so that binding the folder does not write to the database
+            organizer.updateRankAndPos(item, rank);
+            info.contents.add(item);
+        }
+        CellLayout page = (CellLayout) launcher.getWorkspace().getPageAt(
+                launcher.getWorkspace().getCurrentPage());
+        FolderIcon icon = FolderIcon.inflateFolderAndIcon(R.layout.folder_icon, launcher, page,
+                info);
+        DeviceProfile dp = launcher.getDeviceProfile();
+        icon.measure(makeMeasureSpec(dp.cellWidthPx, EXACTLY),
+                makeMeasureSpec(dp.cellHeightPx, EXACTLY));
+        icon.layout(0, 0, dp.cellWidthPx, dp.cellHeightPx);
+        return icon;
+    }
+}
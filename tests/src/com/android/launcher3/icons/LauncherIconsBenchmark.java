@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.icons;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.content.pm.LauncherActivityInfo;
+import android.content.pm.LauncherApps;
+import android.graphics.drawable.Drawable;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares rendering icons on a single factory with
+ * {@link LauncherIcons#createBadgedIconBitmaps}, which renders on one factory per worker.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class LauncherIconsBenchmark {
+
+    private static final String TAG = "LauncherIconsBenchmark";
+    private static final int ICON_COUNT = 200;
+
+    private final Context mContext =
+            InstrumentationRegistry.getInstrumentation().getTargetContext();
+
+    @Test
+    public void renderIcons_parallelMatchesSerial() {
+        List<Drawable> icons = loadIcons();
+
+        long start = SystemClock.elapsedRealtimeNanos();
+        List<BitmapInfo> serial = new ArrayList<>(icons.size());
+        try (LauncherIcons li = LauncherIcons.obtain(mContext)) {
+            for (Drawable icon : icons) {
+                serial.add(li.createBadgedIconBitmap(icon, null));
+            }
+        }
+        long serialTime = SystemClock.elapsedRealtimeNanos() - start;
+
+        start = SystemClock.elapsedRealtimeNanos();
+        List<BitmapInfo> parallel = LauncherIcons.createBadgedIconBitmaps(mContext, icons, null);
+        long parallelTime = SystemClock.elapsedRealtimeNanos() - start;
+
+        assertThat(parallel).hasSize(serial.size());
+        for (int i = 0; i < serial.size(); i++) {
+            assertThat(parallel.get(i).color).isEqualTo(serial.get(i).color);
+            assertThat(parallel.get(i).icon.sameAs(serial.get(i).icon)).isTrue();
+        }
+        Log.d(TAG, "Rendered " + icons.size() + " icons: serial " + serialTime / 1_000_000
+                + "ms, parallel " + parallelTime / 1_000_000 + "ms on "
+                + Runtime.getRuntime().availableProcessors() + " cores");
+    }
+
+    private List<Drawable> loadIcons() {
+        List<LauncherActivityInfo> activities = mContext.getSystemService(LauncherApps.class)
+                .getActivityList(null, Process.myUserHandle());
+        assertThat(activities).isNotEmpty();
+        int density = mContext.getResources().getDisplayMetrics().densityDpi;
+        List<Drawable> icons = new ArrayList<>(ICON_COUNT);
+        for (int i = 0; i < ICON_COUNT; i++) {
+            icons.add(activities.get(i % activities.size()).getIcon(density));
+        }
+        return icons;
+    }
+}
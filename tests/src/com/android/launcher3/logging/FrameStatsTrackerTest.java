@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.logging;
+
+import static androidx.test.platform.app.InstrumentationRegistry.getInstrumentation;
+
+import static com.android.launcher3.LauncherState.ALL_APPS;
+import static com.android.launcher3.LauncherState.NORMAL;
+import static com.android.launcher3.logging.FrameStatsTracker.ACTION_FOLDER_OPEN;
+import static com.android.launcher3.logging.FrameStatsTracker.ACTION_STATE_TRANSITION;
+import static com.android.launcher3.logging.FrameStatsTracker.ACTION_WORKSPACE_SCROLL;
+import static com.android.launcher3.logging.FrameStatsTracker.KEY_BLOCKING_SPANS;
+import static com.android.launcher3.logging.FrameStatsTracker.KEY_FRAMES;
+import static com.android.launcher3.logging.FrameStatsTracker.KEY_JANKY_FRAMES;
+import static com.android.launcher3.logging.FrameStatsTracker.KEY_MAX_BLOCKING_MS;
+import static com.android.launcher3.logging.FrameStatsTracker.KEY_MAX_FRAME_MS;
+import static com.android.launcher3.logging.FrameStatsTracker.KEY_MISSED_FRAMES;
+import static com.android.launcher3.logging.FrameStatsTracker.KEY_SESSIONS;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.os.Bundle;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link FrameStatsTracker}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class FrameStatsTrackerTest {
+
+    private static final long FRAME_NANOS = TimeUnit.MILLISECONDS.toNanos(16);
+
+    private final FrameStatsTracker mTracker =
+            new FrameStatsTracker(null /* window */, () -> NORMAL, () -> 16);
+
+    @Test
+    public void frames_areAggregatedByActionAndState() {
+        getInstrumentation().runOnMainSync(() -> {
+            for (int i = 0; i < 2; i++) {
+                mTracker.begin(ACTION_FOLDER_OPEN);
+                long start = System.nanoTime();
+                mTracker.onFrame(start + 1, TimeUnit.MILLISECONDS.toNanos(8));
+                mTracker.onFrame(start + 2, TimeUnit.MILLISECONDS.toNanos(30));
+                mTracker.end(ACTION_FOLDER_OPEN);
+            }
+            mTracker.finishSessions();
+        });
+
+        Bundle stats = mTracker.getStats().getBundle(ACTION_FOLDER_OPEN + " in " + NORMAL);
+        assertThat(stats).isNotNull();
+        assertThat(stats.getInt(KEY_SESSIONS)).isEqualTo(2);
+        assertThat(stats.getInt(KEY_FRAMES)).isEqualTo(4);
+        assertThat(stats.getInt(KEY_JANKY_FRAMES)).isEqualTo(2);
+        assertThat(stats.getLong(KEY_MAX_FRAME_MS)).isEqualTo(30);
+    }
+
+    @Test
+    public void frames_outsideOfAction_areIgnored() {
+        getInstrumentation().runOnMainSync(() -> {
+            long beforeStart = System.nanoTime();
+            mTracker.begin(ACTION_FOLDER_OPEN);
+            mTracker.onFrame(beforeStart, FRAME_NANOS);
+            mTracker.end(ACTION_FOLDER_OPEN);
+            mTracker.onFrame(System.nanoTime() + FRAME_NANOS, FRAME_NANOS);
+            mTracker.finishSessions();
+        });
+
+        Bundle stats = mTracker.getStats().getBundle(ACTION_FOLDER_OPEN + " in " + NORMAL);
+        assertThat(stats.getInt(KEY_SESSIONS)).isEqualTo(1);
+        assertThat(stats.getInt(KEY_FRAMES)).isEqualTo(0);
+    }
+
+    @Test
+    public void choreographerGaps_areCountedAsMissedFrames() {
+        getInstrumentation().runOnMainSync(() -> {
+            mTracker.begin(ACTION_WORKSPACE_SCROLL);
+            long frameTime = System.nanoTime();
+            mTracker.onChoreographerFrame(frameTime);
+            mTracker.onChoreographerFrame(frameTime + FRAME_NANOS);
+            mTracker.onChoreographerFrame(frameTime + 5 * FRAME_NANOS);
+            mTracker.end(ACTION_WORKSPACE_SCROLL);
+            mTracker.finishSessions();
+        });
+
+        Bundle stats = mTracker.getStats().getBundle(ACTION_WORKSPACE_SCROLL + " in " + NORMAL);
+        assertThat(stats.getLong(KEY_MISSED_FRAMES)).isEqualTo(3);
+        assertThat(stats.getInt(KEY_BLOCKING_SPANS)).isEqualTo(1);
+        assertThat(stats.getLong(KEY_MAX_BLOCKING_MS)).isEqualTo(48);
+    }
+
+    @Test
+    public void stateTransitions_areTaggedWithBothStates() {
+        getInstrumentation().runOnMainSync(() -> {
+            mTracker.onStateTransitionStart(ALL_APPS);
+            mTracker.onStateTransitionComplete(ALL_APPS);
+            mTracker.onStateTransitionStart(NORMAL);
+            mTracker.onStateTransitionComplete(NORMAL);
+            mTracker.finishSessions();
+        });
+
+        Bundle stats = mTracker.getStats();
+        assertThat(stats.keySet()).containsExactly(
+                ACTION_STATE_TRANSITION + " " + NORMAL + " to " + ALL_APPS,
+                ACTION_STATE_TRANSITION + " " + ALL_APPS + " to " + NORMAL);
+    }
+
+    @Test
+    public void reset_clearsStats() {
+        getInstrumentation().runOnMainSync(() -> {
+            mTracker.begin(ACTION_FOLDER_OPEN);
+            mTracker.end(ACTION_FOLDER_OPEN);
+            mTracker.finishSessions();
+            mTracker.reset();
+        });
+
+        assertThat(mTracker.getStats().isEmpty()).isTrue();
+    }
+}
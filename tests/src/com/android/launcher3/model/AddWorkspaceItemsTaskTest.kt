@@ -53,6 +53,9 @@ class AddWorkspaceItemsTaskTest : AbstractWorkspaceModelTest() {
     @Captor
     private lateinit var mNotAnimatedItemArgumentCaptor: ArgumentCaptor<ArrayList<ItemInfo>>
 
+    @Captor
+    private lateinit var mPlacedItemsArgumentCaptor: ArgumentCaptor<List<ItemInfo>>
+
     @Mock
     private lateinit var mDataModelCallbacks: BgDataModel.Callbacks
 
@@ -84,7 +87,7 @@ class AddWorkspaceItemsTaskTest : AbstractWorkspaceModelTest() {
         assertThat(addedItems.size).isEqualTo(1)
         assertThat(addedItems.first().itemInfo.screenId).isEqualTo(1)
         assertThat(addedItems.first().isAnimated).isTrue()
-        verifyItemSpaceFinderCall(nonEmptyScreenIds, numberOfExpectedCall = 1)
+        verifyItemSpaceFinderCall(nonEmptyScreenIds, numberOfExpectedItems = 1)
     }
 
     @Test
@@ -101,7 +104,7 @@ class AddWorkspaceItemsTaskTest : AbstractWorkspaceModelTest() {
         assertThat(addedItems.size).isEqualTo(1)
         assertThat(addedItems.first().itemInfo.screenId).isEqualTo(1)
         assertThat(addedItems.first().isAnimated).isTrue()
-        verifyItemSpaceFinderCall(nonEmptyScreenIds, numberOfExpectedCall = 1)
+        verifyItemSpaceFinderCall(nonEmptyScreenIds, numberOfExpectedItems = 1)
     }
 
     @Test
@@ -127,7 +130,7 @@ class AddWorkspaceItemsTaskTest : AbstractWorkspaceModelTest() {
         assertThat(addedItems.size).isEqualTo(1)
         assertThat(addedItems.first().itemInfo.screenId).isEqualTo(2)
         assertThat(addedItems.first().isAnimated).isTrue()
-        verifyItemSpaceFinderCall(nonEmptyScreenIds, numberOfExpectedCall = 1)
+        verifyItemSpaceFinderCall(nonEmptyScreenIds, numberOfExpectedItems = 1)
     }
 
     @Test
@@ -162,7 +165,7 @@ class AddWorkspaceItemsTaskTest : AbstractWorkspaceModelTest() {
         itemsAddedToSecondScreen.forEach {
             assertThat(it.isAnimated).isTrue()
         }
-        verifyItemSpaceFinderCall(nonEmptyScreenIds, numberOfExpectedCall = 3)
+        verifyItemSpaceFinderCall(nonEmptyScreenIds, numberOfExpectedItems = 3)
     }
 
     /**
@@ -171,8 +174,7 @@ class AddWorkspaceItemsTaskTest : AbstractWorkspaceModelTest() {
     private fun givenNewItemSpaces(vararg newItemSpaces: NewItemSpace) {
         val spaceStack = newItemSpaces.toMutableList()
         whenever(
-            mWorkspaceItemSpaceFinder.findSpaceForItem(
-                any(),
+            mWorkspaceItemSpaceFinder.findSpaceForItems(
                 any(),
                 any(),
                 any(),
@@ -180,22 +182,31 @@ class AddWorkspaceItemsTaskTest : AbstractWorkspaceModelTest() {
                 any()
             )
         )
-            .then { spaceStack.removeFirst().toIntArray() }
+            .then { invocation ->
+                invocation.getArgument<List<ItemInfo>>(4)
+                    .map { spaceStack.removeFirst().toIntArray() }
+            }
     }
 
     /**
-     * Verifies if WorkspaceItemSpaceFinder was called with proper arguments and how many times was
-     * it called.
+     * Verifies if WorkspaceItemSpaceFinder was called once with proper arguments and how many
+     * items it was asked to place.
      */
     private fun verifyItemSpaceFinderCall(
         nonEmptyScreenIds: List<Int>,
-        numberOfExpectedCall: Int
+        numberOfExpectedItems: Int
     ) {
-        verify(mWorkspaceItemSpaceFinder, times(numberOfExpectedCall))
-            .findSpaceForItem(
+        verify(mWorkspaceItemSpaceFinder, times(1))
+            .findSpaceForItems(
                 same(mAppState), same(mModelHelper.bgDataModel),
-                eq(IntArray.wrap(*nonEmptyScreenIds.toIntArray())), eq(IntArray()), eq(1), eq(1)
+                eq(IntArray.wrap(*nonEmptyScreenIds.toIntArray())), eq(IntArray()),
+                mPlacedItemsArgumentCaptor.capture()
             )
+        assertThat(mPlacedItemsArgumentCaptor.value.size).isEqualTo(numberOfExpectedItems)
+        mPlacedItemsArgumentCaptor.value.forEach {
+            assertThat(it.spanX).isEqualTo(1)
+            assertThat(it.spanY).isEqualTo(1)
+        }
     }
 
     /**
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model;
+
+import static androidx.test.core.app.ApplicationProvider.getApplicationContext;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+
+import android.content.ComponentName;
+import android.content.Intent;
+import android.content.pm.ShortcutInfo;
+import android.os.Process;
+import android.os.UserHandle;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import com.android.launcher3.LauncherSettings.Favorites;
+import com.android.launcher3.model.data.WorkspaceItemInfo;
+import com.android.launcher3.search.StringMatcherUtility.StringMatcher;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for {@link DeepShortcutSearchIndex}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class DeepShortcutSearchIndexTest {
+
+    private static final String PACKAGE_1 = "com.example.one";
+    private static final String PACKAGE_2 = "com.example.two";
+
+    private final UserHandle mUser = Process.myUserHandle();
+    private final StringMatcher mMatcher = StringMatcher.getInstance();
+    private final DeepShortcutSearchIndex mIndex = new DeepShortcutSearchIndex();
+
+    @Test
+    public void search_matchesWordPrefixesOfLabels() {
+        mIndex.update(null, mUser, Arrays.asList(
+                createShortcut(PACKAGE_1, "compose", "New message", "Compose a new message"),
+                createShortcut(PACKAGE_2, "scan", "Scan", "Scan a QR code")));
+
+        assertThat(ids(mIndex.search("mes", mMatcher, 10))).containsExactly("compose");
+        assertThat(ids(mIndex.search("new m", mMatcher, 10))).containsExactly("compose");
+        assertThat(ids(mIndex.search("qr", mMatcher, 10))).containsExactly("scan");
+        assertThat(mIndex.search("essage", mMatcher, 10)).isEmpty();
+    }
+
+    @Test
+    public void search_returnsLaunchableDeepShortcuts() {
+        mIndex.update(null, mUser, Collections.singletonList(
+                createShortcut(PACKAGE_1, "compose", "New message", null)));
+
+        WorkspaceItemInfo info = mIndex.search("new", mMatcher, 10).get(0);
+
+        assertThat(info.itemType).isEqualTo(Favorites.ITEM_TYPE_DEEP_SHORTCUT);
+        assertThat(info.getDeepShortcutId()).isEqualTo("compose");
+        assertThat(info.getIntent().getPackage()).isEqualTo(PACKAGE_1);
+        assertThat(info.user).isEqualTo(mUser);
+        assertThat(info.title.toString()).isEqualTo("New message");
+    }
+
+    @Test
+    public void update_replacesShortcutsOfPackage() {
+        mIndex.update(null, mUser, Arrays.asList(
+                createShortcut(PACKAGE_1, "old", "Shortcut old", null),
+                createShortcut(PACKAGE_2, "other", "Shortcut other", null)));
+
+        mIndex.update(PACKAGE_1, mUser, Collections.singletonList(
+                createShortcut(PACKAGE_1, "new", "Shortcut new", null)));
+
+        assertThat(ids(mIndex.search("shortcut", mMatcher, 10)))
+                .containsExactly("new", "other");
+    }
+
+    @Test
+    public void update_skipsDisabledShortcuts() {
+        ShortcutInfo disabled = createShortcut(PACKAGE_1, "disabled", "Disabled", null);
+        doReturn(false).when(disabled).isEnabled();
+
+        mIndex.update(null, mUser, Collections.singletonList(disabled));
+
+        assertThat(mIndex.search("disabled", mMatcher, 10)).isEmpty();
+    }
+
+    @Test
+    public void search_stopsAtMaxResults() {
+        List<ShortcutInfo> shortcuts = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            shortcuts.add(createShortcut(PACKAGE_1, "id" + i, "Shortcut " + i, null));
+        }
+        mIndex.update(null, mUser, shortcuts);
+
+        assertThat(mIndex.search("shortcut", mMatcher, 5)).hasSize(5);
+    }
+
+    private ShortcutInfo createShortcut(String packageName, String id, String shortLabel,
+            String longLabel) {
+        ShortcutInfo.Builder builder = new ShortcutInfo.Builder(getApplicationContext(), id)
+                .setShortLabel(shortLabel)
+                .setActivity(new ComponentName(packageName, packageName + ".Main"))
+                .setIntent(new Intent(Intent.ACTION_VIEW));
+        if (longLabel != null) {
+            builder.setLongLabel(longLabel);
+        }
+        ShortcutInfo info = spy(builder.build());
+        doReturn(packageName).when(info).getPackage();
+        doReturn(true).when(info).isDynamic();
+        return info;
+    }
+
+    private static List<String> ids(List<WorkspaceItemInfo> infos) {
+        List<String> ids = new ArrayList<>();
+        for (WorkspaceItemInfo info : infos) {
+            ids.add(info.getDeepShortcutId());
+        }
+        return ids;
+    }
+}
@@ -19,6 +19,7 @@ import android.content.Context
 import android.database.sqlite.SQLiteDatabase
 import android.graphics.Point
 import android.os.Process
+import android.os.SystemClock
 import androidx.test.ext.junit.runners.AndroidJUnit4
 import androidx.test.filters.SmallTest
 import com.android.launcher3.InvariantDeviceProfile
@@ -494,6 +495,77 @@ class GridSizeMigrationTaskV2Test {
         disableNewMigrationLogic()
     }
 
+    /**
+     * Migrating a large layout should stay fast, and migrating the same layout again should
+     * reuse the placements and give the same result
+     */
+    @Test
+    @Throws(Exception::class)
+    fun migrateLargeLayout_isFastAndRepeatable() {
+        val packages = (0 until LARGE_LAYOUT_SIZE).map { "$testPackage1.large$it" }
+        validPackages = validPackages + packages
+
+        // Setup src grid, 25 icons per screen
+        packages.forEachIndexed { i, packageName ->
+            modelHelper.addItem(
+                APP_ICON, i / 25, DESKTOP, i % 5, (i / 5) % 5, packageName, 1000 + i,
+                TMP_CONTENT_URI
+            )
+        }
+
+        idp.numDatabaseHotseatIcons = 4
+        idp.numColumns = 4
+        idp.numRows = 4
+
+        val firstMigrationTime = measureMigration()
+        val firstLocations = readWorkspaceLocations()
+
+        db.delete(TABLE_NAME, null, null)
+        val secondMigrationTime = measureMigration()
+        val secondLocations = readWorkspaceLocations()
+
+        assertThat(firstLocations).hasSize(LARGE_LAYOUT_SIZE)
+        assertThat(secondLocations).isEqualTo(firstLocations)
+        assertThat(firstMigrationTime).isLessThan(MAX_LARGE_MIGRATION_TIME_MS)
+        assertThat(secondMigrationTime).isLessThan(MAX_LARGE_MIGRATION_TIME_MS)
+    }
+
+    /** Migrates from the tmp table into the default one, returns the time taken in ms */
+    private fun measureMigration(): Long {
+        val start = SystemClock.elapsedRealtime()
+        val srcReader = DbReader(db, TMP_TABLE, context, validPackages)
+        val destReader = DbReader(db, TABLE_NAME, context, validPackages)
+        val task = GridSizeMigrationTaskV2(
+            context,
+            db,
+            srcReader,
+            destReader,
+            idp.numDatabaseHotseatIcons,
+            Point(idp.numColumns, idp.numRows)
+        )
+        task.migrate(DeviceGridState(context), DeviceGridState(idp))
+        return SystemClock.elapsedRealtime() - start
+    }
+
+    /** Returns the screen and cell of every workspace item by intent */
+    private fun readWorkspaceLocations(): Map<String, List<Int>> {
+        val c = context.contentResolver.query(
+            CONTENT_URI,
+            arrayOf(INTENT, SCREEN, CELLX, CELLY),
+            "container=$CONTAINER_DESKTOP",
+            null,
+            null,
+            null
+        ) ?: throw IllegalStateException()
+        val locMap = HashMap<String, List<Int>>()
+        c.use {
+            while (c.moveToNext()) {
+                locMap[c.getString(0)] = listOf(c.getInt(1), c.getInt(2), c.getInt(3))
+            }
+        }
+        return locMap
+    }
+
     private fun enableNewMigrationLogic(srcGridSize: String) {
         context.getSharedPreferences(FeatureFlags.FLAGS_PREF_NAME, Context.MODE_PRIVATE)
             .edit()
@@ -512,4 +584,9 @@ class GridSizeMigrationTaskV2Test {
             .putBoolean(FeatureFlags.ENABLE_NEW_MIGRATION_LOGIC.key, false)
             .commit()
     }
-}
\ No newline at end of file
+
+    companion object {
+        private const val LARGE_LAYOUT_SIZE = 500
+        private const val MAX_LARGE_MIGRATION_TIME_MS = 2000L
+    }
+}
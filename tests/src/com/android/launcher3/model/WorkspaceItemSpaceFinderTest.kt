@@ -18,6 +18,8 @@ package com.android.launcher3.model
 import android.graphics.Rect
 import androidx.test.ext.junit.runners.AndroidJUnit4
 import androidx.test.filters.SmallTest
+import com.android.launcher3.LauncherSettings
+import com.android.launcher3.util.GridOccupancy
 import com.google.common.truth.Truth.assertThat
 import org.junit.After
 import org.junit.Before
@@ -168,4 +170,96 @@ class WorkspaceItemSpaceFinderTest : AbstractWorkspaceModelTest() {
         assertThat(spaceFound.screenId).isEqualTo(3)
         assertRegionVacant(spaceFound, 3, 1)
     }
+
+    @Test
+    fun twoHundredItems_whenFindSpaceForItems_thenPlaceAllWithoutOverlap() {
+        setupWorkspacesWithSpaces(
+            // 3x2 space on screen 0, but it should be skipped
+            screen0 = listOf(Rect(2, 0, 5, 2)),
+            screen1 = listOf(Rect(2, 2, 3, 3)), // 1x1 space
+            screen2 = emptyScreenSpaces
+        )
+        val items = List(200) { getNewItem() }
+
+        val spacesFound = mItemSpaceFinder.findSpaceForItems(
+            mAppState, mModelHelper.bgDataModel,
+            mExistingScreens, mNewScreens, items
+        ).map { NewItemSpace.fromIntArray(it) }
+
+        assertThat(spacesFound).hasSize(items.size)
+        // The only space of the first screen which is not skipped is used first
+        assertThat(spacesFound.first()).isEqualTo(NewItemSpace(1, 2, 2))
+        spacesFound.forEach {
+            assertThat(it.screenId).isNotEqualTo(0)
+            if (!mScreenOccupancy.containsKey(it.screenId)) {
+                assertThat(mNewScreens.contains(it.screenId)).isTrue()
+                mScreenOccupancy.put(it.screenId, GridOccupancy(mIdp.numColumns, mIdp.numRows))
+            }
+            assertRegionVacant(it, 1, 1)
+            mScreenOccupancy[it.screenId].markCells(it.cellX, it.cellY, 1, 1, true)
+        }
+        // 1 + 25 items fit on the existing screens, the rest fills new screens of 25 cells
+        assertThat(mNewScreens.size()).isEqualTo(7)
+    }
+
+    @Test
+    fun itemsAddedToModel_whenFindSpaceForItem_thenDoNotReuseTheirSpace() {
+        setupWorkspacesWithSpaces(
+            // 3x2 space on screen 0, but it should be skipped
+            screen0 = listOf(Rect(2, 0, 5, 2)),
+            screen1 = listOf(Rect(0, 0, 2, 1)), // 2x1 space
+        )
+
+        val first = findSpace(1, 1)
+        mModelHelper.executeSimpleTask { dataModel ->
+            val info = getNewItem()
+            info.id = 1000
+            info.container = LauncherSettings.Favorites.CONTAINER_DESKTOP
+            info.screenId = first.screenId
+            info.cellX = first.cellX
+            info.cellY = first.cellY
+            dataModel.addItem(mTargetContext, info, false)
+        }
+        val second = findSpace(1, 1)
+
+        assertThat(first).isEqualTo(NewItemSpace(1, 0, 0))
+        assertThat(second).isEqualTo(NewItemSpace(1, 1, 0))
+    }
+
+    @Test
+    fun reservedSpaceReleased_whenFindSpaceForItem_thenReuseItsSpace() {
+        setupWorkspacesWithSpaces(
+            // 3x2 space on screen 0, but it should be skipped
+            screen0 = listOf(Rect(2, 0, 5, 2)),
+            screen1 = listOf(Rect(0, 0, 2, 1)), // 2x1 space
+        )
+
+        val first = findSpace(1, 1)
+        mModelHelper.executeSimpleTask { dataModel ->
+            dataModel.workspaceOccupancy.release(first.screenId, first.cellX, first.cellY, 1, 1)
+        }
+        val second = findSpace(1, 1)
+
+        assertThat(second).isEqualTo(first)
+    }
+
+    @Test
+    fun itemDoesNotFit_whenFindSpaceForItems_thenReleaseSpaceOfPreviousItems() {
+        setupWorkspacesWithSpaces(
+            // 3x2 space on screen 0, but it should be skipped
+            screen0 = listOf(Rect(2, 0, 5, 2)),
+            screen1 = listOf(Rect(0, 0, 2, 1)), // 2x1 space
+        )
+        val tooLarge = getNewItem().apply { spanX = mIdp.numColumns + 1 }
+
+        val result = runCatching {
+            mItemSpaceFinder.findSpaceForItems(
+                mAppState, mModelHelper.bgDataModel,
+                mExistingScreens, mNewScreens, listOf(getNewItem(), tooLarge)
+            )
+        }
+
+        assertThat(result.isFailure).isTrue()
+        assertThat(findSpace(1, 1)).isEqualTo(NewItemSpace(1, 0, 0))
+    }
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import static org.junit.Assert.assertTrue;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Random;
+
+/**
+ * Microbenchmark for the operations of {@link GridOccupancy} used during drag and drop and
+ * item placement, over common grid sizes and spans.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class GridOccupancyBenchmark {
+
+    private static final String TAG = "GridOccupancyBenchmark";
+
+    private static final int[][] GRID_SIZES = {{4, 5}, {5, 5}, {5, 6}, {6, 7}, {8, 10}};
+    private static final int[][] SPANS = {{1, 1}, {2, 2}, {4, 2}, {4, 4}};
+    private static final int ITERATIONS = 20_000;
+
+    @Test
+    public void benchmarkGridOperations() {
+        Random random = new Random(42);
+        int[] vacant = new int[2];
+        for (int[] size : GRID_SIZES) {
+            int countX = size[0];
+            int countY = size[1];
+            GridOccupancy grid = new GridOccupancy(countX, countY);
+            GridOccupancy copy = new GridOccupancy(countX, countY);
+            // Fill about half of the grid, leaving the last row free so every span fits
+            for (int y = 0; y < countY - 1; y++) {
+                for (int x = 0; x < countX; x++) {
+                    grid.markCells(x, y, 1, 1, random.nextBoolean());
+                }
+            }
+
+            for (int[] span : SPANS) {
+                // Single row spans always fit in the free last row
+                int spanX = Math.min(span[0], countX);
+
+                long start = SystemClock.elapsedRealtimeNanos();
+                for (int i = 0; i < ITERATIONS; i++) {
+                    assertTrue(grid.findVacantCell(vacant, spanX, 1));
+                }
+                long findTime = SystemClock.elapsedRealtimeNanos() - start;
+
+                start = SystemClock.elapsedRealtimeNanos();
+                for (int i = 0; i < ITERATIONS; i++) {
+                    grid.isRegionVacant(i % countX, i % countY, span[0], span[1]);
+                }
+                long vacantTime = SystemClock.elapsedRealtimeNanos() - start;
+
+                start = SystemClock.elapsedRealtimeNanos();
+                for (int i = 0; i < ITERATIONS; i++) {
+                    grid.copyTo(copy);
+                    copy.markCells(i % countX, i % countY, span[0], span[1], true);
+                }
+                long copyMarkTime = SystemClock.elapsedRealtimeNanos() - start;
+
+                Log.d(TAG, countX + "x" + countY + " span " + span[0] + "x" + span[1]
+                        + ": findVacantCell " + findTime / ITERATIONS + "ns"
+                        + ", isRegionVacant " + vacantTime / ITERATIONS + "ns"
+                        + ", copyTo+markCells " + copyMarkTime / ITERATIONS + "ns");
+            }
+        }
+    }
+}
@@ -61,7 +61,7 @@ public class GridOccupancyTest {
         GridOccupancy grid = new GridOccupancy(cols, rows);
         for (int y = 0; y < rows; y++) {
             for (int x = 0; x < cols; x++) {
-                grid.cells[x][y] = cells[i] != 0;
+                grid.markCells(x, y, 1, 1, cells[i] != 0);
                 i++;
             }
         }
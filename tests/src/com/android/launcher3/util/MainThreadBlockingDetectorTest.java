@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import static androidx.test.platform.app.InstrumentationRegistry.getInstrumentation;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assume.assumeTrue;
+
+import android.os.SystemClock;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+/**
+ * Tests for {@link MainThreadBlockingDetector}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class MainThreadBlockingDetectorTest {
+
+    @Before
+    public void setUp() {
+        assumeTrue(MainThreadBlockingDetector.ENABLED);
+        MainThreadBlockingDetector.reset();
+    }
+
+    @After
+    public void tearDown() {
+        MainThreadBlockingDetector.reset();
+    }
+
+    @Test
+    public void blockingCall_onMainThread_reportedOverBudgetWithCaller() {
+        getInstrumentation().runOnMainSync(() -> MainThreadBlockingDetector.track("entry",
+                () -> {
+                    SystemClock.sleep(20);
+                    return null;
+                }));
+
+        List<String> overBudget = MainThreadBlockingDetector.getCallSitesOverBudget(10);
+        assertThat(overBudget).hasSize(1);
+        assertThat(overBudget.get(0)).startsWith("entry: 1 calls");
+        assertThat(overBudget.get(0)).contains("<- ");
+        assertThat(MainThreadBlockingDetector.getCallSitesOverBudget(1000)).isEmpty();
+    }
+
+    @Test
+    public void blockingCall_offMainThread_ignored() {
+        assertNull(MainThreadBlockingDetector.begin("entry"));
+
+        MainThreadBlockingDetector.track("entry", () -> {
+            SystemClock.sleep(20);
+            return null;
+        });
+
+        assertThat(MainThreadBlockingDetector.getCallSitesOverBudget(10)).isEmpty();
+    }
+}
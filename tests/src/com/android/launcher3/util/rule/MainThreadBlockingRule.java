@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util.rule;
+
+import static org.junit.Assert.fail;
+
+import androidx.test.InstrumentationRegistry;
+
+import com.android.launcher3.tapl.TestHelpers;
+import com.android.launcher3.util.MainThreadBlockingDetector;
+
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+import java.util.List;
+
+/**
+ * A rule failing the test when an entry point tracked by {@link MainThreadBlockingDetector}
+ * blocked the main thread for longer than a budget while the test ran. The budget is passed in
+ * milliseconds with the {@link #BUDGET_ARG} instrumentation argument, the rule does nothing
+ * without it or when the launcher runs in another process.
+ */
+public class MainThreadBlockingRule implements TestRule {
+
+    public static final String BUDGET_ARG = "main_thread_blocking_budget_ms";
+
+    private final long mBudgetMs;
+
+    public MainThreadBlockingRule() {
+        this(Long.parseLong(InstrumentationRegistry.getArguments().getString(BUDGET_ARG, "0")));
+    }
+
+    public MainThreadBlockingRule(long budgetMs) {
+        mBudgetMs = budgetMs;
+    }
+
+    @Override
+    public Statement apply(Statement base, Description description) {
+        if (mBudgetMs <= 0 || !MainThreadBlockingDetector.ENABLED
+                || !TestHelpers.isInLauncherProcess()) {
+            return base;
+        }
+        return new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                MainThreadBlockingDetector.reset();
+                base.evaluate();
+                List<String> overBudget =
+                        MainThreadBlockingDetector.getCallSitesOverBudget(mBudgetMs);
+                if (!overBudget.isEmpty()) {
+                    fail("Main thread blocked for longer than " + mBudgetMs + "ms by:\n"
+                            + String.join("\n", overBudget));
+                }
+            }
+        };
+    }
+}
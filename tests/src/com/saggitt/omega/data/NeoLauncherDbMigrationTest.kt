@@ -0,0 +1,75 @@
+/*
+ * This file is part of Neo Launcher
+ * Copyright (c) 2023   Neo Launcher Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.saggitt.omega.data
+
+import androidx.room.testing.MigrationTestHelper
+import androidx.sqlite.db.SupportSQLiteDatabase
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SmallTest
+import androidx.test.platform.app.InstrumentationRegistry
+import com.google.common.truth.Truth.assertThat
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Tests the migrations of [NeoLauncherDb] against the exported schemas
+ */
+@SmallTest
+@RunWith(AndroidJUnit4::class)
+class NeoLauncherDbMigrationTest {
+
+    @get:Rule
+    val helper = MigrationTestHelper(
+        InstrumentationRegistry.getInstrumentation(),
+        NeoLauncherDb::class.java,
+    )
+
+    @Test
+    fun migrate6To7_indexesExistingAndNewPeople() {
+        helper.createDatabase(TEST_DB, 6).apply {
+            execSQL(
+                "INSERT INTO PeopleInfo (contactId, contactName, contactPhone) "
+                        + "VALUES ('1', 'Ada Lovelace', '555-1')"
+            )
+            close()
+        }
+
+        val db = helper.runMigrationsAndValidate(TEST_DB, 7, true, NeoLauncherDb.MIGRATION_6_7)
+
+        assertThat(countMatches(db, "ada*")).isEqualTo(1)
+        db.execSQL(
+            "INSERT INTO PeopleInfo (contactId, contactName, contactPhone) "
+                    + "VALUES ('2', 'Grace Hopper', '555-2')"
+        )
+        assertThat(countMatches(db, "hop*")).isEqualTo(1)
+        db.execSQL("DELETE FROM PeopleInfo WHERE contactId = '1'")
+        assertThat(countMatches(db, "ada*")).isEqualTo(0)
+        db.close()
+    }
+
+    private fun countMatches(db: SupportSQLiteDatabase, query: String): Int = db.query(
+        "SELECT contactName FROM PeopleInfoFts WHERE PeopleInfoFts MATCH ?",
+        arrayOf(query)
+    ).use { it.count }
+
+    companion object {
+        private const val TEST_DB = "migration-test.db"
+    }
+}
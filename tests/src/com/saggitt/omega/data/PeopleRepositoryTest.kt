@@ -0,0 +1,196 @@
+/*
+ * This file is part of Neo Launcher
+ * Copyright (c) 2023   Neo Launcher Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.saggitt.omega.data
+
+import android.database.Cursor
+import android.database.MatrixCursor
+import android.net.Uri
+import android.os.SystemClock
+import android.provider.ContactsContract
+import android.provider.ContactsContract.CommonDataKinds.Phone
+import android.provider.ContactsContract.Contacts
+import android.provider.ContactsContract.DeletedContacts
+import android.test.mock.MockContentProvider
+import android.test.mock.MockContentResolver
+import android.util.Log
+import androidx.room.Room
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import androidx.test.platform.app.InstrumentationRegistry
+import com.google.common.truth.Truth.assertThat
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Tests the contacts import and the people search of [PeopleRepository], against a fake
+ * contacts provider
+ */
+@LargeTest
+@RunWith(AndroidJUnit4::class)
+class PeopleRepositoryTest {
+
+    private val context = InstrumentationRegistry.getInstrumentation().targetContext
+    private val provider = FakeContactsProvider()
+    private val resolver = MockContentResolver(context).apply {
+        addProvider(ContactsContract.AUTHORITY, provider)
+    }
+    private val db = Room.inMemoryDatabaseBuilder(context, NeoLauncherDb::class.java).build()
+    private val repository = PeopleRepository(db, resolver)
+
+    @After
+    fun tearDown() {
+        db.close()
+    }
+
+    @Test
+    fun sync_importsAllContactsWithASingleQuery() = runBlocking {
+        for (i in 0 until CONTACT_COUNT) {
+            provider.addContact(i, "Contact $i", "555-$i")
+        }
+
+        val start = SystemClock.elapsedRealtime()
+        repository.sync()
+        Log.d(TAG, "Imported $CONTACT_COUNT contacts in ${SystemClock.elapsedRealtime() - start}ms")
+
+        assertThat(db.peopleDao().count()).isEqualTo(CONTACT_COUNT)
+        assertThat(provider.queries).containsExactly(Phone.CONTENT_URI)
+    }
+
+    @Test
+    fun sync_keepsOneNumberPerContact() = runBlocking {
+        provider.addContact(1, "Jane Doe", "555-1")
+        provider.addContact(1, "Jane Doe", "555-2")
+        repository.sync()
+
+        assertThat(db.peopleDao().count()).isEqualTo(1)
+    }
+
+    @Test
+    fun sync_afterImport_appliesOnlyChanges() = runBlocking {
+        provider.addContact(1, "Jane Doe", "555-1")
+        provider.addContact(2, "John Roe", "555-2")
+        provider.addContact(3, "Mary Major", "555-3")
+        repository.sync()
+        provider.queries.clear()
+
+        val later = System.currentTimeMillis() + 1000
+        provider.removeContact(2, later)
+        provider.removeContact(3, later)
+        provider.addContact(3, "Mary Minor", "555-3", later)
+        repository.sync()
+
+        assertThat(repository.findPeople("m").map { it?.contactName })
+            .containsExactly("Mary Minor")
+        assertThat(repository.findPeople("john")).isEmpty()
+        assertThat(repository.findPeople("jane")).hasSize(1)
+        assertThat(provider.queries)
+            .containsExactly(Phone.CONTENT_URI, Contacts.CONTENT_URI, DeletedContacts.CONTENT_URI)
+    }
+
+    @Test
+    fun findPeople_matchesWordPrefixes() = runBlocking {
+        provider.addContact(1, "Jonathan Smith", "555-1")
+        provider.addContact(2, "John Appleseed", "555-2")
+        provider.addContact(3, "Mary Jones", "555-3")
+        provider.addContact(4, "Bob Johansson", "555-4")
+        repository.sync()
+
+        assertThat(repository.findPeople("Jo").map { it?.contactName }).containsExactly(
+            "Jonathan Smith", "John Appleseed", "Mary Jones", "Bob Johansson"
+        )
+        assertThat(repository.findPeople("jo sm").map { it?.contactName })
+            .containsExactly("Jonathan Smith")
+        assertThat(repository.findPeople("ohn")).isEmpty()
+        assertThat(repository.findPeople("\"jo OR")).isEmpty()
+        assertThat(repository.findPeople("  ")).isEmpty()
+    }
+
+    @Test
+    fun toFtsQuery_quotesEveryWordAsAPrefix() {
+        assertThat(PeopleRepository.toFtsQuery("jo OR sm*")).isEqualTo("\"jo*\" \"OR*\" \"sm*\"")
+        assertThat(PeopleRepository.toFtsQuery(" -\"() ")).isNull()
+    }
+
+    /**
+     * Serves phone numbers, contacts and deleted contacts, filtered by the timestamp selection
+     * used for incremental syncs
+     */
+    private class FakeContactsProvider : MockContentProvider() {
+
+        private val phones = ArrayList<FakePhone>()
+        private val deleted = HashMap<Int, Long>()
+        val queries = ArrayList<Uri>()
+
+        fun addContact(
+            id: Int, name: String, number: String, timestamp: Long = System.currentTimeMillis()
+        ) {
+            phones.add(FakePhone(id, name, number, timestamp))
+            deleted.remove(id)
+        }
+
+        fun removeContact(id: Int, timestamp: Long) {
+            phones.removeAll { it.contactId == id }
+            deleted[id] = timestamp
+        }
+
+        override fun query(
+            uri: Uri, projection: Array<String>?, selection: String?,
+            selectionArgs: Array<String>?, sortOrder: String?
+        ): Cursor {
+            queries.add(uri)
+            val since = selectionArgs?.firstOrNull()?.toLong() ?: Long.MIN_VALUE
+            val cursor = MatrixCursor(projection)
+            when (uri) {
+                Phone.CONTENT_URI -> phones
+                    .filter { it.timestamp > since }
+                    .sortedBy { it.contactId }
+                    .forEach { phone ->
+                        cursor.addRow(projection!!.map { column ->
+                            when (column) {
+                                Phone.CONTACT_ID -> phone.contactId
+                                Phone.DISPLAY_NAME_PRIMARY -> phone.name
+                                Phone.NUMBER -> phone.number
+                                else -> null
+                            }
+                        })
+                    }
+                Contacts.CONTENT_URI -> phones
+                    .filter { it.timestamp > since }
+                    .map { it.contactId }
+                    .distinct()
+                    .forEach { cursor.addRow(arrayOf(it)) }
+                DeletedContacts.CONTENT_URI -> deleted
+                    .filter { it.value > since }
+                    .forEach { cursor.addRow(arrayOf(it.key)) }
+            }
+            return cursor
+        }
+    }
+
+    private data class FakePhone(
+        val contactId: Int, val name: String, val number: String, val timestamp: Long
+    )
+
+    companion object {
+        private const val TAG = "PeopleRepositoryTest"
+        private const val CONTACT_COUNT = 5000
+    }
+}
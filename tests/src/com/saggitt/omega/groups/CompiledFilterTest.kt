@@ -0,0 +1,77 @@
+/*
+ * This file is part of Neo Launcher
+ * Copyright (c) 2023   Neo Launcher Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.saggitt.omega.groups
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SmallTest
+import com.android.launcher3.model.data.AppInfo
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.function.Predicate
+
+/**
+ * Tests for [CompiledFilter]
+ */
+@SmallTest
+@RunWith(AndroidJUnit4::class)
+class CompiledFilterTest {
+
+    private val apps = Array(4) { AppInfo() }
+    private val matching = mutableSetOf(apps[1])
+    private var evaluations = 0
+    private val filter = CompiledFilter(Predicate {
+        evaluations++
+        it in matching
+    })
+
+    @Test
+    fun filter_sameApps_evaluatesOnce() {
+        assertThat(filter.filter(apps)).containsExactly(apps[1])
+        assertThat(filter.filter(apps)).containsExactly(apps[1])
+
+        assertThat(evaluations).isEqualTo(apps.size)
+    }
+
+    @Test
+    fun filter_afterInvalidateAll_matchesChangedGroups() {
+        assertThat(filter.filter(apps)).containsExactly(apps[1])
+
+        matching.add(apps[3])
+        CompiledFilter.invalidateAll()
+
+        assertThat(filter.filter(apps)).containsExactly(apps[1], apps[3]).inOrder()
+    }
+
+    @Test
+    fun filter_withOther_returnsAppsMatchingBoth() {
+        val other = CompiledFilter(Predicate { it !== apps[1] })
+        matching.add(apps[2])
+
+        assertThat(filter.filter(apps, other)).containsExactly(apps[2])
+        assertThat(filter.filter(apps)).containsExactly(apps[1], apps[2]).inOrder()
+    }
+
+    @Test
+    fun filter_returnsNewList() {
+        filter.filter(apps).clear()
+
+        assertThat(filter.filter(apps)).containsExactly(apps[1])
+    }
+}
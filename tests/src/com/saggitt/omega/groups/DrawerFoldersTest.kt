@@ -0,0 +1,84 @@
+/*
+ * This file is part of Neo Launcher
+ * Copyright (c) 2023   Neo Launcher Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.saggitt.omega.groups
+
+import android.content.ComponentName
+import android.content.Intent
+import android.os.Process
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SmallTest
+import androidx.test.platform.app.InstrumentationRegistry
+import com.android.launcher3.model.ModelWriter
+import com.android.launcher3.model.data.AppInfo
+import com.google.common.truth.Truth.assertThat
+import com.saggitt.omega.groups.category.DrawerFolders
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.Mockito.mock
+import java.util.function.Predicate
+
+/**
+ * Tests for the contents of [DrawerFolders.CustomFolder]
+ */
+@SmallTest
+@RunWith(AndroidJUnit4::class)
+class DrawerFoldersTest {
+
+    private val context = InstrumentationRegistry.getInstrumentation().targetContext
+    private val modelWriter = mock(ModelWriter::class.java)
+    private val apps = arrayOf(
+        app("alpha", "Alpha"), app("bravo", "Bravo"), app("charlie", "Charlie")
+    )
+    private val folder = DrawerFolders.CustomFolder(context).apply {
+        contents.value = mutableSetOf(apps[2].toComponentKey(), apps[0].toComponentKey())
+    }
+
+    @Test
+    fun toFolderInfo_containsFolderApps_sortedByTitle() {
+        assertThat(contentTitles(null)).containsExactly("Alpha", "Charlie").inOrder()
+    }
+
+    @Test
+    fun toFolderInfo_withAppFilter_onlyContainsMatchingApps() {
+        val appFilter = CompiledFilter(Predicate { it !== apps[0] })
+
+        assertThat(contentTitles(appFilter)).containsExactly("Charlie")
+    }
+
+    @Test
+    fun toFolderInfo_afterGroupsSaved_matchesNewContents() {
+        assertThat(contentTitles(null)).containsExactly("Alpha", "Charlie").inOrder()
+
+        folder.contents.value = mutableSetOf(apps[1].toComponentKey())
+        CompiledFilter.invalidateAll()
+
+        assertThat(contentTitles(null)).containsExactly("Bravo")
+    }
+
+    private fun contentTitles(appFilter: CompiledFilter?) =
+        folder.toFolderInfo(apps, appFilter, modelWriter).contents.map { it.title.toString() }
+
+    private fun app(className: String, title: String): AppInfo {
+        val component = ComponentName(context.packageName, className)
+        return AppInfo(
+            component, title, Process.myUserHandle(),
+            Intent(Intent.ACTION_MAIN).setComponent(component)
+        )
+    }
+}
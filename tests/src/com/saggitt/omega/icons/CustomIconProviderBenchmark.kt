@@ -0,0 +1,66 @@
+/*
+ * This file is part of Neo Launcher
+ * Copyright (c) 2023   Neo Launcher Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.saggitt.omega.icons
+
+import android.content.pm.LauncherApps
+import android.os.Process
+import android.os.SystemClock
+import android.util.Log
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import androidx.test.platform.app.InstrumentationRegistry
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Measures bulk icon resolution through [CustomIconProvider], which goes through
+ * getIconWithOverrides for every icon
+ */
+@LargeTest
+@RunWith(AndroidJUnit4::class)
+class CustomIconProviderBenchmark {
+
+    private val context = InstrumentationRegistry.getInstrumentation().targetContext
+
+    @Test
+    fun resolveIcons() {
+        val provider = CustomIconProvider(context)
+        val activities = context.getSystemService(LauncherApps::class.java)
+            .getActivityList(null, Process.myUserHandle())
+        assertThat(activities).isNotEmpty()
+        val iconDpi = context.resources.displayMetrics.densityDpi
+
+        // Warm up the resolution context and the icon pack
+        assertThat(provider.getIcon(activities.first(), iconDpi)).isNotNull()
+
+        val start = SystemClock.elapsedRealtimeNanos()
+        for (i in 0 until ICON_COUNT) {
+            assertThat(provider.getIcon(activities[i % activities.size], iconDpi)).isNotNull()
+        }
+        val elapsed = SystemClock.elapsedRealtimeNanos() - start
+        Log.d(TAG, "Resolved $ICON_COUNT icons in ${elapsed / 1_000_000}ms, "
+                + "${elapsed / ICON_COUNT / 1000}us per icon")
+    }
+
+    companion object {
+        private const val TAG = "CustomIconProviderBenchmark"
+        private const val ICON_COUNT = 500
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * This file is part of Neo Launcher
+ * Copyright (c) 2023   Neo Launcher Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.saggitt.omega.search
+
+import android.os.Handler
+import android.os.Looper
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SmallTest
+import androidx.test.platform.app.InstrumentationRegistry
+import com.google.common.truth.Truth.assertThat
+import okhttp3.OkHttpClient
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+/**
+ * Tests the caching, debouncing and cancellation of [WebSuggestionClient] against a local server
+ */
+@SmallTest
+@RunWith(AndroidJUnit4::class)
+class WebSuggestionClientTest {
+
+    private val instrumentation = InstrumentationRegistry.getInstrumentation()
+    private val server = MockWebServer()
+    private var now = 0L
+    private val client = WebSuggestionClient(
+        OkHttpClient(), Handler(Looper.getMainLooper()), DEBOUNCE_MS, TTL_MS
+    ) { now }
+    private lateinit var template: String
+
+    @Before
+    fun setUp() {
+        server.start()
+        template = server.url("/complete").toString() + "?q=%s"
+    }
+
+    @After
+    fun tearDown() {
+        server.shutdown()
+    }
+
+    @Test
+    fun getSuggestions_returnsCachedResults() {
+        server.enqueue(MockResponse().setBody(RESPONSE))
+
+        assertThat(client.getSuggestions(template, "spot")).containsExactly("spotify", "spot price")
+        assertThat(client.getSuggestions(template, "Spot ")).containsExactly("spotify", "spot price")
+
+        assertThat(server.requestCount).isEqualTo(1)
+    }
+
+    @Test
+    fun getSuggestions_refetchesExpiredResults() {
+        server.enqueue(MockResponse().setBody(RESPONSE))
+        server.enqueue(MockResponse().setBody(RESPONSE))
+
+        client.getSuggestions(template, "spot")
+        now += TTL_MS + 1
+        client.getSuggestions(template, "spot")
+
+        assertThat(server.requestCount).isEqualTo(2)
+    }
+
+    @Test
+    fun requestSuggestions_onlyFetchesLastQuery() {
+        server.enqueue(MockResponse().setBody(RESPONSE))
+        val callback = RecordingCallback(1)
+
+        instrumentation.runOnMainSync {
+            for (query in listOf("s", "sp", "spo", "spot")) {
+                client.requestSuggestions(template, query, callback)
+            }
+        }
+        callback.await()
+
+        assertThat(server.requestCount).isEqualTo(1)
+        assertThat(server.takeRequest().requestUrl?.queryParameter("q")).isEqualTo("spot")
+        assertThat(callback.results).containsExactly("spot" to listOf("spotify", "spot price"))
+    }
+
+    @Test
+    fun requestSuggestions_filtersCachedPrefixResultsImmediately() {
+        server.enqueue(MockResponse().setBody(RESPONSE))
+        client.getSuggestions(template, "spot")
+        // Never answered, so that only the immediate result is delivered
+        server.enqueue(MockResponse().setHeadersDelay(1, TimeUnit.MINUTES))
+        val callback = RecordingCallback(1)
+
+        instrumentation.runOnMainSync { client.requestSuggestions(template, "spoti", callback) }
+
+        assertThat(callback.results).containsExactly("spoti" to listOf("spotify"))
+        assertThat(client.getPrefixHitCount()).isEqualTo(1)
+        instrumentation.runOnMainSync { client.cancel() }
+    }
+
+    @Test
+    fun requestSuggestions_cancelsInFlightRequest() {
+        server.enqueue(MockResponse().setBody(RESPONSE).setHeadersDelay(1, TimeUnit.MINUTES))
+        server.enqueue(MockResponse().setBody(RESPONSE))
+        val callback = RecordingCallback(1)
+
+        instrumentation.runOnMainSync { client.requestSuggestions(template, "spo", callback) }
+        assertThat(server.takeRequest(5, TimeUnit.SECONDS)).isNotNull()
+        instrumentation.runOnMainSync { client.requestSuggestions(template, "spot", callback) }
+        callback.await()
+
+        assertThat(client.getCancelledCount()).isEqualTo(1)
+        assertThat(client.getRequestCount()).isEqualTo(2)
+        assertThat(callback.results).containsExactly("spot" to listOf("spotify", "spot price"))
+    }
+
+    private class RecordingCallback(count: Int) : WebSuggestionClient.SuggestionsCallback {
+
+        private val latch = CountDownLatch(count)
+        val results = mutableListOf<Pair<String, List<String>>>()
+
+        override fun onSuggestions(query: String, suggestions: List<String>) {
+            results.add(query to suggestions)
+            latch.countDown()
+        }
+
+        fun await() {
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue()
+            // Let any unexpected callback posted after the expected ones run
+            InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+        }
+    }
+
+    companion object {
+        private const val DEBOUNCE_MS = 50L
+        private const val TTL_MS = 60_000L
+        private const val RESPONSE = """["spot",["spotify","spot price"]]"""
+    }
+}
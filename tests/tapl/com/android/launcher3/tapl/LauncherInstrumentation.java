@@ -1823,6 +1823,19 @@ public final class LauncherInstrumentation {
                 .getInt(TestProtocol.TEST_INFO_RESPONSE_FIELD);
     }
 
+    /**
+     * Returns the frame stats of the launcher transitions since the last
+     * {@link #clearFrameStats()}, by transition and launcher state.
+     */
+    public Bundle getFrameStats() {
+        return getTestInfo(TestProtocol.REQUEST_GET_FRAME_STATS)
+                .getBundle(TestProtocol.TEST_INFO_RESPONSE_FIELD);
+    }
+
+    public void clearFrameStats() {
+        getTestInfo(TestProtocol.REQUEST_CLEAR_FRAME_STATS);
+    }
+
     public Closable eventsCheck() {
         Assert.assertTrue("Nested event checking", mEventChecker == null);
         disableSensorRotation();